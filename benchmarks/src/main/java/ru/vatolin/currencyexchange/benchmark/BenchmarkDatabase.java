@@ -0,0 +1,136 @@
+package ru.vatolin.currencyexchange.benchmark;
+
+import ru.vatolin.currencyexchange.service.ConnectionPool;
+import ru.vatolin.currencyexchange.service.DatabaseConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+final class BenchmarkDatabase {
+    static final int CURRENCIES = 200;
+
+    static final String DIRECT_BASE = "AFX";
+    static final String DIRECT_TARGET = "AGX";
+    static final String REVERSE_BASE = "ABX";
+    static final String REVERSE_TARGET = "ACX";
+    static final String CROSS_BASE = "ADX";
+    static final String CROSS_TARGET = "AEX";
+
+    private static final List<String> CODES = generateCodes();
+
+    private BenchmarkDatabase() {
+    }
+
+    static List<String> codes() {
+        return CODES;
+    }
+
+    static Path create(Path directory) throws IOException, SQLException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("currency_exchange.db");
+        Files.deleteIfExists(file);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate("""
+                    CREATE TABLE Currencies (
+                    ID INTEGER PRIMARY KEY AUTOINCREMENT,
+                    Code VARCHAR(3) NOT NULL UNIQUE,
+                    FullName VARCHAR(100) NOT NULL,
+                    Sign VARCHAR(5))
+                    """);
+                statement.executeUpdate("""
+                    CREATE TABLE ExchangeRates (
+                    ID INTEGER PRIMARY KEY AUTOINCREMENT,
+                    BaseCurrencyId INTEGER NOT NULL,
+                    TargetCurrencyId INTEGER NOT NULL,
+                    Rate DECIMAL(6, 6) NOT NULL,
+                    RateExact TEXT,
+                    UNIQUE (BaseCurrencyId, TargetCurrencyId),
+                    FOREIGN KEY (BaseCurrencyId) REFERENCES Currencies(ID),
+                    FOREIGN KEY (TargetCurrencyId) REFERENCES Currencies(ID))
+                    """);
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO Currencies (ID, Code, FullName, Sign) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < CODES.size(); i++) {
+                    insert.setInt(1, i + 1);
+                    insert.setString(2, CODES.get(i));
+                    insert.setString(3, "Currency " + CODES.get(i));
+                    insert.setString(4, "¤");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            Random random = new Random(42);
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO ExchangeRates (BaseCurrencyId, TargetCurrencyId, Rate) VALUES (?, ?, ?)")) {
+                for (int base = 0; base < CODES.size(); base++) {
+                    for (int target = 0; target < CODES.size(); target++) {
+                        if (base == target || excluded(CODES.get(base), CODES.get(target))) {
+                            continue;
+                        }
+                        insert.setInt(1, base + 1);
+                        insert.setInt(2, target + 1);
+                        insert.setDouble(3, 0.01 + random.nextDouble() * 100);
+                        insert.addBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+        return file;
+    }
+
+    static ConnectionPool open(Path file) throws SQLException {
+        return open("jdbc:sqlite:" + file);
+    }
+
+    static ConnectionPool open(String url) throws SQLException {
+        return new ConnectionPool(DatabaseConfig.from(key -> key.equals("currency.db.url") ? url : null));
+    }
+
+    static void delete(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static boolean excluded(String base, String target) {
+        if (base.equals(REVERSE_BASE) && target.equals(REVERSE_TARGET)) {
+            return true;
+        }
+        return (base.equals(CROSS_BASE) && target.equals(CROSS_TARGET))
+                || (base.equals(CROSS_TARGET) && target.equals(CROSS_BASE));
+    }
+
+    private static List<String> generateCodes() {
+        List<String> codes = new ArrayList<>(CURRENCIES);
+        codes.add("USD");
+        for (int i = 0; codes.size() < CURRENCIES; i++) {
+            codes.add(new String(new char[]{(char) ('A' + i / 26), (char) ('A' + i % 26), 'X'}));
+        }
+        return Collections.unmodifiableList(codes);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.vatolin.currencyexchange.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.service.ConnectionPool;
+import ru.vatolin.currencyexchange.service.CurrencyDao;
+import ru.vatolin.currencyexchange.service.ExchangeRateDao;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+    private Path directory;
+    private ConnectionPool pool;
+    private ExchangeRateDao exchangeRateDao;
+    private CurrencyDao currencyDao;
+    private List<String> codes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("currency-dao-benchmark");
+        pool = BenchmarkDatabase.open(BenchmarkDatabase.create(directory));
+        exchangeRateDao = new ExchangeRateDao(pool);
+        currencyDao = new CurrencyDao(pool);
+        codes = BenchmarkDatabase.codes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pool.close();
+        BenchmarkDatabase.delete(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int base;
+        private int target = 1;
+
+        void advance(int size) {
+            target++;
+            if (target == base) {
+                target++;
+            }
+            if (target >= size) {
+                base = (base + 1) % size;
+                target = base == 0 ? 1 : 0;
+            }
+        }
+    }
+
+    @Benchmark
+    public ExchangeRate getExchangeRate(Cursor cursor) throws Exception {
+        cursor.advance(codes.size());
+        return exchangeRateDao.getExchangeRate(codes.get(cursor.base), codes.get(cursor.target));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<ExchangeRate> getAllExchangeRates() throws Exception {
+        return exchangeRateDao.getAllExchangeRates();
+    }
+
+    @Benchmark
+    public Currency getCurrencyByCode(Cursor cursor) throws Exception {
+        cursor.advance(codes.size());
+        return currencyDao.getCurrencyByCode(codes.get(cursor.target));
+    }
+}
@@ -0,0 +1,70 @@
+package ru.vatolin.currencyexchange.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.vatolin.currencyexchange.model.ExchangeResult;
+import ru.vatolin.currencyexchange.service.ConnectionPool;
+import ru.vatolin.currencyexchange.service.CrossRateResolver;
+import ru.vatolin.currencyexchange.service.CurrencyDao;
+import ru.vatolin.currencyexchange.service.ExchangeRateDao;
+import ru.vatolin.currencyexchange.service.RateBook;
+import ru.vatolin.currencyexchange.service.RateBookSnapshot;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExchangeBenchmark {
+    private Path directory;
+    private ConnectionPool pool;
+    private RateBook rateBook;
+    private RateBookSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("currency-exchange-benchmark");
+        pool = BenchmarkDatabase.open(BenchmarkDatabase.create(directory));
+        rateBook = new RateBook(new CurrencyDao(pool), new ExchangeRateDao(pool), new CrossRateResolver(List.of("USD"), 2));
+        snapshot = rateBook.snapshot();
+        rateBook.findRate(snapshot, BenchmarkDatabase.CROSS_BASE, BenchmarkDatabase.CROSS_TARGET);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        rateBook.close();
+        pool.close();
+        BenchmarkDatabase.delete(directory);
+    }
+
+    @Benchmark
+    public ExchangeResult direct() {
+        return rateBook.exchange(snapshot, BenchmarkDatabase.DIRECT_BASE, BenchmarkDatabase.DIRECT_TARGET, 100);
+    }
+
+    @Benchmark
+    public ExchangeResult reverse() {
+        return rateBook.exchange(snapshot, BenchmarkDatabase.REVERSE_BASE, BenchmarkDatabase.REVERSE_TARGET, 100);
+    }
+
+    @Benchmark
+    public ExchangeResult usdCross() {
+        return rateBook.exchange(snapshot, BenchmarkDatabase.CROSS_BASE, BenchmarkDatabase.CROSS_TARGET, 100);
+    }
+}
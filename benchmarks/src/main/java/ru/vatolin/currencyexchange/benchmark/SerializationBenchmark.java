@@ -0,0 +1,60 @@
+package ru.vatolin.currencyexchange.benchmark;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.vatolin.currencyexchange.json.JsonWriters;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.service.ConnectionPool;
+import ru.vatolin.currencyexchange.service.ExchangeRateDao;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private final Gson gson = new Gson();
+    private List<ExchangeRate> rates;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path directory = Files.createTempDirectory("currency-serialization-benchmark");
+        try (ConnectionPool pool = BenchmarkDatabase.open(BenchmarkDatabase.create(directory))) {
+            rates = new ExchangeRateDao(pool).getAllExchangeRates();
+        } finally {
+            BenchmarkDatabase.delete(directory);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rates = null;
+    }
+
+    @Benchmark
+    public String gsonRateList() {
+        return gson.toJson(rates);
+    }
+
+    @Benchmark
+    public byte[] jsonWritersRateList() {
+        return JsonWriters.encodeExchangeRates(rates);
+    }
+}
@@ -0,0 +1,132 @@
+package ru.vatolin.currencyexchange.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+import ru.vatolin.currencyexchange.service.ConnectionPool;
+import ru.vatolin.currencyexchange.service.CurrencyDao;
+import ru.vatolin.currencyexchange.service.ExchangeRateDao;
+import ru.vatolin.currencyexchange.service.InMemoryRateStore;
+import ru.vatolin.currencyexchange.service.Storage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+    private static final List<String> PIVOTS = List.of("USD");
+    private static final FixedDecimal[] RATES = {FixedDecimal.parse("1.2345"), FixedDecimal.parse("1.2346")};
+
+    @Param({"sqlite", "h2", "memory"})
+    private String backend;
+
+    private Path directory;
+    private ConnectionPool sqlitePool;
+    private ConnectionPool pool;
+    private Storage storage;
+    private List<String> codes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("currency-store-benchmark");
+        sqlitePool = BenchmarkDatabase.open(BenchmarkDatabase.create(directory));
+        Storage sqlite = new Storage(new CurrencyDao(sqlitePool), new ExchangeRateDao(sqlitePool));
+        sqlite.prepare();
+        codes = BenchmarkDatabase.codes();
+
+        switch (backend) {
+            case "sqlite" -> storage = sqlite;
+            case "h2" -> {
+                pool = BenchmarkDatabase.open("jdbc:h2:" + directory.resolve("currency_exchange").toAbsolutePath());
+                storage = new Storage(new CurrencyDao(pool), new ExchangeRateDao(pool));
+                storage.prepare();
+                storage.copyFrom(sqlite);
+            }
+            case "memory" -> {
+                InMemoryRateStore store = new InMemoryRateStore();
+                storage = new Storage(store, store);
+                storage.copyFrom(sqlite);
+            }
+            default -> throw new IllegalArgumentException("Неизвестное хранилище: " + backend);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        sqlitePool.close();
+        BenchmarkDatabase.delete(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int base;
+        private int target = 1;
+        private int flip;
+
+        void advance(int size) {
+            target++;
+            if (target == base) {
+                target++;
+            }
+            if (target >= size) {
+                base = (base + 1) % size;
+                target = base == 0 ? 1 : 0;
+            }
+        }
+    }
+
+    @Benchmark
+    public ExchangeRate getExchangeRate(Cursor cursor) throws Exception {
+        cursor.advance(codes.size());
+        return storage.getRates().getExchangeRate(codes.get(cursor.base), codes.get(cursor.target));
+    }
+
+    @Benchmark
+    public List<ExchangeRate> findPairLegs(Cursor cursor) throws Exception {
+        cursor.advance(codes.size());
+        return storage.getRates().findPairLegs(codes.get(cursor.base), codes.get(cursor.target), PIVOTS);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<ExchangeRate> getAllExchangeRates() throws Exception {
+        return storage.getRates().getAllExchangeRates();
+    }
+
+    @Benchmark
+    public Currency getCurrencyByCode(Cursor cursor) throws Exception {
+        cursor.advance(codes.size());
+        return storage.getCurrencies().getCurrencyByCode(codes.get(cursor.target));
+    }
+
+    @Benchmark
+    public Optional<ExchangeRate> updateExchangeRate(Cursor cursor) throws Exception {
+        cursor.flip ^= 1;
+        return storage.getRates().updateExchangeRate(BenchmarkDatabase.DIRECT_BASE, BenchmarkDatabase.DIRECT_TARGET,
+                RATES[cursor.flip], System.currentTimeMillis());
+    }
+}
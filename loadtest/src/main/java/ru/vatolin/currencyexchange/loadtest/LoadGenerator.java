@@ -0,0 +1,153 @@
+package ru.vatolin.currencyexchange.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+final class LoadGenerator implements AutoCloseable {
+    private final HttpClient client;
+    private final Workload workload;
+    private final double ratePerSecond;
+    private final Random random;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    LoadGenerator(HttpClient client, Workload workload, double ratePerSecond, long seed) {
+        if (!(ratePerSecond > 0)) {
+            throw new IllegalArgumentException("Частота запросов должна быть положительной");
+        }
+        this.client = client;
+        this.workload = workload;
+        this.ratePerSecond = ratePerSecond;
+        this.random = new Random(seed);
+    }
+
+    Phase run(Duration duration, Duration drainTimeout) {
+        Phase phase = new Phase(duration);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long durationNanos = duration.toNanos();
+        long start = System.nanoTime();
+
+        for (long i = 0; ; i++) {
+            long offset = (long) (i * intervalNanos);
+            if (offset >= durationNanos) {
+                break;
+            }
+            long intended = start + offset;
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            phase.maxSendLagNanos = Math.max(phase.maxSendLagNanos, -wait);
+
+            Workload.Operation operation = workload.next(random);
+            HttpRequest request = workload.request(operation, random);
+            phase.scheduled.increment();
+            executor.execute(() -> send(phase, operation, request, intended));
+        }
+
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        while (phase.finished.sum() < phase.scheduled.sum() && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        phase.elapsedNanos = System.nanoTime() - start;
+        return phase;
+    }
+
+    private void send(Phase phase, Workload.Operation operation, HttpRequest request, long intended) {
+        long sent = System.nanoTime();
+        boolean failed;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            failed = response.statusCode() >= 400;
+        } catch (IOException e) {
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed = true;
+        }
+        long done = System.nanoTime();
+        phase.stats.get(operation).record(done - intended, done - sent, failed);
+        phase.finished.increment();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    static final class Phase {
+        private final Duration duration;
+        private final Map<Workload.Operation, OperationStats> stats = new EnumMap<>(Workload.Operation.class);
+        private final LongAdder scheduled = new LongAdder();
+        private final LongAdder finished = new LongAdder();
+        private volatile long elapsedNanos;
+        private long maxSendLagNanos;
+
+        Phase(Duration duration) {
+            this.duration = duration;
+            for (Workload.Operation operation : Workload.Operation.values()) {
+                stats.put(operation, new OperationStats());
+            }
+        }
+
+        Duration getDuration() {
+            return duration;
+        }
+
+        long getScheduled() {
+            return scheduled.sum();
+        }
+
+        long getFinished() {
+            return finished.sum();
+        }
+
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        long getMaxSendLagNanos() {
+            return maxSendLagNanos;
+        }
+
+        Map<Workload.Operation, OperationStats> getStats() {
+            return stats;
+        }
+    }
+
+    static final class OperationStats {
+        private final LatencyRecorder latency = new LatencyRecorder();
+        private final LatencyRecorder service = new LatencyRecorder();
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyNanos, long serviceNanos, boolean failed) {
+            latency.record(latencyNanos);
+            service.record(serviceNanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        LatencyRecorder getLatency() {
+            return latency;
+        }
+
+        LatencyRecorder getService() {
+            return service;
+        }
+
+        long getErrors() {
+            return errors.sum();
+        }
+    }
+}
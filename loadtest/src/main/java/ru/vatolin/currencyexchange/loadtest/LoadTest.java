@@ -0,0 +1,132 @@
+package ru.vatolin.currencyexchange.loadtest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import ru.vatolin.currencyexchange.server.EmbeddedServer;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class LoadTest {
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config;
+        try {
+            config = LoadTestConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            System.err.print(LoadTestConfig.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (config.isHelp()) {
+            System.out.print(LoadTestConfig.USAGE);
+            return;
+        }
+
+        Path workDirectory = null;
+        EmbeddedServer server = null;
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(config.getTimeout())
+                    .build();
+
+            URI baseUri;
+            List<String> codes;
+            List<String> pairs;
+            if (config.getTarget() == null) {
+                workDirectory = Files.createTempDirectory("currency-loadtest");
+                LoadTestDatabase database = LoadTestDatabase.create(workDirectory, config.getCurrencies(),
+                        config.getDensity(), config.getSeed());
+                server = EmbeddedServer.start(Map.of(
+                        "currency.db.url", database.getUrl(),
+                        "currency.persistence", config.getPersistence(),
+                        "currency.journal.dir", workDirectory.resolve("journal").toString(),
+                        "currency.server.host", "127.0.0.1",
+                        "currency.server.port", Integer.toString(config.getPort()),
+                        "currency.server.workDir", workDirectory.toString(),
+                        "currency.server.warmupRequests", "0"));
+                baseUri = server.getBaseUri();
+                codes = database.getCodes();
+                pairs = database.getDirectPairs();
+                System.err.println("Встроенный сервер запущен на " + baseUri + ", валют " + codes.size() + ", курсов " + pairs.size());
+            } else {
+                baseUri = config.getTarget();
+                codes = discoverCodes(client, baseUri);
+                pairs = discoverPairs(client, baseUri);
+            }
+
+            Workload workload = new Workload(baseUri, codes, pairs, config.getMix(), config.getTimeout());
+            try (LoadGenerator generator = new LoadGenerator(client, workload, config.getRate(), config.getSeed())) {
+                if (!config.getWarmup().isZero()) {
+                    generator.run(config.getWarmup(), config.getTimeout());
+                }
+                Instant startedAt = Instant.now();
+                LoadGenerator.Phase phase = generator.run(config.getDuration(), config.getTimeout());
+
+                Report report = new Report(config, phase, startedAt);
+                PrintStream text = config.isJsonToStdout() ? System.err : System.out;
+                report.printText(text);
+                if (config.isJsonToStdout()) {
+                    Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+                    report.writeJson(out);
+                    out.write('\n');
+                    out.flush();
+                } else if (config.getJson() != null) {
+                    try (Writer out = Files.newBufferedWriter(config.getJson(), StandardCharsets.UTF_8)) {
+                        report.writeJson(out);
+                    }
+                }
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+            LoadTestDatabase.delete(workDirectory);
+        }
+    }
+
+    private static List<String> discoverCodes(HttpClient client, URI baseUri) throws IOException, InterruptedException {
+        List<String> codes = new ArrayList<>();
+        for (JsonElement currency : fetch(client, baseUri.resolve("/api/currencies"))) {
+            codes.add(currency.getAsJsonObject().get("code").getAsString());
+        }
+        return codes;
+    }
+
+    private static List<String> discoverPairs(HttpClient client, URI baseUri) throws IOException, InterruptedException {
+        List<String> pairs = new ArrayList<>();
+        for (JsonElement element : fetch(client, baseUri.resolve("/api/exchangeRates"))) {
+            JsonObject rate = element.getAsJsonObject();
+            pairs.add(rate.getAsJsonObject("baseCurrency").get("code").getAsString()
+                    + rate.getAsJsonObject("targetCurrency").get("code").getAsString());
+        }
+        return pairs;
+    }
+
+    private static Iterable<JsonElement> fetch(HttpClient client, URI uri) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw new IOException("Сервер вернул " + response.statusCode() + " для " + uri);
+        }
+        return JsonParser.parseString(response.body()).getAsJsonArray();
+    }
+}
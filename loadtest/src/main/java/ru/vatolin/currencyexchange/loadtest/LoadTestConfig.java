@@ -0,0 +1,152 @@
+package ru.vatolin.currencyexchange.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+final class LoadTestConfig {
+    static final String USAGE = """
+        Использование: java -jar loadtest.jar [параметры]
+          --rate N            запросов в секунду (500)
+          --duration T        длительность замера, например 30s, 2m, 500ms (30s)
+          --warmup T          прогрев перед замером (10s)
+          --mix СПИСОК        веса операций currencies,pair,exchange,patch,bulk
+                              (currencies=10,pair=40,exchange=40,patch=10)
+          --currencies N      валют в сгенерированной базе (200)
+          --density D         доля прямых курсов между не-USD валютами (0.05)
+          --seed N            зерно генератора данных и запросов (42)
+          --port N            порт встроенного сервера, 0 - любой свободный (0)
+          --persistence M     sqlite или journal (sqlite)
+          --target URL        нагружать уже запущенный сервер вместо встроенного
+          --timeout T         таймаут одного запроса (10s)
+          --json ФАЙЛ         записать отчёт в JSON, "-" - в стандартный вывод
+          --label ТЕКСТ       метка сборки в отчёте (local)
+        """;
+
+    private static final Set<String> OPTIONS = Set.of("help", "rate", "duration", "warmup", "mix", "currencies", "density",
+            "seed", "port", "persistence", "target", "timeout", "json", "label");
+
+    private final Map<String, String> values;
+
+    private LoadTestConfig(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Неизвестный аргумент: " + arg);
+            }
+            String name = arg.substring(2);
+            int separator = name.indexOf('=');
+            String value = null;
+            if (separator >= 0) {
+                value = name.substring(separator + 1);
+                name = name.substring(0, separator);
+            }
+            if (!OPTIONS.contains(name)) {
+                throw new IllegalArgumentException("Неизвестный параметр --" + name);
+            }
+            if (value != null) {
+                values.put(name, value);
+            } else if (name.equals("help")) {
+                values.put(name, "true");
+            } else if (i + 1 < args.length) {
+                values.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Отсутствует значение параметра --" + name);
+            }
+        }
+        LoadTestConfig config = new LoadTestConfig(values);
+        if (config.getCurrencies() < 2 || config.getCurrencies() > 10_000) {
+            throw new IllegalArgumentException("Число валют должно быть от 2 до 10000");
+        }
+        return config;
+    }
+
+    boolean isHelp() {
+        return values.containsKey("help");
+    }
+
+    double getRate() {
+        return Double.parseDouble(value("rate", "500"));
+    }
+
+    Duration getDuration() {
+        return duration(value("duration", "30s"));
+    }
+
+    Duration getWarmup() {
+        return duration(value("warmup", "10s"));
+    }
+
+    Duration getTimeout() {
+        return duration(value("timeout", "10s"));
+    }
+
+    Map<Workload.Operation, Integer> getMix() {
+        return Workload.parseMix(value("mix", "currencies=10,pair=40,exchange=40,patch=10"));
+    }
+
+    int getCurrencies() {
+        return Integer.parseInt(value("currencies", "200"));
+    }
+
+    double getDensity() {
+        return Double.parseDouble(value("density", "0.05"));
+    }
+
+    long getSeed() {
+        return Long.parseLong(value("seed", "42"));
+    }
+
+    int getPort() {
+        return Integer.parseInt(value("port", "0"));
+    }
+
+    String getPersistence() {
+        return value("persistence", "sqlite");
+    }
+
+    URI getTarget() {
+        String target = values.get("target");
+        return target == null ? null : URI.create(target);
+    }
+
+    Path getJson() {
+        String json = values.get("json");
+        return json == null || json.equals("-") ? null : Path.of(json);
+    }
+
+    boolean isJsonToStdout() {
+        return "-".equals(values.get("json"));
+    }
+
+    String getLabel() {
+        return value("label", "local");
+    }
+
+    private String value(String name, String defaultValue) {
+        String value = values.get(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    static Duration duration(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        if (trimmed.endsWith("s")) {
+            return Duration.ofMillis(Math.round(Double.parseDouble(trimmed.substring(0, trimmed.length() - 1)) * 1000));
+        }
+        if (trimmed.endsWith("m")) {
+            return Duration.ofMillis(Math.round(Double.parseDouble(trimmed.substring(0, trimmed.length() - 1)) * 60_000));
+        }
+        return Duration.ofMillis(Math.round(Double.parseDouble(trimmed) * 1000));
+    }
+}
@@ -0,0 +1,134 @@
+package ru.vatolin.currencyexchange.loadtest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+final class LoadTestDatabase {
+    private final Path file;
+    private final List<String> codes;
+    private final List<String> directPairs;
+
+    private LoadTestDatabase(Path file, List<String> codes, List<String> directPairs) {
+        this.file = file;
+        this.codes = codes;
+        this.directPairs = directPairs;
+    }
+
+    static LoadTestDatabase create(Path directory, int currencies, double directDensity, long seed)
+            throws IOException, SQLException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("currency_exchange.db");
+        Files.deleteIfExists(file);
+
+        List<String> codes = generateCodes(currencies);
+        List<String> pairs = new ArrayList<>();
+        Random random = new Random(seed);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate("""
+                    CREATE TABLE Currencies (
+                    ID INTEGER PRIMARY KEY AUTOINCREMENT,
+                    Code VARCHAR(3) NOT NULL UNIQUE,
+                    FullName VARCHAR(100) NOT NULL,
+                    Sign VARCHAR(5))
+                    """);
+                statement.executeUpdate("""
+                    CREATE TABLE ExchangeRates (
+                    ID INTEGER PRIMARY KEY AUTOINCREMENT,
+                    BaseCurrencyId INTEGER NOT NULL,
+                    TargetCurrencyId INTEGER NOT NULL,
+                    Rate DECIMAL(6, 6) NOT NULL,
+                    RateExact TEXT,
+                    UNIQUE (BaseCurrencyId, TargetCurrencyId),
+                    FOREIGN KEY (BaseCurrencyId) REFERENCES Currencies(ID),
+                    FOREIGN KEY (TargetCurrencyId) REFERENCES Currencies(ID))
+                    """);
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO Currencies (ID, Code, FullName, Sign) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < codes.size(); i++) {
+                    insert.setInt(1, i + 1);
+                    insert.setString(2, codes.get(i));
+                    insert.setString(3, "Currency " + codes.get(i));
+                    insert.setString(4, "¤");
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO ExchangeRates (BaseCurrencyId, TargetCurrencyId, Rate, RateExact) VALUES (?, ?, ?, ?)")) {
+                for (int base = 0; base < codes.size(); base++) {
+                    for (int target = 0; target < codes.size(); target++) {
+                        if (base == target || (base != 0 && random.nextDouble() >= directDensity)) {
+                            continue;
+                        }
+                        BigDecimal rate = BigDecimal.valueOf(0.01 + random.nextDouble() * 100).setScale(6, RoundingMode.HALF_EVEN);
+                        insert.setInt(1, base + 1);
+                        insert.setInt(2, target + 1);
+                        insert.setDouble(3, rate.doubleValue());
+                        insert.setString(4, rate.toPlainString());
+                        insert.addBatch();
+                        pairs.add(codes.get(base) + codes.get(target));
+                    }
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+        return new LoadTestDatabase(file, codes, Collections.unmodifiableList(pairs));
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    String getUrl() {
+        return "jdbc:sqlite:" + file;
+    }
+
+    List<String> getCodes() {
+        return codes;
+    }
+
+    List<String> getDirectPairs() {
+        return directPairs;
+    }
+
+    static void delete(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static List<String> generateCodes(int currencies) {
+        List<String> codes = new ArrayList<>(currencies);
+        codes.add("USD");
+        for (int i = 0; codes.size() < currencies; i++) {
+            codes.add(new String(new char[]{(char) ('A' + i / 26 % 26), (char) ('A' + i % 26), (char) ('X' - i / 676)}));
+        }
+        return Collections.unmodifiableList(codes);
+    }
+}
@@ -0,0 +1,129 @@
+package ru.vatolin.currencyexchange.loadtest;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+
+final class Report {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p99.9", "p99.99"};
+
+    private final LoadTestConfig config;
+    private final LoadGenerator.Phase phase;
+    private final Instant startedAt;
+
+    Report(LoadTestConfig config, LoadGenerator.Phase phase, Instant startedAt) {
+        this.config = config;
+        this.phase = phase;
+        this.startedAt = startedAt;
+    }
+
+    void printText(PrintStream out) {
+        double seconds = phase.getDuration().toNanos() / 1e9;
+        out.printf(Locale.ROOT, "Нагрузочный тест %s: %s запросов/с, %.1f с, прогрев %.1f с%n",
+                config.getLabel(), format(config.getRate()), seconds, config.getWarmup().toNanos() / 1e9);
+        out.printf(Locale.ROOT, "Отправлено %d, завершено %d, пропускная способность %.1f запросов/с, макс. отставание отправки %.3f мс%n",
+                phase.getScheduled(), phase.getFinished(), phase.getFinished() / seconds, phase.getMaxSendLagNanos() / 1e6);
+        out.println("Задержка от запланированного момента отправки, мс:");
+        out.printf(Locale.ROOT, "%-12s %9s %7s %9s", "операция", "запросов", "ошибок", "rps");
+        for (String label : PERCENTILE_LABELS) {
+            out.printf(Locale.ROOT, " %9s", label);
+        }
+        out.printf(Locale.ROOT, " %9s %9s %9s%n", "max", "mean", "service99");
+
+        for (Map.Entry<Workload.Operation, LoadGenerator.OperationStats> entry : phase.getStats().entrySet()) {
+            LoadGenerator.OperationStats stats = entry.getValue();
+            LatencyRecorder latency = stats.getLatency();
+            if (latency.getCount() == 0) {
+                continue;
+            }
+            out.printf(Locale.ROOT, "%-12s %9d %7d %9.1f", entry.getKey().label(), latency.getCount(), stats.getErrors(),
+                    latency.getCount() / seconds);
+            for (long value : latency.percentiles(PERCENTILES)) {
+                out.printf(Locale.ROOT, " %9.3f", value / 1e6);
+            }
+            out.printf(Locale.ROOT, " %9.3f %9.3f %9.3f%n", latency.getMaxNanos() / 1e6, latency.getMeanNanos() / 1e6,
+                    stats.getService().percentiles(99)[0] / 1e6);
+        }
+    }
+
+    void writeJson(Writer target) throws IOException {
+        JsonWriter writer = new JsonWriter(target);
+        writer.setIndent("  ");
+        double seconds = phase.getDuration().toNanos() / 1e9;
+
+        writer.beginObject();
+        writer.name("label").value(config.getLabel());
+        writer.name("startedAt").value(startedAt.toString());
+        writer.name("environment");
+        writer.beginObject();
+        writer.name("java").value(System.getProperty("java.version"));
+        writer.name("vm").value(System.getProperty("java.vm.name"));
+        writer.name("os").value(System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        writer.name("processors").value(Runtime.getRuntime().availableProcessors());
+        writer.endObject();
+
+        writer.name("config");
+        writer.beginObject();
+        writer.name("target").value(config.getTarget() != null ? config.getTarget().toString() : "embedded");
+        writer.name("ratePerSecond").value(config.getRate());
+        writer.name("durationSeconds").value(seconds);
+        writer.name("warmupSeconds").value(config.getWarmup().toNanos() / 1e9);
+        writer.name("currencies").value(config.getCurrencies());
+        writer.name("seed").value(config.getSeed());
+        writer.name("mix");
+        writer.beginObject();
+        for (Map.Entry<Workload.Operation, Integer> entry : config.getMix().entrySet()) {
+            writer.name(entry.getKey().label()).value(entry.getValue());
+        }
+        writer.endObject();
+        writer.endObject();
+
+        writer.name("scheduled").value(phase.getScheduled());
+        writer.name("completed").value(phase.getFinished());
+        writer.name("throughputPerSecond").value(phase.getFinished() / seconds);
+        writer.name("maxSendLagMillis").value(phase.getMaxSendLagNanos() / 1e6);
+
+        writer.name("operations");
+        writer.beginObject();
+        for (Map.Entry<Workload.Operation, LoadGenerator.OperationStats> entry : phase.getStats().entrySet()) {
+            LoadGenerator.OperationStats stats = entry.getValue();
+            if (stats.getLatency().getCount() == 0) {
+                continue;
+            }
+            writer.name(entry.getKey().label());
+            writer.beginObject();
+            writer.name("count").value(stats.getLatency().getCount());
+            writer.name("errors").value(stats.getErrors());
+            writer.name("throughputPerSecond").value(stats.getLatency().getCount() / seconds);
+            writer.name("latencyMillis");
+            writeDistribution(writer, stats.getLatency());
+            writer.name("serviceTimeMillis");
+            writeDistribution(writer, stats.getService());
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.endObject();
+        writer.flush();
+    }
+
+    private static void writeDistribution(JsonWriter writer, LatencyRecorder recorder) throws IOException {
+        writer.beginObject();
+        long[] values = recorder.percentiles(PERCENTILES);
+        for (int i = 0; i < values.length; i++) {
+            writer.name(PERCENTILE_LABELS[i]).value(values[i] / 1e6);
+        }
+        writer.name("max").value(recorder.getMaxNanos() / 1e6);
+        writer.name("mean").value(recorder.getMeanNanos() / 1e6);
+        writer.endObject();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+}
@@ -0,0 +1,146 @@
+package ru.vatolin.currencyexchange.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+final class Workload {
+    enum Operation {
+        CURRENCIES("currencies"),
+        PAIR("pair"),
+        EXCHANGE("exchange"),
+        PATCH("patch"),
+        BULK("bulk");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        String label() {
+            return label;
+        }
+
+        static Operation of(String label) {
+            for (Operation operation : values()) {
+                if (operation.label.equalsIgnoreCase(label)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестная операция: " + label);
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final int BULK_SIZE = 200;
+
+    private final URI baseUri;
+    private final List<String> codes;
+    private final List<String> directPairs;
+    private final int[] cumulativeWeights;
+    private final Duration timeout;
+
+    Workload(URI baseUri, List<String> codes, List<String> directPairs, Map<Operation, Integer> mix, Duration timeout) {
+        if (codes.size() < 2 || directPairs.isEmpty()) {
+            throw new IllegalArgumentException("Для нагрузки нужны хотя бы две валюты и один курс");
+        }
+        this.baseUri = baseUri;
+        this.codes = codes;
+        this.directPairs = directPairs;
+        this.timeout = timeout;
+        this.cumulativeWeights = new int[OPERATIONS.length];
+        int total = 0;
+        for (Operation operation : OPERATIONS) {
+            int weight = mix.getOrDefault(operation, 0);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Вес операции не может быть отрицательным: " + operation.label());
+            }
+            total += weight;
+            cumulativeWeights[operation.ordinal()] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Смесь операций пуста");
+        }
+    }
+
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int separator = part.indexOf('=');
+            if (separator < 0) {
+                separator = part.indexOf(':');
+            }
+            if (separator < 0) {
+                throw new IllegalArgumentException("Ожидалось операция=вес: " + part);
+            }
+            mix.put(Operation.of(part.substring(0, separator).trim()), Integer.parseInt(part.substring(separator + 1).trim()));
+        }
+        return mix;
+    }
+
+    Operation next(Random random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (Operation operation : OPERATIONS) {
+            if (roll < cumulativeWeights[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    HttpRequest request(Operation operation, Random random) {
+        switch (operation) {
+            case CURRENCIES:
+                return get("/api/currencies");
+            case PAIR:
+                return get("/api/exchangeRates/" + directPairs.get(random.nextInt(directPairs.size())));
+            case EXCHANGE: {
+                String from = codes.get(random.nextInt(codes.size()));
+                String to = codes.get(random.nextInt(codes.size()));
+                String amount = String.format(Locale.ROOT, "%.2f", random.nextDouble() * 10_000);
+                return get("/api/exchangeRates/exchange?from=" + from + "&to=" + to + "&amount=" + amount);
+            }
+            case PATCH: {
+                String pair = directPairs.get(random.nextInt(directPairs.size()));
+                String rate = String.format(Locale.ROOT, "%.6f", 0.01 + random.nextDouble() * 100);
+                return HttpRequest.newBuilder(baseUri.resolve("/api/exchangeRates/" + pair))
+                        .timeout(timeout)
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("rate=" + rate))
+                        .build();
+            }
+            case BULK: {
+                StringBuilder body = new StringBuilder("[");
+                for (int i = 0; i < BULK_SIZE; i++) {
+                    String pair = directPairs.get(random.nextInt(directPairs.size()));
+                    if (i > 0) {
+                        body.append(',');
+                    }
+                    body.append(String.format(Locale.ROOT,
+                            "{\"baseCurrencyCode\":\"%s\",\"targetCurrencyCode\":\"%s\",\"rate\":%.6f}",
+                            pair.substring(0, 3), pair.substring(3), 0.01 + random.nextDouble() * 100));
+                }
+                return HttpRequest.newBuilder(baseUri.resolve("/api/exchangeRates/bulk"))
+                        .timeout(timeout)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                        .build();
+            }
+            default:
+                throw new IllegalArgumentException("Неизвестная операция: " + operation);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(timeout).GET().build();
+    }
+}
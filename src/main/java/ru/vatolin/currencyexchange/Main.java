@@ -1,20 +1,20 @@
 package ru.vatolin.currencyexchange;
 
-import ru.vatolin.currencyexchange.service.DatabaseConnection;
+import ru.vatolin.currencyexchange.server.EmbeddedServer;
 
-import java.sql.Connection;
-import java.sql.SQLException;
+import java.util.Map;
 
 public class Main {
     public static void main(String[] args) {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            if (connection != null) {
-                System.out.println("Успешно!");
-            } else {
-                System.out.println("Неудача");
-            }
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
+        EmbeddedServer server;
+        try {
+            server = EmbeddedServer.start(Map.of());
+        } catch (Exception e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            System.exit(1);
+            return;
         }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "currency-exchange-shutdown"));
+        server.await();
     }
 }
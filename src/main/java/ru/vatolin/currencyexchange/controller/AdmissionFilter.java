@@ -0,0 +1,213 @@
+package ru.vatolin.currencyexchange.controller;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.vatolin.currencyexchange.metrics.Metrics;
+import ru.vatolin.currencyexchange.service.AdmissionConfig;
+import ru.vatolin.currencyexchange.service.AdmissionConfig.RouteClass;
+import ru.vatolin.currencyexchange.service.ConnectionPool;
+import ru.vatolin.currencyexchange.service.DatabaseConnection;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@WebFilter(urlPatterns = {"/api/currencies/*", "/api/exchangeRates/*"}, asyncSupported = true)
+public class AdmissionFilter implements Filter {
+    private static final String EXCHANGE_RATES = "/api/exchangeRates";
+
+    private final Map<RouteClass, ConcurrencyLimiter> limiters = new EnumMap<>(RouteClass.class);
+    private ClientRateLimiter clients;
+    private long queueTimeoutNanos;
+    private boolean enabled;
+    private volatile int warmupPort = -1;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        ServletContext context = filterConfig.getServletContext();
+        AdmissionConfig config = AdmissionConfig.from(context::getInitParameter);
+        enabled = config.isEnabled();
+        queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getQueueTimeoutMillis());
+        for (RouteClass routeClass : RouteClass.values()) {
+            AdmissionConfig.Limits limits = config.getLimits(routeClass);
+            limiters.put(routeClass, new ConcurrencyLimiter(limits.getLimit(), limits.getQueueDepth(),
+                    TimeUnit.MILLISECONDS.toNanos(limits.getTargetLatencyMillis()),
+                    databaseLatency(routeClass == RouteClass.WRITES)));
+        }
+        clients = config.getClientRate() > 0
+                ? new ClientRateLimiter(config.getClientRate(), config.getClientBurst())
+                : null;
+        context.setAttribute(AdmissionFilter.class.getName(), this);
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        RouteClass routeClass = enabled && request.getLocalPort() != warmupPort ? classify(request) : null;
+        if (routeClass == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (clients != null) {
+            long retryNanos = clients.acquire(request.getRemoteAddr(), System.nanoTime());
+            if (retryNanos != ClientRateLimiter.ALLOWED) {
+                reject(response, 429, retryNanos, "Слишком много запросов, повторите запрос позже");
+                return;
+            }
+        }
+
+        ConcurrencyLimiter limiter = limiters.get(routeClass);
+        boolean admitted;
+        try {
+            admitted = limiter.acquire(queueTimeoutNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, queueTimeoutNanos,
+                    "Сервер перегружен, повторите запрос позже");
+            return;
+        }
+
+        Permit permit = new Permit(routeClass, limiter);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    public void setWarmupPort(int port) {
+        warmupPort = port;
+    }
+
+    void writeMetrics(Appendable out) throws IOException {
+        for (Map.Entry<RouteClass, ConcurrencyLimiter> entry : limiters.entrySet()) {
+            String name = entry.getKey().getKey();
+            ConcurrencyLimiter limiter = entry.getValue();
+            Metrics.writeGauge(out, "currency_admission_" + name + "_limit", "gauge",
+                    "Текущий лимит параллельных запросов", limiter.getLimit());
+            Metrics.writeGauge(out, "currency_admission_" + name + "_inflight", "gauge",
+                    "Выполняемые запросы", limiter.getInFlight());
+            Metrics.writeGauge(out, "currency_admission_" + name + "_queued", "gauge",
+                    "Запросы в очереди", limiter.getWaiting());
+            Metrics.writeGauge(out, "currency_admission_" + name + "_rejected_total", "counter",
+                    "Отклонённые из-за перегрузки запросы", limiter.getRejected());
+        }
+        if (clients != null) {
+            Metrics.writeGauge(out, "currency_admission_clients", "gauge",
+                    "Отслеживаемые клиенты", clients.getClients());
+            Metrics.writeGauge(out, "currency_admission_throttled_total", "counter",
+                    "Отклонённые из-за лимита клиента запросы", clients.getRejected());
+        }
+    }
+
+    private static RouteClass classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        String pathInfo = request.getPathInfo();
+        boolean rates = EXCHANGE_RATES.equals(request.getServletPath());
+        RatePath.Route route = rates ? RatePath.route(RatePath.match(pathInfo)) : null;
+        if (route == RatePath.Route.STREAM) {
+            return null;
+        }
+        if (route == RatePath.Route.EXCHANGE || route == RatePath.Route.EXCHANGE_BATCH) {
+            return RouteClass.CONVERSIONS;
+        }
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return RouteClass.READS;
+        }
+        return RouteClass.WRITES;
+    }
+
+    private static ConcurrencyLimiter.LatencySource databaseLatency(boolean writer) {
+        return new ConcurrencyLimiter.LatencySource() {
+            @Override
+            public long nanos() {
+                ConnectionPool pool = DatabaseConnection.currentPool();
+                if (pool == null) {
+                    return 0;
+                }
+                return writer ? pool.getWriterLatencyNanos() : pool.getReaderLatencyNanos();
+            }
+
+            @Override
+            public long count() {
+                ConnectionPool pool = DatabaseConnection.currentPool();
+                if (pool == null) {
+                    return 0;
+                }
+                return writer ? pool.getWriterLatencyCount() : pool.getReaderLatencyCount();
+            }
+        };
+    }
+
+    private static void reject(HttpServletResponse response, int status, long retryNanos, String message)
+            throws IOException {
+        long retrySeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(status);
+        response.setHeader("Retry-After", Long.toString(retrySeconds));
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"message\": \"" + message + "\"}");
+    }
+
+    private final class Permit implements AsyncListener {
+        private final RouteClass routeClass;
+        private final ConcurrencyLimiter limiter;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(RouteClass routeClass, ConcurrencyLimiter limiter) {
+            this.routeClass = routeClass;
+            this.limiter = limiter;
+        }
+
+        void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            boolean overloaded = limiter.release();
+            if (overloaded && routeClass != RouteClass.WRITES) {
+                limiters.get(RouteClass.WRITES).backOff();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
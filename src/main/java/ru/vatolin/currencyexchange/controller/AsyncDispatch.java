@@ -0,0 +1,77 @@
+package ru.vatolin.currencyexchange.controller;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+import ru.vatolin.currencyexchange.metrics.Metrics;
+import ru.vatolin.currencyexchange.service.DatabaseConnection;
+import ru.vatolin.currencyexchange.service.DatabaseExecutor;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+final class AsyncDispatch {
+    private AsyncDispatch() {
+    }
+
+    static void run(HttpServletRequest request, HttpServletResponse response, LatencyHistogram route,
+                    Handler handler) throws ServletException, IOException {
+        long start = System.nanoTime();
+        DatabaseExecutor executor = DatabaseConnection.getExecutor();
+        if (!request.isAsyncSupported() || executor.isInline()) {
+            try {
+                handler.handle();
+            } finally {
+                route.record(System.nanoTime() - start, response.getStatus() >= 500);
+            }
+            return;
+        }
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        executor.submit(() -> {
+            handler.handle();
+            return null;
+        }).whenComplete((ignored, error) -> {
+            try {
+                if (error != null) {
+                    fail(response, error instanceof CompletionException ? error.getCause() : error);
+                }
+            } finally {
+                route.record(System.nanoTime() - start, error != null || response.getStatus() >= 500);
+                async.complete();
+            }
+        });
+    }
+
+    private static void fail(HttpServletResponse response, Throwable error) {
+        Metrics.recordException(error);
+        if (!(error instanceof RejectedExecutionException)) {
+            System.err.println("Ошибка: " + error.getMessage());
+        }
+        if (response.isCommitted()) {
+            return;
+        }
+        try {
+            response.resetBuffer();
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            if (error instanceof RejectedExecutionException) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.getWriter().write("{\"message\": \"Сервер перегружен, повторите запрос позже\"}");
+            } else {
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                response.getWriter().write("{\"message\": \"Ошибка сервера\"}");
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+        }
+    }
+
+    interface Handler {
+        void handle() throws ServletException, IOException;
+    }
+}
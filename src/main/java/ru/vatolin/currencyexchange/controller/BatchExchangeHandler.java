@@ -0,0 +1,161 @@
+package ru.vatolin.currencyexchange.controller;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.vatolin.currencyexchange.json.JsonWriters;
+import ru.vatolin.currencyexchange.model.ExchangeResult;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+import ru.vatolin.currencyexchange.service.RateBook;
+import ru.vatolin.currencyexchange.service.RateBookSnapshot;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+class BatchExchangeHandler {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int FLUSH_EVERY = 256;
+
+    private final RateBook rateBook;
+
+    BatchExchangeHandler(RateBook rateBook) {
+        this.rateBook = rateBook;
+    }
+
+    void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        JsonReader reader = new JsonReader(request.getReader());
+        reader.setLenient(true);
+
+        boolean array;
+        try {
+            array = reader.peek() == JsonToken.BEGIN_ARRAY;
+        } catch (IOException e) {
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\": \"Некорректное тело запроса\"}");
+            return;
+        }
+
+        response.setContentType(array ? "application/json" : NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(HttpServletResponse.SC_OK);
+
+        PrintWriter out = response.getWriter();
+        JsonWriter writer = JsonWriters.open(out);
+        writer.setLenient(true);
+
+        RateBookSnapshot view = rateBook.snapshot();
+        if (array) {
+            reader.beginArray();
+            writer.beginArray();
+        }
+
+        int index = 0;
+        try {
+            while (array ? reader.hasNext() : reader.peek() != JsonToken.END_DOCUMENT) {
+                convert(view, reader, writer, index);
+                if (!array) {
+                    out.write('\n');
+                }
+                if (++index % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+            if (array) {
+                reader.endArray();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            writeError(writer, index, "Некорректное тело запроса");
+            if (!array) {
+                out.write('\n');
+            }
+        }
+
+        if (array) {
+            writer.endArray();
+        }
+        writer.flush();
+    }
+
+    private void convert(RateBookSnapshot view, JsonReader reader, JsonWriter writer, int index) throws IOException {
+        String from = null;
+        String to = null;
+        String amount = null;
+        String invalid = null;
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            writeError(writer, index, "Элемент пакета должен быть объектом");
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "from":
+                    from = nextScalar(reader);
+                    invalid = from == null ? name : invalid;
+                    break;
+                case "to":
+                    to = nextScalar(reader);
+                    invalid = to == null ? name : invalid;
+                    break;
+                case "amount":
+                    amount = nextScalar(reader);
+                    invalid = amount == null ? name : invalid;
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (invalid != null) {
+            writeError(writer, index, "Некорректное значение " + invalid);
+            return;
+        }
+        if (from == null || to == null || amount == null) {
+            writeError(writer, index, "Отсутствуют необходимые параметры");
+            return;
+        }
+
+        FixedDecimal value;
+        try {
+            value = FixedDecimal.parse(amount);
+        } catch (NumberFormatException e) {
+            writeError(writer, index, "Некорректное значение amount");
+            return;
+        }
+
+        ExchangeResult result = rateBook.exchange(view, from, to, value);
+        if (result == null) {
+            writeError(writer, index, "Курс обмена не найден");
+            return;
+        }
+
+        writer.beginObject();
+        writer.name("index").value(index);
+        JsonWriters.writeExchangeResultFields(writer, result);
+        writer.endObject();
+    }
+
+    private static String nextScalar(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private void writeError(JsonWriter writer, int index, String message) throws IOException {
+        writer.beginObject();
+        writer.name("index").value(index);
+        writer.name("message").value(message);
+        writer.endObject();
+    }
+}
@@ -0,0 +1,87 @@
+package ru.vatolin.currencyexchange.controller;
+
+import com.google.gson.stream.JsonWriter;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.vatolin.currencyexchange.json.JsonWriters;
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+import ru.vatolin.currencyexchange.metrics.Metrics;
+import ru.vatolin.currencyexchange.service.RateBook;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@WebServlet(urlPatterns = "/api/changes", asyncSupported = true)
+public class ChangesServlet extends HttpServlet {
+    private static final LatencyHistogram GET_CHANGES = Metrics.http("GET /api/changes");
+    private static final long MAX_WAIT_MILLIS = 30_000;
+
+    private RateBook rateBook;
+
+    @Override
+    public void init() {
+        rateBook = DatabaseContextListener.rateBook(getServletContext());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+
+        long start = System.nanoTime();
+        String runId;
+        long since;
+        long waitMillis;
+        try {
+            String token = request.getParameter("since");
+            int separator = token == null ? -1 : token.lastIndexOf(':');
+            runId = separator < 0 ? null : token.substring(0, separator);
+            since = Long.parseLong(separator < 0 ? token : token.substring(separator + 1));
+            String wait = request.getParameter("wait");
+            waitMillis = wait == null ? 0 : Math.min(MAX_WAIT_MILLIS, Long.parseLong(wait));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\": \"Некорректное значение since или wait\"}");
+            GET_CHANGES.record(System.nanoTime() - start, false);
+            return;
+        }
+
+        CompletableFuture<Void> next = rateBook.nextChange();
+        if (waitMillis <= 0 || !request.isAsyncSupported() || !rateBook.getRunId().equals(runId)
+                || rateBook.snapshot().getVersion() > since) {
+            try {
+                writeChanges(response, runId, since);
+            } finally {
+                GET_CHANGES.record(System.nanoTime() - start, response.getStatus() >= 500);
+            }
+            return;
+        }
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        next.copy().completeOnTimeout(null, waitMillis, TimeUnit.MILLISECONDS).whenComplete((ignored, error) ->
+                async.start(() -> {
+                    try {
+                        writeChanges(response, runId, since);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Ошибка: " + e.getMessage());
+                    } finally {
+                        GET_CHANGES.record(System.nanoTime() - start, response.getStatus() >= 500);
+                        async.complete();
+                    }
+                }));
+    }
+
+    private void writeChanges(HttpServletResponse response, String runId, long since) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        JsonWriter writer = JsonWriters.open(response.getWriter());
+        JsonWriters.writeChangeSet(writer, rateBook.changesSince(runId, since));
+        writer.flush();
+    }
+}
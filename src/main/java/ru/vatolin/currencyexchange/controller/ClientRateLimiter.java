@@ -0,0 +1,65 @@
+package ru.vatolin.currencyexchange.controller;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+final class ClientRateLimiter {
+    static final long ALLOWED = 0;
+
+    static final int MAX_CLIENTS = 10_000;
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final ConcurrentHashMap<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder rejected = new LongAdder();
+
+    ClientRateLimiter(double requestsPerSecond, int burst) {
+        intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        toleranceNanos = intervalNanos * burst;
+    }
+
+    long acquire(String client, long now) {
+        AtomicLong arrival = arrivals.get(client);
+        if (arrival == null) {
+            if (arrivals.size() >= MAX_CLIENTS) {
+                evictIdle(now);
+            }
+            arrival = arrivals.computeIfAbsent(client, key -> new AtomicLong(now));
+        }
+        while (true) {
+            long theoretical = arrival.get();
+            long next = Math.max(theoretical, now) + intervalNanos;
+            long ahead = next - now;
+            if (ahead > toleranceNanos) {
+                rejected.increment();
+                return ahead - toleranceNanos;
+            }
+            if (arrival.compareAndSet(theoretical, next)) {
+                return ALLOWED;
+            }
+        }
+    }
+
+    int getClients() {
+        return arrivals.size();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+
+    private void evictIdle(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            arrivals.values().removeIf(arrival -> arrival.get() <= now);
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
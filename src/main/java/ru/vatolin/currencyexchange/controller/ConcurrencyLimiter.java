@@ -0,0 +1,143 @@
+package ru.vatolin.currencyexchange.controller;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class ConcurrencyLimiter {
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final double BACKOFF = 0.8;
+
+    private final int maxLimit;
+    private final int queueDepth;
+    private final long targetNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final LongAdder rejected = new LongAdder();
+
+    private final LatencySource latency;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private volatile long seenNanos;
+    private volatile long seenCount;
+    private volatile boolean saturated;
+    private volatile int limit;
+
+    ConcurrencyLimiter(int maxLimit, int queueDepth, long targetNanos, LatencySource latency) {
+        this.maxLimit = maxLimit;
+        this.queueDepth = queueDepth;
+        this.targetNanos = targetNanos;
+        this.latency = latency;
+        this.limit = maxLimit;
+        this.seenNanos = latency.nanos();
+        this.seenCount = latency.count();
+    }
+
+    boolean acquire(long timeoutNanos) throws InterruptedException {
+        if (tryAcquire()) {
+            return true;
+        }
+        if (waiting.incrementAndGet() > queueDepth || timeoutNanos <= 0) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            lock.lock();
+            try {
+                long remaining = timeoutNanos;
+                while (!tryAcquire()) {
+                    if (remaining <= 0) {
+                        rejected.increment();
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    boolean release() {
+        inFlight.decrementAndGet();
+        boolean overloaded = adapt(System.nanoTime());
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return overloaded;
+    }
+
+    void backOff() {
+        limit = Math.max(1, (int) (limit * BACKOFF));
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    int getWaiting() {
+        return waiting.get();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+
+    boolean adapt(long now) {
+        long start = windowStart.get();
+        if (now - start < WINDOW_NANOS || !windowStart.compareAndSet(start, now)) {
+            return false;
+        }
+        long nanos = latency.nanos();
+        long count = latency.count();
+        long samples = count - seenCount;
+        long total = nanos - seenNanos;
+        seenNanos = nanos;
+        seenCount = count;
+
+        boolean overloaded = samples > 0 && total >= 0 && total / samples > targetNanos;
+        if (overloaded) {
+            backOff();
+        } else if (saturated || limit < maxLimit) {
+            limit = Math.min(maxLimit, limit + Math.max(1, limit / 10));
+        }
+        saturated = false;
+        return overloaded;
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                saturated = true;
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    interface LatencySource {
+        long nanos();
+
+        long count();
+    }
+}
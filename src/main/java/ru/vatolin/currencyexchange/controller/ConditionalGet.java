@@ -0,0 +1,55 @@
+package ru.vatolin.currencyexchange.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+final class ConditionalGet {
+    private ConditionalGet() {
+    }
+
+    static boolean notModified(HttpServletRequest request, HttpServletResponse response, long digest) {
+        return notModified(request, response, digest, "");
+    }
+
+    static boolean notModified(HttpServletRequest request, HttpServletResponse response, long digest, String variant) {
+        String etag = "\"" + Long.toHexString(digest) + variant + "\"";
+        response.setHeader("ETag", etag);
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch == null || !matches(ifNoneMatch, etag)) {
+            return false;
+        }
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    private static boolean matches(String header, String etag) {
+        int start = 0;
+        int length = header.length();
+        while (start < length) {
+            int end = header.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            int from = start;
+            int to = end;
+            while (from < to && header.charAt(from) == ' ') {
+                from++;
+            }
+            while (to > from && header.charAt(to - 1) == ' ') {
+                to--;
+            }
+            if (to - from >= 2 && header.startsWith("W/", from)) {
+                from += 2;
+            }
+
+            if ((to - from == 1 && header.charAt(from) == '*')
+                    || (to - from == etag.length() && header.startsWith(etag, from))) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.vatolin.currencyexchange.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+final class ContentNegotiation {
+    static final String JSON = "application/json";
+    static final String MESSAGE_PACK = "application/msgpack";
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final String[] MESSAGE_PACK_TYPES = {MESSAGE_PACK, "application/x-msgpack", "application/vnd.msgpack"};
+
+    private ContentNegotiation() {
+    }
+
+    static String mediaType(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        double json = quality(accept, JSON);
+        double messagePack = 0;
+        for (String type : MESSAGE_PACK_TYPES) {
+            messagePack = Math.max(messagePack, quality(accept, type));
+        }
+        return messagePack > json ? MESSAGE_PACK : JSON;
+    }
+
+    static String encoding(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double gzip = quality(acceptEncoding, GZIP);
+        double deflate = quality(acceptEncoding, DEFLATE);
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    private static double quality(String header, String token) {
+        double exact = -1;
+        double wildcard = -1;
+        int start = 0;
+        int length = header.length();
+        while (start < length) {
+            int end = header.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int parameters = header.indexOf(';', start);
+            int nameEnd = parameters >= 0 && parameters < end ? parameters : end;
+            String name = header.substring(start, nameEnd).trim();
+            double q = parameters >= 0 && parameters < end ? parseQuality(header.substring(parameters + 1, end)) : 1;
+
+            if (name.equalsIgnoreCase(token)) {
+                exact = Math.max(exact, q);
+            } else if (name.equals("*") || name.equals("*/*")
+                    || (name.endsWith("/*") && token.regionMatches(true, 0, name, 0, name.length() - 1))) {
+                wildcard = Math.max(wildcard, q);
+            }
+            start = end + 1;
+        }
+        return exact >= 0 ? exact : Math.max(wildcard, 0);
+    }
+
+    private static double parseQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.length() > 2 && (trimmed.startsWith("q=") || trimmed.startsWith("Q="))) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -1,57 +1,106 @@
 package ru.vatolin.currencyexchange.controller;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import ru.vatolin.currencyexchange.json.JsonWriters;
+import ru.vatolin.currencyexchange.json.PayloadCache;
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+import ru.vatolin.currencyexchange.metrics.Metrics;
 import ru.vatolin.currencyexchange.model.Currency;
-import ru.vatolin.currencyexchange.service.CurrencyDao;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+import ru.vatolin.currencyexchange.service.RateBook;
+import ru.vatolin.currencyexchange.service.RateBookSnapshot;
 
 import java.io.IOException;
 import java.util.List;
 
-@WebServlet(urlPatterns = "/api/currencies/*")
+@WebServlet(urlPatterns = "/api/currencies/*", asyncSupported = true)
 public class CurrenciesServlet extends HttpServlet {
-    private final CurrencyDao currencyDao = new CurrencyDao();
+    private static final LatencyHistogram GET_CURRENCIES = Metrics.http("GET /api/currencies");
+    private static final LatencyHistogram GET_CURRENCY = Metrics.http("GET /api/currencies/{code}");
+    private static final LatencyHistogram POST_CURRENCY = Metrics.http("POST /api/currencies");
+
+    private RateBook rateBook;
+    private final PayloadCache<List<Currency>> currenciesPayload = new PayloadCache<>(JsonWriters::encodeCurrencies);
+
+    @Override
+    public void init() {
+        rateBook = DatabaseContextListener.rateBook(getServletContext());
+    }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
 
+        long start = System.nanoTime();
+        LatencyHistogram route = GET_CURRENCIES;
         try {
             String pathInfo = request.getPathInfo();
-            if (pathInfo == null || pathInfo.equals("/")) {
-                List<Currency> currencies = currencyDao.getAllCurrencies();
+            RateBookSnapshot snapshot = rateBook.snapshot();
+            if ((pathInfo == null || pathInfo.equals("/")) && Pagination.requested(request)) {
+                int limit;
+                int after;
+                try {
+                    limit = Pagination.limit(request);
+                    after = Pagination.after(request);
+                } catch (NumberFormatException e) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    response.getWriter().write("{\"message\": \"Некорректное значение limit или after\"}");
+                    return;
+                }
+                List<Currency> page = rateBook.listCurrencies(snapshot, after, limit);
+                Pagination.linkNext(request, response, limit, page.size(), page.isEmpty() ? after : page.get(page.size() - 1).getId());
                 response.setStatus(HttpServletResponse.SC_OK);
-                response.getWriter().write(new Gson().toJson(currencies));
+                JsonWriter writer = JsonWriters.open(response.getWriter());
+                JsonWriters.writeCurrencies(writer, page);
+                writer.flush();
+            } else if (pathInfo == null || pathInfo.equals("/")) {
+                if (ConditionalGet.notModified(request, response, snapshot.getDigest())) {
+                    return;
+                }
+                byte[] payload = currenciesPayload.get(snapshot.getCurrencies());
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentLength(payload.length);
+                response.getOutputStream().write(payload);
             } else {
-                String code = pathInfo.substring(1).toUpperCase();
-                if (code.isEmpty()) {
+                route = GET_CURRENCY;
+                if (pathInfo.length() == 1) {
                     response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     response.getWriter().write("{\"message\": \"Код валюты отсутствует\"}");
                     return;
                 }
 
-                Currency currency = currencyDao.getCurrencyByCode(code);
+                int code = pathInfo.length() == 1 + CurrencyCode.LENGTH ? CurrencyCode.pack(pathInfo, 1) : CurrencyCode.NONE;
+                Currency currency = snapshot.getCurrency(code);
                 if (currency == null) {
                     response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                     response.getWriter().write("{\"message\": \"Валюта не найдена\"}");
-                } else {
-                    response.getWriter().write(new Gson().toJson(currency));
+                } else if (!ConditionalGet.notModified(request, response, snapshot.getDigest())) {
                     response.setStatus(HttpServletResponse.SC_OK);
+                    writeCurrency(response, currency);
                 }
             }
         } catch (Exception e) {
+            Metrics.recordException(e);
+            System.err.println("Ошибка: " + e.getMessage());
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\": \"Ошибка на сервере\"}");
+        } finally {
+            route.record(System.nanoTime() - start, response.getStatus() >= 500);
         }
     }
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        AsyncDispatch.run(request, response, POST_CURRENCY, () -> createCurrency(request, response));
+    }
+
+    private void createCurrency(HttpServletRequest request, HttpServletResponse response) throws IOException {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
 
@@ -66,21 +115,35 @@ public class CurrenciesServlet extends HttpServlet {
                 return;
             }
 
-            code = code.toUpperCase();
+            int codeKey = CurrencyCode.pack(code);
+            if (codeKey == CurrencyCode.NONE) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"message\": \"Код валюты должен состоять из трёх символов\"}");
+                return;
+            }
+            code = CurrencyCode.unpack(codeKey);
 
-            Currency existingCurrency = currencyDao.getCurrencyByCode(code);
+            Currency existingCurrency = rateBook.snapshot().getCurrency(codeKey);
             if (existingCurrency != null) {
                 response.setStatus(HttpServletResponse.SC_CONFLICT);
                 response.getWriter().write("{\"message\": \"Валюта с таким кодом уже существует\"}");
                 return;
             }
 
-            Currency newCurrency = currencyDao.addCurrency(new Currency(0, code, name, sign));
+            Currency newCurrency = rateBook.addCurrency(new Currency(0, code, name, sign));
             response.setStatus(HttpServletResponse.SC_CREATED);
-            response.getWriter().write(new Gson().toJson(newCurrency));
+            writeCurrency(response, newCurrency);
         } catch (Exception e) {
+            Metrics.recordException(e);
+            System.err.println("Ошибка: " + e.getMessage());
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\": \"Ошибка на сервере\"}");
         }
     }
+
+    private void writeCurrency(HttpServletResponse response, Currency currency) throws IOException {
+        JsonWriter writer = JsonWriters.open(response.getWriter());
+        JsonWriters.writeCurrency(writer, currency);
+        writer.flush();
+    }
 }
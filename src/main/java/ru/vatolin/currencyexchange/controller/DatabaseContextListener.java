@@ -0,0 +1,100 @@
+package ru.vatolin.currencyexchange.controller;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+import ru.vatolin.currencyexchange.service.ConnectionPool;
+import ru.vatolin.currencyexchange.service.DatabaseConfig;
+import ru.vatolin.currencyexchange.service.DatabaseConnection;
+import ru.vatolin.currencyexchange.service.JournalConfig;
+import ru.vatolin.currencyexchange.service.RateBook;
+import ru.vatolin.currencyexchange.service.RateFollower;
+import ru.vatolin.currencyexchange.service.ReplicationConfig;
+import ru.vatolin.currencyexchange.service.StorageConfig;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+
+@WebListener
+public class DatabaseContextListener implements ServletContextListener {
+    private static final String POOL_MBEAN_NAME = "ru.vatolin.currencyexchange:type=ConnectionPool";
+    private static final String RATE_BOOK_ATTRIBUTE = RateBook.class.getName();
+
+    private RateFollower follower;
+    private RateBook rateBook;
+
+    public static RateBook rateBook(ServletContext context) {
+        RateBook rateBook = (RateBook) context.getAttribute(RATE_BOOK_ATTRIBUTE);
+        return rateBook != null ? rateBook : RateBook.getInstance();
+    }
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        StorageConfig storage = StorageConfig.from(context::getInitParameter);
+        DatabaseConfig database = DatabaseConfig.from(context::getInitParameter);
+        if (storage.usesDatabase()) {
+            try {
+                ConnectionPool pool = DatabaseConnection.init(database);
+                context.setAttribute(ConnectionPool.class.getName(), pool);
+                registerMBean(pool);
+            } catch (SQLException e) {
+                throw new RuntimeException("Не удалось открыть базу данных", e);
+            }
+        } else {
+            DatabaseConnection.initWithoutPool(database);
+        }
+        rateBook = RateBook.open(storage, JournalConfig.from(context::getInitParameter));
+        context.setAttribute(RATE_BOOK_ATTRIBUTE, rateBook);
+
+        ReplicationConfig replication = ReplicationConfig.from(context::getInitParameter);
+        if (replication.isFollower()) {
+            follower = new RateFollower(rateBook, replication);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (follower != null) {
+            follower.close();
+            follower = null;
+        }
+        unregisterMBean();
+        if (rateBook != null) {
+            event.getServletContext().removeAttribute(RATE_BOOK_ATTRIBUTE);
+            rateBook.close();
+            rateBook = null;
+        }
+        RateBook.shutdown();
+        DatabaseConnection.shutdown();
+    }
+
+    private void registerMBean(ConnectionPool pool) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(POOL_MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(pool, name);
+        } catch (JMException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(POOL_MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+        }
+    }
+}
@@ -1,27 +1,74 @@
 package ru.vatolin.currencyexchange.controller;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import ru.vatolin.currencyexchange.model.Currency;
-import ru.vatolin.currencyexchange.service.CurrencyDao;
+import ru.vatolin.currencyexchange.json.Compression;
+import ru.vatolin.currencyexchange.json.JsonWriters;
+import ru.vatolin.currencyexchange.json.MessagePackWriter;
+import ru.vatolin.currencyexchange.json.PayloadCache;
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+import ru.vatolin.currencyexchange.metrics.Metrics;
+import ru.vatolin.currencyexchange.model.BulkUpsertResult;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
 import ru.vatolin.currencyexchange.model.ExchangeRate;
-import ru.vatolin.currencyexchange.service.ExchangeRateDao;
+import ru.vatolin.currencyexchange.model.ExchangeResult;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+import ru.vatolin.currencyexchange.service.RateBook;
+import ru.vatolin.currencyexchange.service.RateBookSnapshot;
+import ru.vatolin.currencyexchange.service.RateSeries;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.util.*;
 
-@WebServlet(urlPatterns = "/api/exchangeRates/*")
+@WebServlet(urlPatterns = "/api/exchangeRates/*", asyncSupported = true)
 public class ExchangeRatesServlet extends HttpServlet {
-    private final ExchangeRateDao exchangeRateDao = new ExchangeRateDao();
-    private final CurrencyDao currencyDao = new CurrencyDao();
+    private static final LatencyHistogram GET_RATES = Metrics.http("GET /api/exchangeRates");
+    private static final LatencyHistogram GET_RATE = Metrics.http("GET /api/exchangeRates/{pair}");
+    private static final LatencyHistogram GET_HISTORY = Metrics.http("GET /api/exchangeRates/{pair}/history");
+    private static final LatencyHistogram GET_STREAM = Metrics.http("GET /api/exchangeRates/stream");
+    private static final LatencyHistogram GET_EXCHANGE = Metrics.http("GET /api/exchangeRates/exchange");
+    private static final LatencyHistogram POST_RATE = Metrics.http("POST /api/exchangeRates");
+    private static final LatencyHistogram POST_BATCH = Metrics.http("POST /api/exchangeRates/exchange/batch");
+    private static final LatencyHistogram POST_BULK = Metrics.http("POST /api/exchangeRates/bulk");
+    private static final LatencyHistogram PATCH_RATE = Metrics.http("PATCH /api/exchangeRates/{pair}");
+
+    private static final int MIN_COMPRESSED_LENGTH = 1024;
+
+    private RateBook rateBook;
+    private final PayloadCache<List<ExchangeRate>> ratesPayload = new PayloadCache<>(JsonWriters::encodeExchangeRates);
+    private final PayloadCache<RateBookSnapshot> ratesMessagePack = new PayloadCache<>(
+            snapshot -> MessagePackWriter.encodeRateMatrix(snapshot.getCurrencies(), snapshot.getExchangeRates()));
+    private final PayloadCache<byte[]> jsonGzip = new PayloadCache<>(Compression::gzip);
+    private final PayloadCache<byte[]> jsonDeflate = new PayloadCache<>(Compression::deflate);
+    private final PayloadCache<byte[]> messagePackGzip = new PayloadCache<>(Compression::gzip);
+    private final PayloadCache<byte[]> messagePackDeflate = new PayloadCache<>(Compression::deflate);
+    private BatchExchangeHandler batchExchangeHandler;
+    private RateStream rateStream;
+
+    @Override
+    public void init() {
+        rateBook = DatabaseContextListener.rateBook(getServletContext());
+        batchExchangeHandler = new BatchExchangeHandler(rateBook);
+        rateStream = RateStream.fromSystem(rateBook, ratesPayload);
+    }
+
+    @Override
+    public void destroy() {
+        rateStream.close();
+    }
 
     @Override
     protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
@@ -36,69 +83,133 @@ public class ExchangeRatesServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        
-        try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo == null || pathInfo.equals("/")) {
-                List<ExchangeRate> rates = exchangeRateDao.getAllExchangeRates();
-                response.setStatus(HttpServletResponse.SC_OK);
-                response.getWriter().write(new Gson().toJson(rates));
-            } else if (pathInfo.startsWith("/exchange")) {
-                handleCurrencyExchange(request, response);
-            } else {
-                String[] codes = pathInfo.substring(1).split("(?<=\\G.{3})");
-                if (codes.length != 2) {
-                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                    response.getWriter().write("{\"message\": \"Неверный формат валютной пары\"}");
-                    return;
-                }
 
-                ExchangeRate rate = exchangeRateDao.getExchangeRate(codes[0], codes[1]);
-                if (rate == null) {
-                    ExchangeRate reverseRate = exchangeRateDao.getExchangeRate(codes[1], codes[0]);
-                    if (reverseRate != null) {
-                        double invertedRate = 1.0/ reverseRate.getRate();
-
-                        Currency baseCurrency = currencyDao.getCurrencyByCode(codes[0]);
-                        Currency targetCurrency = currencyDao.getCurrencyByCode(codes[1]);
-                        rate = new ExchangeRate(
-                                0,
-                                baseCurrency,
-                                targetCurrency,
-                                invertedRate
-                        );
+        long start = System.nanoTime();
+        LatencyHistogram route = GET_RATES;
+        boolean aborted = false;
+        try {
+            long path = RatePath.match(request.getPathInfo());
+            RateBookSnapshot snapshot = rateBook.snapshot();
+
+            switch (RatePath.route(path)) {
+                case LIST:
+                    if (Pagination.requested(request) || request.getParameter("base") != null
+                            || request.getParameter("target") != null || rateBook.isReadThrough()) {
+                        handleFilteredList(request, response, snapshot);
+                    } else {
+                        handleList(request, response, snapshot);
                     }
-                } else {
-                    ExchangeRate usdToBase = exchangeRateDao.getExchangeRate("USD", codes[0]);
-                    ExchangeRate usdToTarget = exchangeRateDao.getExchangeRate("USD", codes[1]);
-
-                    if (usdToBase != null && usdToTarget != null) {
-                        double calculatedRate = usdToTarget.getRate() / usdToBase.getRate();
-
-                        Currency baseCurrency = currencyDao.getCurrencyByCode(codes[0]);
-                        Currency targetCurrency = currencyDao.getCurrencyByCode(codes[1]);
-                        rate = new ExchangeRate(
-                                0,
-                                baseCurrency,
-                                targetCurrency,
-                                calculatedRate
-                        );
+                    break;
+                case STREAM:
+                    route = GET_STREAM;
+                    handleStream(request, response);
+                    break;
+                case EXCHANGE:
+                    route = GET_EXCHANGE;
+                    handleCurrencyExchange(request, response);
+                    break;
+                case HISTORY:
+                    route = GET_HISTORY;
+                    handleHistory(request, response, snapshot, RatePath.baseCode(path), RatePath.targetCode(path));
+                    break;
+                case PAIR:
+                    route = GET_RATE;
+                    ExchangeRate rate = rateBook.findRate(snapshot, RatePath.baseCode(path), RatePath.targetCode(path));
+                    if (rate == null) {
+                        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                        response.getWriter().write("{\"message\": \"Обменный курс не найден\"}");
+                    } else if (!ConditionalGet.notModified(request, response, snapshot.getDigest())) {
+                        response.setStatus(HttpServletResponse.SC_OK);
+                        writeExchangeRate(response, rate);
                     }
-                }
-
-                if (rate == null) {
-                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                    response.getWriter().write("{\"message\": \"Обменный курс не найден\"}");
-                } else {
-                    response.setStatus(HttpServletResponse.SC_OK);
-                    response.getWriter().write(new Gson().toJson(rate));
-                }
+                    break;
+                default:
+                    route = GET_RATE;
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    response.getWriter().write("{\"message\": \"Неверный формат валютной пары\"}");
+                    break;
             }
         } catch (Exception e) {
+            Metrics.recordException(e);
+            System.err.println("Ошибка: " + e.getMessage());
+            if (response.isCommitted()) {
+                aborted = true;
+                throw new IOException("Передача ответа прервана", e);
+            }
+            response.resetBuffer();
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\": \"Ошибка сервера\"}");
+        } finally {
+            route.record(System.nanoTime() - start, aborted || response.getStatus() >= 500);
+        }
+    }
+
+    private void handleList(HttpServletRequest request, HttpServletResponse response, RateBookSnapshot snapshot)
+            throws IOException {
+        boolean messagePack = ContentNegotiation.mediaType(request).equals(ContentNegotiation.MESSAGE_PACK);
+        byte[] payload = messagePack ? ratesMessagePack.get(snapshot) : ratesPayload.get(snapshot.getExchangeRates());
+        String encoding = payload.length >= MIN_COMPRESSED_LENGTH ? ContentNegotiation.encoding(request) : null;
+
+        response.setHeader("Vary", "Accept, Accept-Encoding");
+        if (messagePack) {
+            response.setCharacterEncoding(null);
+            response.setContentType(ContentNegotiation.MESSAGE_PACK);
+        }
+        String variant = (messagePack ? "-msgpack" : "") + (encoding != null ? "-" + encoding : "");
+        if (ConditionalGet.notModified(request, response, snapshot.getDigest(), variant)) {
+            return;
+        }
+
+        if (ContentNegotiation.GZIP.equals(encoding)) {
+            payload = (messagePack ? messagePackGzip : jsonGzip).get(payload);
+        } else if (ContentNegotiation.DEFLATE.equals(encoding)) {
+            payload = (messagePack ? messagePackDeflate : jsonDeflate).get(payload);
+        }
+        if (encoding != null) {
+            response.setHeader("Content-Encoding", encoding);
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentLength(payload.length);
+        response.getOutputStream().write(payload);
+    }
+
+    private void handleFilteredList(HttpServletRequest request, HttpServletResponse response, RateBookSnapshot snapshot)
+            throws IOException {
+        int limit;
+        int after;
+        try {
+            limit = Pagination.limit(request);
+            after = Pagination.after(request);
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\": \"Некорректное значение limit или after\"}");
+            return;
+        }
+
+        String base = request.getParameter("base");
+        String target = request.getParameter("target");
+        if ((base != null && CurrencyCode.pack(base) == CurrencyCode.NONE)
+                || (target != null && CurrencyCode.pack(target) == CurrencyCode.NONE)) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\": \"Некорректный код валюты\"}");
+            return;
         }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        if (limit == Pagination.UNPAGED) {
+            JsonWriter writer = JsonWriters.open(response.getWriter());
+            writer.beginArray();
+            rateBook.streamRates(snapshot, base, target, rate -> JsonWriters.writeExchangeRate(writer, rate));
+            writer.endArray();
+            writer.flush();
+            return;
+        }
+
+        List<ExchangeRate> page = rateBook.listRates(snapshot, after, limit, base, target);
+        Pagination.linkNext(request, response, limit, page.size(), page.isEmpty() ? after : page.get(page.size() - 1).getId());
+        JsonWriter writer = JsonWriters.open(response.getWriter());
+        JsonWriters.writeExchangeRates(writer, page);
+        writer.flush();
     }
 
     private void handleCurrencyExchange(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -112,73 +223,147 @@ public class ExchangeRatesServlet extends HttpServlet {
             return;
         }
 
+        long at;
         try {
-            double amount = Double.parseDouble(amountStr);
-
-            ExchangeRate rate = exchangeRateDao.getExchangeRate(from.toUpperCase(), to.toUpperCase());
-
-            double rateValue;
-            Currency baseCurrency;
-            Currency targetCurrency;
-
-            if (rate != null) {
-                rateValue = rate.getRate();
-                baseCurrency = currencyDao.getCurrencyByCode(from.toUpperCase());
-                targetCurrency = currencyDao.getCurrencyByCode(to.toUpperCase());
-            } else {
-                ExchangeRate reverseRate = exchangeRateDao.getExchangeRate(to.toUpperCase(), from.toUpperCase());
-                if (reverseRate != null) {
-                    rateValue = 1.0 / reverseRate.getRate();
-                    baseCurrency = currencyDao.getCurrencyByCode(from.toUpperCase());
-                    targetCurrency = currencyDao.getCurrencyByCode(to.toUpperCase());
-                } else {
-                    ExchangeRate rateFromUSD = exchangeRateDao.getExchangeRate("USD", from.toUpperCase());
-                    ExchangeRate rateToUSD = exchangeRateDao.getExchangeRate("USD", to.toUpperCase());
-
-                    if (rateFromUSD != null && rateToUSD != null) {
-                        rateValue = rateToUSD.getRate() / rateFromUSD.getRate();
-                        baseCurrency = currencyDao.getCurrencyByCode(from.toUpperCase());
-                        targetCurrency = currencyDao.getCurrencyByCode(to.toUpperCase());
-                    } else {
-                        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                        response.getWriter().write("{\"message\": \"Курс обмена не найден\"}");
-                        return;
-                    }
-                }
-            }
+            at = parseTimestamp(request.getParameter("at"), Long.MIN_VALUE);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\": \"Некорректное значение at\"}");
+            return;
+        }
 
-            double convertedAmount = rateValue * amount;
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("baseCurrency", Map.of(
-                    "id", baseCurrency.getId(),
-                    "name", baseCurrency.getFullName(),
-                    "code", baseCurrency.getCode(),
-                    "sign", baseCurrency.getSign()
-            ));
-            result.put("targetCurrency", Map.of(
-                    "id", targetCurrency.getId(),
-                    "name", targetCurrency.getFullName(),
-                    "code", targetCurrency.getCode(),
-                    "sign", targetCurrency.getSign()
-            ));
-            result.put("rate", rateValue);
-            result.put("amount", amount);
-            result.put("convertedAmount", convertedAmount);
+        try {
+            FixedDecimal amount = FixedDecimal.parse(amountStr);
+
+            ExchangeResult exchange = at == Long.MIN_VALUE
+                    ? rateBook.exchange(from, to, amount)
+                    : rateBook.exchangeAt(rateBook.snapshot(), from, to, amount, at);
+            if (exchange == null) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.getWriter().write("{\"message\": \"Курс обмена не найден\"}");
+                return;
+            }
 
             response.setStatus(HttpServletResponse.SC_OK);
-            response.getWriter().write(new Gson().toJson(result));
+            JsonWriter writer = JsonWriters.open(response.getWriter());
+            JsonWriters.writeExchangeResult(writer, exchange);
+            writer.flush();
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"message\": \"Некорректное значение amount\"}");
         } catch (Exception e) {
+            Metrics.recordException(e);
+            System.err.println("Ошибка: " + e.getMessage());
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\": \"Ошибка сервера\"}");
         }
     }
 
+    private void handleStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long[] pairs = null;
+        String pairsParam = request.getParameter("pairs");
+        if (pairsParam != null && !pairsParam.isBlank()) {
+            String[] codes = pairsParam.split(",");
+            pairs = new long[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                String pair = codes[i].trim();
+                int base = pair.length() == 2 * CurrencyCode.LENGTH ? CurrencyCode.pack(pair, 0) : CurrencyCode.NONE;
+                int target = CurrencyCode.pack(pair, CurrencyCode.LENGTH);
+                if (base == CurrencyCode.NONE || target == CurrencyCode.NONE) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    response.getWriter().write("{\"message\": \"Неверный формат валютной пары\"}");
+                    return;
+                }
+                pairs[i] = CurrencyCode.pairKey(base, target);
+            }
+            Arrays.sort(pairs);
+        }
+
+        if (!request.isAsyncSupported()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.getWriter().write("{\"message\": \"Поток курсов недоступен\"}");
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        if (!rateStream.subscribe(async, pairs)) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            async.complete();
+        }
+    }
+
+    private void handleHistory(HttpServletRequest request, HttpServletResponse response,
+                               RateBookSnapshot snapshot, int base, int target) throws IOException {
+        long from;
+        long to;
+        try {
+            from = parseTimestamp(request.getParameter("from"), Long.MIN_VALUE);
+            to = parseTimestamp(request.getParameter("to"), Long.MAX_VALUE);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\": \"Некорректный интервал времени\"}");
+            return;
+        }
+
+        ExchangeRate rate = snapshot.getExchangeRate(base, target);
+        if (rate == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            response.getWriter().write("{\"message\": \"Обменный курс не найден\"}");
+            return;
+        }
+
+        RateSeries series = rateBook.history().getSeries(rate.getBaseCurrency().getId(), rate.getTargetCurrency().getId());
+        response.setStatus(HttpServletResponse.SC_OK);
+        JsonWriter writer = JsonWriters.open(response.getWriter());
+        JsonWriters.writeRateHistory(writer, rate, series, from, to);
+        writer.flush();
+    }
+
+    private static long parseTimestamp(String value, long defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        String trimmed = value.trim();
+        if (trimmed.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(trimmed);
+        }
+        return Instant.parse(trimmed).toEpochMilli();
+    }
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        RatePath.Route path = RatePath.route(RatePath.match(request.getPathInfo()));
+        AsyncDispatch.run(request, response, postRoute(path), () -> handlePost(request, response, path));
+    }
+
+    private static LatencyHistogram postRoute(RatePath.Route path) {
+        switch (path) {
+            case EXCHANGE_BATCH:
+                return POST_BATCH;
+            case BULK:
+                return POST_BULK;
+            default:
+                return POST_RATE;
+        }
+    }
+
+    private void handlePost(HttpServletRequest request, HttpServletResponse response, RatePath.Route path) throws IOException {
+        if (path == RatePath.Route.EXCHANGE_BATCH) {
+            batchExchangeHandler.handle(request, response);
+            return;
+        }
+        if (path == RatePath.Route.BULK) {
+            handleBulkUpsert(request, response);
+            return;
+        }
+
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
 
@@ -193,29 +378,98 @@ public class ExchangeRatesServlet extends HttpServlet {
                 return;
             }
 
-            double rate = Double.parseDouble(rateStr);
+            FixedDecimal rate = parseRate(rateStr);
+            if (rate == null) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"message\": \"Некоректный параметр rate\"}");
+                return;
+            }
 
-            ExchangeRate existing = exchangeRateDao.getExchangeRate(baseCode, targetCode);
+            ExchangeRate existing = rateBook.snapshot().getExchangeRate(baseCode, targetCode);
             if (existing != null) {
                 response.setStatus(HttpServletResponse.SC_CONFLICT);
                 response.getWriter().write("{\"message\": \"Обменный курс уже существует\"}");
                 return;
             }
 
-            ExchangeRate newRate = exchangeRateDao.addExchangeRate(baseCode, targetCode, rate);
+            ExchangeRate newRate = rateBook.addExchangeRate(baseCode, targetCode, rate);
             if (newRate == null) {
                 throw new RuntimeException("Ошибка при добавлении обменного курса");
             }
 
             response.setStatus(HttpServletResponse.SC_CREATED);
-            response.getWriter().write(new Gson().toJson(newRate));
+            writeExchangeRate(response, newRate);
         } catch (Exception e) {
+            Metrics.recordException(e);
+            System.err.println("Ошибка: " + e.getMessage());
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"message\": \"Ошибка сервера\"}");
+        }
+    }
+
+    private void handleBulkUpsert(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        List<RateUpdate> updates = new ArrayList<>();
+        try {
+            JsonReader reader = new JsonReader(request.getReader());
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String baseCode = null;
+                String targetCode = null;
+                FixedDecimal rate = null;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "baseCurrencyCode":
+                            baseCode = reader.nextString();
+                            break;
+                        case "targetCurrencyCode":
+                            targetCode = reader.nextString();
+                            break;
+                        case "rate":
+                            try {
+                                rate = FixedDecimal.parse(reader.nextString());
+                            } catch (NumberFormatException e) {
+                                rate = null;
+                            }
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+                updates.add(new RateUpdate(baseCode, targetCode, rate));
+            }
+            reader.endArray();
+        } catch (IOException | IllegalStateException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\": \"Некорректное тело запроса\"}");
+            return;
+        }
+
+        try {
+            BulkUpsertResult result = rateBook.upsertExchangeRates(updates);
+            response.setStatus(HttpServletResponse.SC_OK);
+            JsonWriter writer = JsonWriters.open(response.getWriter());
+            JsonWriters.writeBulkUpsertResult(writer, result);
+            writer.flush();
+        } catch (SQLException e) {
+            Metrics.recordException(e);
+            System.err.println("Ошибка: " + e.getMessage());
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\": \"Ошибка сервера\"}");
         }
     }
 
     protected void doPatch(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        AsyncDispatch.run(request, response, PATCH_RATE, () -> updateRate(request, response));
+    }
+
+    private void updateRate(HttpServletRequest request, HttpServletResponse response) throws IOException {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
 
@@ -227,15 +481,15 @@ public class ExchangeRatesServlet extends HttpServlet {
             return;
         }
 
-        String[] currencies = pathInfo.substring(1).split("(?<=\\G.{3})");
-        if (currencies.length != 2) {
+        long path = RatePath.match(pathInfo);
+        if (RatePath.route(path) != RatePath.Route.PAIR) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"message\": \"Неверный формат валютной пары\"}");
             return;
         }
 
-        String baseCurrencyCode = currencies[0];
-        String targetCurrencyCode = currencies[1];
+        String baseCurrencyCode = CurrencyCode.unpack(RatePath.baseCode(path));
+        String targetCurrencyCode = CurrencyCode.unpack(RatePath.targetCode(path));
 
         String rateParam = request.getParameter("rate");
         if (rateParam == null) {
@@ -256,17 +510,15 @@ public class ExchangeRatesServlet extends HttpServlet {
             return;
         }
 
-        double rate;
-        try {
-            rate = Double.parseDouble(rateParam);
-        } catch (NumberFormatException e) {
+        FixedDecimal rate = parseRate(rateParam);
+        if (rate == null) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"message\": \"Некоректный параметр rate\"}");
             return;
         }
 
         try {
-            Optional<ExchangeRate> updateExchangeRate = exchangeRateDao.updateExchangeRate(baseCurrencyCode, targetCurrencyCode, rate);
+            Optional<ExchangeRate> updateExchangeRate = rateBook.updateExchangeRate(baseCurrencyCode, targetCurrencyCode, rate);
             if (updateExchangeRate.isEmpty()) {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 response.getWriter().write("{\"message\": \"Пара не найдена\"}");
@@ -274,13 +526,30 @@ public class ExchangeRatesServlet extends HttpServlet {
             }
 
             response.setStatus(HttpServletResponse.SC_OK);
-            response.getWriter().write(new Gson().toJson(updateExchangeRate));
+            writeExchangeRate(response, updateExchangeRate.get());
         } catch (SQLException e) {
+            Metrics.recordException(e);
+            System.err.println("Ошибка: " + e.getMessage());
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\": \"Ошибка сервера\"}");
         }
     }
 
+    private static FixedDecimal parseRate(String value) {
+        try {
+            FixedDecimal rate = FixedDecimal.parse(value.trim());
+            return ExchangeRate.isValidRate(rate) ? rate : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeExchangeRate(HttpServletResponse response, ExchangeRate rate) throws IOException {
+        JsonWriter writer = JsonWriters.open(response.getWriter());
+        JsonWriters.writeExchangeRate(writer, rate);
+        writer.flush();
+    }
+
     private Map<String, String> parseUrlEncoded(String body) {
         Map<String, String> params = new HashMap<>();
         String[] pairs = body.split("&");
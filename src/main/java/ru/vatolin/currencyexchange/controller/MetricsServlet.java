@@ -0,0 +1,57 @@
+package ru.vatolin.currencyexchange.controller;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.vatolin.currencyexchange.metrics.Metrics;
+import ru.vatolin.currencyexchange.service.ConnectionPool;
+import ru.vatolin.currencyexchange.service.DatabaseConnection;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+@WebServlet("/api/metrics")
+public class MetricsServlet extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(HttpServletResponse.SC_OK);
+
+        StringBuilder out = new StringBuilder(8192);
+        Metrics.scrape(out);
+
+        ConnectionPool pool = DatabaseConnection.currentPool();
+        if (pool != null) {
+            Metrics.writeGauge(out, "currency_db_pool_readers", "gauge",
+                    "Размер пула соединений для чтения", pool.getReaderPoolSize());
+            Metrics.writeGauge(out, "currency_db_pool_idle_readers", "gauge",
+                    "Свободные соединения для чтения", pool.getIdleReaders());
+            Metrics.writeGauge(out, "currency_db_pool_writer_busy", "gauge",
+                    "Занято ли соединение для записи", pool.isWriterBusy() ? 1 : 0);
+            Metrics.writeGauge(out, "currency_db_pool_reader_acquires_total", "counter",
+                    "Выдано соединений для чтения", pool.getReaderAcquireCount());
+            Metrics.writeGauge(out, "currency_db_pool_writer_acquires_total", "counter",
+                    "Выдано соединений для записи", pool.getWriterAcquireCount());
+            Metrics.writeGauge(out, "currency_db_pool_reader_wait_seconds_total", "counter",
+                    "Суммарное ожидание соединений для чтения", pool.getReaderWaitNanos() / 1e9);
+            Metrics.writeGauge(out, "currency_db_pool_writer_wait_seconds_total", "counter",
+                    "Суммарное ожидание соединения для записи", pool.getWriterWaitNanos() / 1e9);
+            Metrics.writeGauge(out, "currency_db_pool_max_wait_seconds", "gauge",
+                    "Максимальное ожидание соединения", pool.getMaxWaitNanos() / 1e9);
+            Metrics.writeGauge(out, "currency_db_pool_timeouts_total", "counter",
+                    "Количество таймаутов получения соединения", pool.getTimeoutCount());
+        }
+
+        AdmissionFilter admission = (AdmissionFilter) getServletContext().getAttribute(AdmissionFilter.class.getName());
+        if (admission != null) {
+            admission.writeMetrics(out);
+        }
+
+        PrintWriter writer = response.getWriter();
+        writer.write(out.toString());
+        writer.flush();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.vatolin.currencyexchange.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+final class Pagination {
+    static final int UNPAGED = 0;
+    static final int MAX_LIMIT = 1000;
+
+    private Pagination() {
+    }
+
+    static boolean requested(HttpServletRequest request) {
+        return request.getParameter("limit") != null || request.getParameter("after") != null;
+    }
+
+    static int limit(HttpServletRequest request) {
+        String value = request.getParameter("limit");
+        if (value == null) {
+            return request.getParameter("after") != null ? MAX_LIMIT : UNPAGED;
+        }
+        int limit = Integer.parseInt(value.trim());
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new NumberFormatException("limit вне диапазона");
+        }
+        return limit;
+    }
+
+    static int after(HttpServletRequest request) {
+        String value = request.getParameter("after");
+        if (value == null) {
+            return 0;
+        }
+        int after = Integer.parseInt(value.trim());
+        if (after < 0) {
+            throw new NumberFormatException("after вне диапазона");
+        }
+        return after;
+    }
+
+    static void linkNext(HttpServletRequest request, HttpServletResponse response, int limit, int pageSize, int lastId) {
+        if (limit == UNPAGED || pageSize < limit) {
+            return;
+        }
+        StringBuilder link = new StringBuilder("<").append(request.getRequestURI()).append('?');
+        for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+            if (parameter.getKey().equals("after") || parameter.getValue().length == 0) {
+                continue;
+            }
+            link.append(encode(parameter.getKey())).append('=').append(encode(parameter.getValue()[0])).append('&');
+        }
+        link.append("after=").append(lastId).append(">; rel=\"next\"");
+        response.setHeader("Link", link.toString());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.vatolin.currencyexchange.controller;
+
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+
+final class RatePath {
+    enum Route {
+        LIST,
+        PAIR,
+        HISTORY,
+        EXCHANGE,
+        EXCHANGE_BATCH,
+        BULK,
+        STREAM,
+        INVALID
+    }
+
+    private static final Route[] ROUTES = Route.values();
+    private static final int PAIR_LENGTH = 1 + 2 * CurrencyCode.LENGTH;
+    private static final int ROUTE_SHIFT = 48;
+    private static final long CODE_MASK = (1L << 24) - 1;
+
+    private static final String[][] LITERALS;
+    private static final Route[][] LITERAL_ROUTES;
+    private static final String[] PAIR_SUFFIXES = {"/history"};
+    private static final Route[] PAIR_SUFFIX_ROUTES = {Route.HISTORY};
+
+    static {
+        String[] literals = {"/", "/exchange", "/exchange/batch", "/bulk", "/stream"};
+        Route[] routes = {Route.LIST, Route.EXCHANGE, Route.EXCHANGE_BATCH, Route.BULK, Route.STREAM};
+        int longest = 0;
+        for (String literal : literals) {
+            longest = Math.max(longest, literal.length());
+        }
+        int[] counts = new int[longest + 1];
+        for (String literal : literals) {
+            counts[literal.length()]++;
+        }
+        LITERALS = new String[longest + 1][];
+        LITERAL_ROUTES = new Route[longest + 1][];
+        for (int length = 0; length <= longest; length++) {
+            LITERALS[length] = new String[counts[length]];
+            LITERAL_ROUTES[length] = new Route[counts[length]];
+        }
+        int[] filled = new int[longest + 1];
+        for (int i = 0; i < literals.length; i++) {
+            int length = literals[i].length();
+            LITERALS[length][filled[length]] = literals[i];
+            LITERAL_ROUTES[length][filled[length]] = routes[i];
+            filled[length]++;
+        }
+    }
+
+    private RatePath() {
+    }
+
+    static long match(String path) {
+        if (path == null) {
+            return encode(Route.LIST, CurrencyCode.NONE, CurrencyCode.NONE);
+        }
+
+        int length = path.length();
+        if (length < LITERALS.length) {
+            String[] candidates = LITERALS[length];
+            for (int i = 0; i < candidates.length; i++) {
+                if (candidates[i].equals(path)) {
+                    return encode(LITERAL_ROUTES[length][i], CurrencyCode.NONE, CurrencyCode.NONE);
+                }
+            }
+        }
+
+        if (length < PAIR_LENGTH || path.charAt(0) != '/') {
+            return encode(Route.INVALID, CurrencyCode.NONE, CurrencyCode.NONE);
+        }
+        Route route = null;
+        if (length == PAIR_LENGTH) {
+            route = Route.PAIR;
+        } else {
+            for (int i = 0; i < PAIR_SUFFIXES.length; i++) {
+                String suffix = PAIR_SUFFIXES[i];
+                if (length == PAIR_LENGTH + suffix.length() && path.startsWith(suffix, PAIR_LENGTH)) {
+                    route = PAIR_SUFFIX_ROUTES[i];
+                    break;
+                }
+            }
+        }
+        int base = CurrencyCode.pack(path, 1);
+        int target = CurrencyCode.pack(path, 1 + CurrencyCode.LENGTH);
+        if (route == null || base == CurrencyCode.NONE || target == CurrencyCode.NONE) {
+            return encode(Route.INVALID, CurrencyCode.NONE, CurrencyCode.NONE);
+        }
+        return encode(route, base, target);
+    }
+
+    static Route route(long match) {
+        return ROUTES[(int) (match >>> ROUTE_SHIFT)];
+    }
+
+    static int baseCode(long match) {
+        return (int) (match >>> 24 & CODE_MASK);
+    }
+
+    static int targetCode(long match) {
+        return (int) (match & CODE_MASK);
+    }
+
+    private static long encode(Route route, int base, int target) {
+        if (base == CurrencyCode.NONE || target == CurrencyCode.NONE) {
+            return (long) route.ordinal() << ROUTE_SHIFT;
+        }
+        return (long) route.ordinal() << ROUTE_SHIFT | CurrencyCode.pairKey(base, target);
+    }
+}
@@ -0,0 +1,364 @@
+package ru.vatolin.currencyexchange.controller;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import ru.vatolin.currencyexchange.json.JsonWriters;
+import ru.vatolin.currencyexchange.json.PayloadCache;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.service.RateBook;
+import ru.vatolin.currencyexchange.service.RateBookSnapshot;
+import ru.vatolin.currencyexchange.service.RateChangeListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class RateStream implements RateChangeListener, AutoCloseable {
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVICTED = ("event: evicted\ndata: {\"message\": \"Клиент не успевает читать поток\"}\n\n")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STOPPED = ("event: closed\ndata: {\"message\": \"Сервер остановлен\"}\n\n")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final Object STOP = new Object();
+
+    private final RateBook rateBook;
+    private final PayloadCache<List<ExchangeRate>> snapshotPayload;
+    private final int bufferSize;
+    private final long heartbeatMillis;
+    private final LinkedBlockingQueue<Object> inbox = new LinkedBlockingQueue<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    RateStream(RateBook rateBook, PayloadCache<List<ExchangeRate>> snapshotPayload, int bufferSize, long heartbeatMillis) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Размер буфера клиента должен быть положительным");
+        }
+        this.rateBook = rateBook;
+        this.snapshotPayload = snapshotPayload;
+        this.bufferSize = bufferSize;
+        this.heartbeatMillis = heartbeatMillis;
+        this.dispatcher = new Thread(this::dispatch, "rate-stream-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        rateBook.addChangeListener(this);
+    }
+
+    static RateStream fromSystem(RateBook rateBook, PayloadCache<List<ExchangeRate>> snapshotPayload) {
+        String bufferSize = System.getProperty("currency.stream.bufferSize",
+                System.getenv().getOrDefault("CURRENCY_STREAM_BUFFERSIZE", "256"));
+        String heartbeat = System.getProperty("currency.stream.heartbeatMs",
+                System.getenv().getOrDefault("CURRENCY_STREAM_HEARTBEATMS", "15000"));
+        return new RateStream(rateBook, snapshotPayload, Integer.parseInt(bufferSize.trim()), Long.parseLong(heartbeat.trim()));
+    }
+
+    boolean subscribe(AsyncContext async, long[] pairs) throws IOException {
+        if (closed) {
+            return false;
+        }
+        Subscriber subscriber = new Subscriber(async, async.getResponse().getOutputStream(), pairs);
+        async.addListener(subscriber);
+        inbox.add(subscriber);
+        Thread.ofVirtual().name("rate-stream-writer").start(subscriber::drain);
+        return true;
+    }
+
+    @Override
+    public void ratesChanged(List<ExchangeRate> rates, long version) {
+        if (!closed) {
+            inbox.add(new Change(rates, version));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        rateBook.removeChangeListener(this);
+        inbox.add(STOP);
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch() {
+        long nextHeartbeat = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        try {
+            while (true) {
+                long wait = nextHeartbeat - System.nanoTime();
+                Object item = wait > 0 ? inbox.poll(wait, TimeUnit.NANOSECONDS) : null;
+                if (item == STOP) {
+                    break;
+                }
+                if (item instanceof Subscriber subscriber) {
+                    subscriber.start(rateBook.snapshot());
+                    subscribers.add(subscriber);
+                } else if (item instanceof Change change) {
+                    fanOut(change);
+                }
+                if (System.nanoTime() - nextHeartbeat >= 0) {
+                    heartbeat();
+                    nextHeartbeat = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.finish(STOPPED);
+            }
+            subscribers.clear();
+            Object pending;
+            while ((pending = inbox.poll()) != null) {
+                if (pending instanceof Subscriber subscriber) {
+                    subscriber.finish(STOPPED);
+                }
+            }
+        }
+    }
+
+    private void fanOut(Change change) {
+        int size = change.rates.size();
+        long[] keys = new long[size];
+        byte[][] frames = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            keys[i] = pairKey(change.rates.get(i));
+        }
+
+        Iterator<Subscriber> iterator = subscribers.iterator();
+        while (iterator.hasNext()) {
+            Subscriber subscriber = iterator.next();
+            if (subscriber.isFinished()) {
+                iterator.remove();
+                continue;
+            }
+            if (change.version <= subscriber.since) {
+                continue;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!subscriber.accepts(keys[i])) {
+                    continue;
+                }
+                if (frames[i] == null) {
+                    frames[i] = frame("rate", change.version, JsonWriters.encodeExchangeRate(change.rates.get(i)));
+                }
+                if (!subscriber.offer(frames[i])) {
+                    subscriber.finish(EVICTED);
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void heartbeat() {
+        Iterator<Subscriber> iterator = subscribers.iterator();
+        while (iterator.hasNext()) {
+            Subscriber subscriber = iterator.next();
+            if (subscriber.isFinished() || !subscriber.offer(HEARTBEAT)) {
+                subscriber.finish(EVICTED);
+                iterator.remove();
+            }
+        }
+    }
+
+    private byte[] snapshotFrame(RateBookSnapshot snapshot, Subscriber subscriber) {
+        List<ExchangeRate> rates = snapshot.getExchangeRates();
+        byte[] payload;
+        if (subscriber.pairs == null) {
+            payload = snapshotPayload.get(rates);
+        } else {
+            List<ExchangeRate> filtered = new ArrayList<>(subscriber.pairs.length);
+            for (ExchangeRate rate : rates) {
+                if (subscriber.accepts(pairKey(rate))) {
+                    filtered.add(rate);
+                }
+            }
+            payload = JsonWriters.encodeExchangeRates(filtered);
+        }
+        return frame("snapshot", snapshot.getVersion(), payload);
+    }
+
+    private static long pairKey(ExchangeRate rate) {
+        return CurrencyCode.pairKey(rate.getBaseCurrency().getCodeKey(), rate.getTargetCurrency().getCodeKey());
+    }
+
+    private static byte[] frame(String event, long version, byte[] data) {
+        byte[] header = ("id: " + version + "\nevent: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[header.length + data.length + 2];
+        System.arraycopy(header, 0, frame, 0, header.length);
+        System.arraycopy(data, 0, frame, header.length, data.length);
+        frame[frame.length - 2] = '\n';
+        frame[frame.length - 1] = '\n';
+        return frame;
+    }
+
+    private static final class Change {
+        private final List<ExchangeRate> rates;
+        private final long version;
+
+        Change(List<ExchangeRate> rates, long version) {
+            this.rates = rates;
+            this.version = version;
+        }
+    }
+
+    private final class Subscriber implements AsyncListener {
+        private final AsyncContext async;
+        private final OutputStream out;
+        private final long[] pairs;
+        private final ArrayDeque<byte[]> frames = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition ready = lock.newCondition();
+        private RateBookSnapshot initial;
+        private long since = Long.MAX_VALUE;
+        private boolean finished;
+
+        Subscriber(AsyncContext async, OutputStream out, long[] pairs) {
+            this.async = async;
+            this.out = out;
+            this.pairs = pairs;
+        }
+
+        boolean accepts(long pair) {
+            return pairs == null || Arrays.binarySearch(pairs, pair) >= 0;
+        }
+
+        void start(RateBookSnapshot snapshot) {
+            since = snapshot.getVersion();
+            lock.lock();
+            try {
+                initial = snapshot;
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean offer(byte[] frame) {
+            lock.lock();
+            try {
+                if (finished) {
+                    return true;
+                }
+                if (frames.size() >= bufferSize) {
+                    return false;
+                }
+                frames.add(frame);
+                ready.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void finish(byte[] last) {
+            lock.lock();
+            try {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                frames.clear();
+                if (last != null) {
+                    frames.add(last);
+                }
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isFinished() {
+            lock.lock();
+            try {
+                return finished;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void drain() {
+            try {
+                RateBookSnapshot snapshot;
+                lock.lock();
+                try {
+                    while (initial == null && !finished) {
+                        ready.await();
+                    }
+                    snapshot = finished ? null : initial;
+                } finally {
+                    lock.unlock();
+                }
+                if (snapshot != null) {
+                    out.write(snapshotFrame(snapshot, this));
+                    out.flush();
+                }
+
+                while (true) {
+                    byte[] frame;
+                    boolean more;
+                    lock.lock();
+                    try {
+                        while (frames.isEmpty() && !finished) {
+                            ready.await();
+                        }
+                        frame = frames.poll();
+                        more = !frames.isEmpty();
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (frame == null) {
+                        break;
+                    }
+                    out.write(frame);
+                    if (!more) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                finish(null);
+            } finally {
+                try {
+                    async.complete();
+                } catch (IllegalStateException e) {
+                    // соединение уже закрыто контейнером
+                }
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finish(null);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            finish(null);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            finish(null);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
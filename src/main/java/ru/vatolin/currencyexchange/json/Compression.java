@@ -0,0 +1,37 @@
+package ru.vatolin.currencyexchange.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public final class Compression {
+    private Compression() {
+    }
+
+    public static byte[] gzip(byte[] payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length / 4 + 64);
+        try (OutputStream out = new GZIPOutputStream(bytes, 8192)) {
+            out.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static byte[] deflate(byte[] payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length / 4 + 64);
+        Deflater deflater = new Deflater();
+        try (OutputStream out = new DeflaterOutputStream(bytes, deflater, 8192)) {
+            out.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+}
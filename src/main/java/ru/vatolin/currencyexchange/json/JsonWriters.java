@@ -0,0 +1,214 @@
+package ru.vatolin.currencyexchange.json;
+
+import com.google.gson.stream.JsonWriter;
+import ru.vatolin.currencyexchange.model.BulkUpsertResult;
+import ru.vatolin.currencyexchange.model.ChangeSet;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.ExchangeResult;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+import ru.vatolin.currencyexchange.service.RateSeries;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public final class JsonWriters {
+    private JsonWriters() {
+    }
+
+    public static JsonWriter open(Writer out) {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setSerializeNulls(false);
+        return writer;
+    }
+
+    public static void writeCurrency(JsonWriter writer, Currency currency) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(currency.getId());
+        writer.name("code").value(currency.getCode());
+        writer.name("fullName").value(currency.getFullName());
+        writer.name("sign").value(currency.getSign());
+        writer.endObject();
+    }
+
+    public static void writeCurrencies(JsonWriter writer, List<Currency> currencies) throws IOException {
+        writer.beginArray();
+        for (Currency currency : currencies) {
+            writeCurrency(writer, currency);
+        }
+        writer.endArray();
+    }
+
+    public static void writeExchangeRate(JsonWriter writer, ExchangeRate rate) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(rate.getId());
+        writer.name("baseCurrency");
+        writeCurrency(writer, rate.getBaseCurrency());
+        writer.name("targetCurrency");
+        writeCurrency(writer, rate.getTargetCurrency());
+        writer.name("rate");
+        writeDecimal(writer, rate.getExactRate());
+        if (rate.getPath() != null) {
+            writer.name("path");
+            writePath(writer, rate.getPath());
+        }
+        writer.endObject();
+    }
+
+    public static void writeRateHistory(JsonWriter writer, ExchangeRate rate, RateSeries series, long from, long to) throws IOException {
+        writer.beginObject();
+        writer.name("baseCurrency");
+        writeCurrency(writer, rate.getBaseCurrency());
+        writer.name("targetCurrency");
+        writeCurrency(writer, rate.getTargetCurrency());
+        writer.name("points");
+        writer.beginArray();
+        if (series != null) {
+            try {
+                series.forEach(from, to, (timestamp, value) -> {
+                    try {
+                        writer.beginObject();
+                        writer.name("timestamp").value(timestamp);
+                        writer.name("rate");
+                        writeDecimal(writer, value);
+                        writer.endObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    public static void writeDecimal(JsonWriter writer, FixedDecimal value) throws IOException {
+        writer.jsonValue(value.toString());
+    }
+
+    public static void writeExchangeRates(JsonWriter writer, List<ExchangeRate> rates) throws IOException {
+        writer.beginArray();
+        for (ExchangeRate rate : rates) {
+            writeExchangeRate(writer, rate);
+        }
+        writer.endArray();
+    }
+
+    public static void writeExchangeResult(JsonWriter writer, ExchangeResult result) throws IOException {
+        writer.beginObject();
+        writeExchangeResultFields(writer, result);
+        writer.endObject();
+    }
+
+    public static void writeExchangeResultFields(JsonWriter writer, ExchangeResult result) throws IOException {
+        writer.name("baseCurrency");
+        writeExchangeCurrency(writer, result.getBaseCurrency());
+        writer.name("targetCurrency");
+        writeExchangeCurrency(writer, result.getTargetCurrency());
+        writer.name("rate");
+        writeDecimal(writer, result.getExactRate());
+        writer.name("amount");
+        writeDecimal(writer, result.getExactAmount());
+        writer.name("convertedAmount");
+        writeDecimal(writer, result.getExactConvertedAmount());
+        if (result.getPath() != null) {
+            writer.name("path");
+            writePath(writer, result.getPath());
+        }
+    }
+
+    public static void writeBulkUpsertResult(JsonWriter writer, BulkUpsertResult result) throws IOException {
+        writer.beginObject();
+        writer.name("received").value(result.getReceived());
+        writer.name("inserted").value(result.getInserted());
+        writer.name("updated").value(result.getUpdated());
+        writer.name("rejected").beginArray();
+        for (BulkUpsertResult.Rejected rejected : result.getRejected()) {
+            writer.beginObject();
+            writer.name("index").value(rejected.getIndex());
+            writer.name("message").value(rejected.getMessage());
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    public static void writeChangeSet(JsonWriter writer, ChangeSet changes) throws IOException {
+        writer.beginObject();
+        writer.name("run").value(changes.getRunId());
+        writer.name("version").value(changes.getVersion());
+        writer.name("reset").value(changes.isReset());
+        writer.name("currencies").beginArray();
+        for (Currency currency : changes.getCurrencies()) {
+            writer.beginObject();
+            writer.name("code").value(currency.getCode());
+            writer.name("fullName").value(currency.getFullName());
+            writer.name("sign").value(currency.getSign());
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.name("rates").beginArray();
+        for (ExchangeRate rate : changes.getRates()) {
+            writer.beginObject();
+            writer.name("base").value(rate.getBaseCurrency().getCode());
+            writer.name("target").value(rate.getTargetCurrency().getCode());
+            writer.name("rate");
+            writeDecimal(writer, rate.getExactRate());
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    public static byte[] encodeCurrencies(List<Currency> currencies) {
+        return encode(writer -> writeCurrencies(writer, currencies));
+    }
+
+    public static byte[] encodeExchangeRates(List<ExchangeRate> rates) {
+        return encode(writer -> writeExchangeRates(writer, rates));
+    }
+
+    public static byte[] encodeExchangeRate(ExchangeRate rate) {
+        return encode(writer -> writeExchangeRate(writer, rate));
+    }
+
+    private static void writeExchangeCurrency(JsonWriter writer, Currency currency) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(currency.getId());
+        writer.name("name").value(currency.getFullName());
+        writer.name("code").value(currency.getCode());
+        writer.name("sign").value(currency.getSign());
+        writer.endObject();
+    }
+
+    private static void writePath(JsonWriter writer, List<String> path) throws IOException {
+        writer.beginArray();
+        for (String code : path) {
+            writer.value(code);
+        }
+        writer.endArray();
+    }
+
+    private static byte[] encode(Body body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            JsonWriter writer = open(out);
+            body.write(writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface Body {
+        void write(JsonWriter writer) throws IOException;
+    }
+}
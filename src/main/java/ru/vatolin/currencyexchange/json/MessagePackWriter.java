@@ -0,0 +1,160 @@
+package ru.vatolin.currencyexchange.json;
+
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+public final class MessagePackWriter {
+    private byte[] buffer;
+    private int size;
+
+    public MessagePackWriter(int capacity) {
+        buffer = new byte[Math.max(16, capacity)];
+    }
+
+    public static byte[] encodeRateMatrix(List<Currency> currencies, List<ExchangeRate> rates) {
+        MessagePackWriter writer = new MessagePackWriter(64 * currencies.size() + 24 * rates.size() + 32);
+        writer.mapHeader(2);
+        writer.string("currencies");
+        writer.arrayHeader(currencies.size());
+        for (Currency currency : currencies) {
+            writer.mapHeader(4);
+            writer.string("id").integer(currency.getId());
+            writer.string("code").string(currency.getCode());
+            writer.string("fullName").string(currency.getFullName());
+            writer.string("sign").string(currency.getSign());
+        }
+        writer.string("rates");
+        writer.arrayHeader(rates.size());
+        for (ExchangeRate rate : rates) {
+            writer.arrayHeader(3);
+            writer.integer(rate.getBaseCurrency().getId());
+            writer.integer(rate.getTargetCurrency().getId());
+            writer.string(rate.getExactRate().toString());
+        }
+        return writer.toByteArray();
+    }
+
+    public MessagePackWriter nil() {
+        put1(0xc0);
+        return this;
+    }
+
+    public MessagePackWriter integer(long value) {
+        if (value >= 0) {
+            if (value < 0x80) {
+                put1(value);
+            } else if (value <= 0xff) {
+                put1(0xcc);
+                put1(value);
+            } else if (value <= 0xffff) {
+                put1(0xcd);
+                put2(value);
+            } else if (value <= 0xffffffffL) {
+                put1(0xce);
+                put4(value);
+            } else {
+                put1(0xcf);
+                put8(value);
+            }
+        } else if (value >= -32) {
+            put1(value);
+        } else if (value >= Byte.MIN_VALUE) {
+            put1(0xd0);
+            put1(value);
+        } else if (value >= Short.MIN_VALUE) {
+            put1(0xd1);
+            put2(value);
+        } else if (value >= Integer.MIN_VALUE) {
+            put1(0xd2);
+            put4(value);
+        } else {
+            put1(0xd3);
+            put8(value);
+        }
+        return this;
+    }
+
+    public MessagePackWriter string(String value) {
+        if (value == null) {
+            return nil();
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        if (length < 32) {
+            put1(0xa0 | length);
+        } else if (length <= 0xff) {
+            put1(0xd9);
+            put1(length);
+        } else if (length <= 0xffff) {
+            put1(0xda);
+            put2(length);
+        } else {
+            put1(0xdb);
+            put4(length);
+        }
+        ensure(length);
+        System.arraycopy(bytes, 0, buffer, size, length);
+        size += length;
+        return this;
+    }
+
+    public MessagePackWriter arrayHeader(int length) {
+        return header(length, 0x90, 0xdc, 0xdd);
+    }
+
+    public MessagePackWriter mapHeader(int length) {
+        return header(length, 0x80, 0xde, 0xdf);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private MessagePackWriter header(int length, int fix, int marker16, int marker32) {
+        if (length < 16) {
+            put1(fix | length);
+        } else if (length <= 0xffff) {
+            put1(marker16);
+            put2(length);
+        } else {
+            put1(marker32);
+            put4(length);
+        }
+        return this;
+    }
+
+    private void put1(long value) {
+        ensure(1);
+        buffer[size++] = (byte) value;
+    }
+
+    private void put2(long value) {
+        ensure(2);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+    }
+
+    private void put4(long value) {
+        ensure(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void put8(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
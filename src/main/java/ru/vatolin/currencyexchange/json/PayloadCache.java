@@ -0,0 +1,32 @@
+package ru.vatolin.currencyexchange.json;
+
+import java.util.function.Function;
+
+public final class PayloadCache<K> {
+    private final Function<K, byte[]> encoder;
+    private volatile Entry<K> entry;
+
+    public PayloadCache(Function<K, byte[]> encoder) {
+        this.encoder = encoder;
+    }
+
+    public byte[] get(K source) {
+        Entry<K> current = entry;
+        if (current != null && current.source == source) {
+            return current.payload;
+        }
+        byte[] payload = encoder.apply(source);
+        entry = new Entry<>(source, payload);
+        return payload;
+    }
+
+    private static final class Entry<K> {
+        private final K source;
+        private final byte[] payload;
+
+        Entry(K source, byte[] payload) {
+            this.source = source;
+            this.payload = payload;
+        }
+    }
+}
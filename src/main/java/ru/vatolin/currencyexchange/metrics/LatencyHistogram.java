@@ -0,0 +1,140 @@
+package ru.vatolin.currencyexchange.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 42;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final int RATE_WINDOW = 60;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int RATE_COUNT_BITS = 28;
+    private static final long RATE_COUNT_MASK = (1L << RATE_COUNT_BITS) - 1;
+    private static final long EMPTY_SLOT = Long.MIN_VALUE;
+
+    private final String labelValue;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLongArray rateSlots = new AtomicLongArray(RATE_WINDOW + 1);
+    private final long origin = System.nanoTime();
+
+    LatencyHistogram(String labelValue) {
+        this.labelValue = labelValue;
+        for (int i = 0; i <= RATE_WINDOW; i++) {
+            rateSlots.set(i, EMPTY_SLOT);
+        }
+    }
+
+    public String getLabelValue() {
+        return labelValue;
+    }
+
+    public void record(long nanos) {
+        record(nanos, false);
+    }
+
+    public void record(long nanos, boolean failed) {
+        buckets.incrementAndGet(index(nanos));
+        count.increment();
+        sum.add(Math.max(nanos, 0));
+        if (failed) {
+            errors.increment();
+        }
+
+        long second = currentSecond();
+        int slot = (int) (second % (RATE_WINDOW + 1));
+        long packed;
+        long next;
+        do {
+            packed = rateSlots.get(slot);
+            if (packed >> RATE_COUNT_BITS != second) {
+                next = second << RATE_COUNT_BITS | 1;
+            } else if ((packed & RATE_COUNT_MASK) == RATE_COUNT_MASK) {
+                return;
+            } else {
+                next = packed + 1;
+            }
+        } while (!rateSlots.compareAndSet(slot, packed, next));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getRatePerSecond() {
+        long now = currentSecond();
+        long total = 0;
+        for (int i = 0; i <= RATE_WINDOW; i++) {
+            long packed = rateSlots.get(i);
+            long age = now - (packed >> RATE_COUNT_BITS);
+            if (age >= 1 && age <= RATE_WINDOW) {
+                total += packed & RATE_COUNT_MASK;
+            }
+        }
+        return (double) total / RATE_WINDOW;
+    }
+
+    private long currentSecond() {
+        return (System.nanoTime() - origin) / NANOS_PER_SECOND;
+    }
+
+    public long[] quantiles(double... quantiles) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+
+        long[] values = new long[quantiles.length];
+        if (total == 0) {
+            return values;
+        }
+        for (int q = 0; q < quantiles.length; q++) {
+            long rank = Math.max(1, (long) Math.ceil(quantiles[q] * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    values[q] = highestEquivalentValue(i);
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return nanos < 0 ? 0 : (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int mantissa = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + mantissa;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int mantissa = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + mantissa + 1) << shift) - 1;
+    }
+}
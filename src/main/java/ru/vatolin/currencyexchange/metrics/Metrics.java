@@ -0,0 +1,122 @@
+package ru.vatolin.currencyexchange.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.99", "0.999"};
+
+    private static final Family HTTP = new Family("currency_http_request", "currency_http_requests_per_second", "route",
+            "Длительность обработки HTTP-запросов");
+    private static final Family DB = new Family("currency_db_query", "currency_db_queries_per_second", "operation",
+            "Длительность обращений к базе данных");
+    private static final ConcurrentHashMap<Class<?>, LongAdder> EXCEPTIONS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LatencyHistogram http(String route) {
+        return HTTP.histogram(route);
+    }
+
+    public static LatencyHistogram db(String operation) {
+        return DB.histogram(operation);
+    }
+
+    public static void recordException(Throwable error) {
+        EXCEPTIONS.computeIfAbsent(error.getClass(), type -> new LongAdder()).increment();
+    }
+
+    public static void scrape(Appendable out) throws IOException {
+        HTTP.write(out);
+        DB.write(out);
+
+        out.append("# HELP currency_exceptions_total Количество исключений по типу\n");
+        out.append("# TYPE currency_exceptions_total counter\n");
+        for (Map.Entry<Class<?>, LongAdder> entry : EXCEPTIONS.entrySet()) {
+            out.append("currency_exceptions_total{type=\"").append(escape(entry.getKey().getName())).append("\"} ")
+                    .append(Long.toString(entry.getValue().sum())).append('\n');
+        }
+    }
+
+    public static void writeGauge(Appendable out, String name, String type, String help, double value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Family {
+        private final String prefix;
+        private final String rate;
+        private final String labelName;
+        private final String help;
+        private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+        Family(String prefix, String rate, String labelName, String help) {
+            this.prefix = prefix;
+            this.rate = rate;
+            this.labelName = labelName;
+            this.help = help;
+        }
+
+        synchronized LatencyHistogram histogram(String labelValue) {
+            return histograms.computeIfAbsent(labelValue, LatencyHistogram::new);
+        }
+
+        synchronized List<LatencyHistogram> histograms() {
+            return new ArrayList<>(histograms.values());
+        }
+
+        void write(Appendable out) throws IOException {
+            List<LatencyHistogram> current = histograms();
+
+            String duration = prefix + "_duration_seconds";
+            out.append("# HELP ").append(duration).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(duration).append(" summary\n");
+            for (LatencyHistogram histogram : current) {
+                String label = labelName + "=\"" + escape(histogram.getLabelValue()) + "\"";
+                long[] values = histogram.quantiles(QUANTILES);
+                for (int i = 0; i < values.length; i++) {
+                    out.append(duration).append('{').append(label).append(",quantile=\"").append(QUANTILE_LABELS[i])
+                            .append("\"} ").append(format(values[i] / 1e9)).append('\n');
+                }
+                out.append(duration).append("_sum{").append(label).append("} ")
+                        .append(format(histogram.getSumNanos() / 1e9)).append('\n');
+                out.append(duration).append("_count{").append(label).append("} ")
+                        .append(Long.toString(histogram.getCount())).append('\n');
+            }
+
+            out.append("# HELP ").append(rate).append(" Среднее число обращений в секунду за последнюю минуту\n");
+            out.append("# TYPE ").append(rate).append(" gauge\n");
+            for (LatencyHistogram histogram : current) {
+                out.append(rate).append('{').append(labelName).append("=\"").append(escape(histogram.getLabelValue()))
+                        .append("\"} ").append(format(histogram.getRatePerSecond())).append('\n');
+            }
+
+            String errors = prefix + "_errors_total";
+            out.append("# HELP ").append(errors).append(" Количество завершившихся ошибкой обращений\n");
+            out.append("# TYPE ").append(errors).append(" counter\n");
+            for (LatencyHistogram histogram : current) {
+                out.append(errors).append('{').append(labelName).append("=\"").append(escape(histogram.getLabelValue()))
+                        .append("\"} ").append(Long.toString(histogram.getErrors())).append('\n');
+            }
+        }
+    }
+}
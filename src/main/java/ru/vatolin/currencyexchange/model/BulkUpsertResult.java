@@ -0,0 +1,69 @@
+package ru.vatolin.currencyexchange.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BulkUpsertResult {
+    private final int received;
+    private int inserted;
+    private int updated;
+    private final List<Rejected> rejected = new ArrayList<>();
+    private final transient List<ExchangeRate> rates = new ArrayList<>();
+
+    public BulkUpsertResult(int received) {
+        this.received = received;
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public List<Rejected> getRejected() {
+        return Collections.unmodifiableList(rejected);
+    }
+
+    public List<ExchangeRate> getRates() {
+        return Collections.unmodifiableList(rates);
+    }
+
+    public void addInserted(ExchangeRate rate) {
+        inserted++;
+        rates.add(rate);
+    }
+
+    public void addUpdated(ExchangeRate rate) {
+        updated++;
+        rates.add(rate);
+    }
+
+    public void reject(int index, String message) {
+        rejected.add(new Rejected(index, message));
+    }
+
+    public static class Rejected {
+        private final int index;
+        private final String message;
+
+        public Rejected(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
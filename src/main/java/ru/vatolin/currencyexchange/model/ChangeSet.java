@@ -0,0 +1,43 @@
+package ru.vatolin.currencyexchange.model;
+
+import java.util.List;
+
+public class ChangeSet {
+    private final String runId;
+    private final long version;
+    private final boolean reset;
+    private final List<Currency> currencies;
+    private final List<ExchangeRate> rates;
+
+    public ChangeSet(String runId, long version, boolean reset, List<Currency> currencies, List<ExchangeRate> rates) {
+        this.runId = runId;
+        this.version = version;
+        this.reset = reset;
+        this.currencies = currencies;
+        this.rates = rates;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public List<Currency> getCurrencies() {
+        return currencies;
+    }
+
+    public List<ExchangeRate> getRates() {
+        return rates;
+    }
+
+    public boolean isEmpty() {
+        return currencies.isEmpty() && rates.isEmpty();
+    }
+}
@@ -1,16 +1,24 @@
 package ru.vatolin.currencyexchange.model;
 
-public class Currency {
-    private int id;
-    private String code;
-    private String fullName;
-    private String sign;
+import java.util.Locale;
+
+public final class Currency {
+    private static final int DEFAULT_MINOR_UNITS = 2;
+
+    private final int id;
+    private final String code;
+    private final int codeKey;
+    private final String fullName;
+    private final String sign;
+    private final int minorUnits;
 
     public Currency(int id, String code, String fullName, String sign) {
         this.id = id;
         this.code = code;
+        this.codeKey = CurrencyCode.packCanonical(code);
         this.fullName = fullName;
         this.sign = sign;
+        this.minorUnits = minorUnits(code);
     }
 
     public int getId() {
@@ -21,6 +29,10 @@ public class Currency {
         return code;
     }
 
+    public int getCodeKey() {
+        return codeKey;
+    }
+
     public String getFullName() {
         return fullName;
     }
@@ -29,19 +41,16 @@ public class Currency {
         return sign;
     }
 
-    public void setId(int id) {
-        this.id = id;
-    }
-
-    public void setCode(String code) {
-        this.code = code;
-    }
-
-    public void setFullName(String fullName) {
-        this.fullName = fullName;
+    public int getMinorUnits() {
+        return minorUnits;
     }
 
-    public void setSign(String sign) {
-        this.sign = sign;
+    private static int minorUnits(String code) {
+        try {
+            int digits = java.util.Currency.getInstance(code.toUpperCase(Locale.ROOT)).getDefaultFractionDigits();
+            return digits >= 0 ? digits : DEFAULT_MINOR_UNITS;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return DEFAULT_MINOR_UNITS;
+        }
     }
 }
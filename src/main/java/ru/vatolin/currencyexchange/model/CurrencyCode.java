@@ -0,0 +1,62 @@
+package ru.vatolin.currencyexchange.model;
+
+public final class CurrencyCode {
+    public static final int NONE = -1;
+    public static final int LENGTH = 3;
+
+    private CurrencyCode() {
+    }
+
+    public static int pack(CharSequence code) {
+        if (code == null || code.length() != LENGTH) {
+            return NONE;
+        }
+        return pack(code, 0);
+    }
+
+    public static int pack(CharSequence text, int offset) {
+        if (text == null || offset < 0 || offset + LENGTH > text.length()) {
+            return NONE;
+        }
+        int packed = 0;
+        for (int i = offset; i < offset + LENGTH; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            } else if (c <= ' ' || c > '~') {
+                return NONE;
+            }
+            packed = (packed << 8) | c;
+        }
+        return packed;
+    }
+
+    public static int packCanonical(CharSequence code) {
+        if (code == null || code.length() != LENGTH) {
+            return NONE;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            char c = code.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                return NONE;
+            }
+        }
+        return pack(code, 0);
+    }
+
+    public static String canonical(String code) {
+        int packed = pack(code);
+        return packed == NONE || packCanonical(code) != NONE ? code : unpack(packed);
+    }
+
+    public static String unpack(int code) {
+        if (code == NONE) {
+            return null;
+        }
+        return new String(new char[]{(char) (code >>> 16 & 0xFF), (char) (code >>> 8 & 0xFF), (char) (code & 0xFF)});
+    }
+
+    public static long pairKey(int baseCode, int targetCode) {
+        return ((long) baseCode << 24) | targetCode;
+    }
+}
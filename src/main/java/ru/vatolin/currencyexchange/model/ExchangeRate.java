@@ -1,16 +1,36 @@
 package ru.vatolin.currencyexchange.model;
 
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.util.List;
+
 public class ExchangeRate {
-    private int id;
-    private Currency baseCurrency;
-    private Currency targetCurrency;
-    private double rate;
+    private final int id;
+    private final Currency baseCurrency;
+    private final Currency targetCurrency;
+    private final FixedDecimal exactRate;
+    private final double rate;
+    private final List<String> path;
 
     public ExchangeRate(int id, Currency baseCurrency, Currency targetCurrency, double rate) {
+        this(id, baseCurrency, targetCurrency, FixedDecimal.valueOf(rate), null);
+    }
+
+    public ExchangeRate(int id, Currency baseCurrency, Currency targetCurrency, double rate, List<String> path) {
+        this(id, baseCurrency, targetCurrency, FixedDecimal.valueOf(rate), path);
+    }
+
+    public ExchangeRate(int id, Currency baseCurrency, Currency targetCurrency, FixedDecimal rate) {
+        this(id, baseCurrency, targetCurrency, rate, null);
+    }
+
+    public ExchangeRate(int id, Currency baseCurrency, Currency targetCurrency, FixedDecimal rate, List<String> path) {
         this.id = id;
         this.baseCurrency = baseCurrency;
         this.targetCurrency = targetCurrency;
-        this.rate = rate;
+        this.exactRate = rate;
+        this.rate = rate.doubleValue();
+        this.path = path;
     }
 
     public int getId() {
@@ -28,4 +48,16 @@ public class ExchangeRate {
     public double getRate() {
         return rate;
     }
+
+    public FixedDecimal getExactRate() {
+        return exactRate;
+    }
+
+    public List<String> getPath() {
+        return path;
+    }
+
+    public static boolean isValidRate(FixedDecimal rate) {
+        return rate != null && rate.signum() > 0 && rate.isCompact();
+    }
 }
@@ -1,18 +1,25 @@
 package ru.vatolin.currencyexchange.model;
 
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.util.List;
+
 public class ExchangeResult {
     private final Currency baseCurrency;
     private final Currency targetCurrency;
-    private final double rate;
-    private final double amount;
-    private final double convertedAmount;
+    private final FixedDecimal rate;
+    private final FixedDecimal amount;
+    private final FixedDecimal convertedAmount;
+    private final List<String> path;
 
-    public ExchangeResult(Currency baseCurrency, Currency targetCurrency, double rate, double amount, double convertedAmount) {
+    public ExchangeResult(Currency baseCurrency, Currency targetCurrency, FixedDecimal rate, FixedDecimal amount,
+                          FixedDecimal convertedAmount, List<String> path) {
         this.baseCurrency = baseCurrency;
         this.targetCurrency = targetCurrency;
         this.rate = rate;
         this.amount = amount;
         this.convertedAmount = convertedAmount;
+        this.path = path;
     }
 
     public Currency getBaseCurrency() {
@@ -24,14 +31,30 @@ public class ExchangeResult {
     }
 
     public double getRate() {
-        return rate;
+        return rate.doubleValue();
     }
 
     public double getAmount() {
-        return amount;
+        return amount.doubleValue();
     }
 
     public double getConvertedAmount() {
+        return convertedAmount.doubleValue();
+    }
+
+    public FixedDecimal getExactRate() {
+        return rate;
+    }
+
+    public FixedDecimal getExactAmount() {
+        return amount;
+    }
+
+    public FixedDecimal getExactConvertedAmount() {
         return convertedAmount;
     }
+
+    public List<String> getPath() {
+        return path;
+    }
 }
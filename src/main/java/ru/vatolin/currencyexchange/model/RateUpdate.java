@@ -0,0 +1,40 @@
+package ru.vatolin.currencyexchange.model;
+
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+public class RateUpdate {
+    private final String baseCurrencyCode;
+    private final String targetCurrencyCode;
+    private final FixedDecimal rate;
+
+    public RateUpdate(String baseCurrencyCode, String targetCurrencyCode, double rate) {
+        this(baseCurrencyCode, targetCurrencyCode,
+                Double.isNaN(rate) || Double.isInfinite(rate) ? null : FixedDecimal.valueOf(rate));
+    }
+
+    public RateUpdate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate) {
+        this.baseCurrencyCode = baseCurrencyCode;
+        this.targetCurrencyCode = targetCurrencyCode;
+        this.rate = rate;
+    }
+
+    public String getBaseCurrencyCode() {
+        return baseCurrencyCode;
+    }
+
+    public String getTargetCurrencyCode() {
+        return targetCurrencyCode;
+    }
+
+    public double getRate() {
+        return rate != null ? rate.doubleValue() : Double.NaN;
+    }
+
+    public FixedDecimal getExactRate() {
+        return rate;
+    }
+
+    public boolean hasValidRate() {
+        return ExchangeRate.isValidRate(rate);
+    }
+}
@@ -0,0 +1,187 @@
+package ru.vatolin.currencyexchange.money;
+
+import java.math.BigDecimal;
+
+public final class FixedDecimal {
+    public static final int MAX_SCALE = 18;
+    public static final FixedDecimal ONE = new FixedDecimal(1, 0, null);
+
+    static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[MAX_SCALE + 1];
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    static {
+        long power = 1;
+        for (int i = 0; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = power;
+            DOUBLE_POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private final long unscaled;
+    private final int scale;
+    private final BigDecimal big;
+
+    private FixedDecimal(long unscaled, int scale, BigDecimal big) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.big = big;
+    }
+
+    public static FixedDecimal of(long unscaled, int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            return of(BigDecimal.valueOf(unscaled, scale));
+        }
+        return new FixedDecimal(unscaled, scale, null);
+    }
+
+    public static FixedDecimal of(BigDecimal value) {
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        } else if (value.scale() > MAX_SCALE) {
+            BigDecimal stripped = value.stripTrailingZeros();
+            value = stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+        }
+        if (value.scale() <= MAX_SCALE && value.precision() <= MAX_SCALE) {
+            return new FixedDecimal(value.unscaledValue().longValue(), value.scale(), null);
+        }
+        return new FixedDecimal(0, 0, value);
+    }
+
+    public static FixedDecimal parse(String text) {
+        int length = text.length();
+        int start = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            start = 1;
+        }
+
+        long value = 0;
+        int scale = -1;
+        int digits = 0;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == MAX_SCALE) {
+                    return of(new BigDecimal(text.trim()));
+                }
+                value = value * 10 + (c - '0');
+                if (value != 0) {
+                    digits++;
+                }
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return of(new BigDecimal(text.trim()));
+            }
+        }
+        if (length == start || (scale == 0 && length - start == 1)) {
+            throw new NumberFormatException("Некорректное число: " + text);
+        }
+        if (scale > MAX_SCALE) {
+            return of(new BigDecimal(text));
+        }
+        return new FixedDecimal(negative ? -value : value, Math.max(scale, 0), null);
+    }
+
+    public static FixedDecimal valueOf(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new NumberFormatException("Некорректное число: " + value);
+        }
+        return of(new BigDecimal(Double.toString(value)).stripTrailingZeros());
+    }
+
+    public boolean isCompact() {
+        return big == null;
+    }
+
+    public long unscaled() {
+        return unscaled;
+    }
+
+    public int scale() {
+        return big == null ? scale : big.scale();
+    }
+
+    public int signum() {
+        return big == null ? Long.signum(unscaled) : big.signum();
+    }
+
+    public BigDecimal toBigDecimal() {
+        return big == null ? BigDecimal.valueOf(unscaled, scale) : big;
+    }
+
+    public double doubleValue() {
+        if (big != null) {
+            return big.doubleValue();
+        }
+        if (unscaled > -EXACT_DOUBLE_LIMIT && unscaled < EXACT_DOUBLE_LIMIT) {
+            return unscaled / DOUBLE_POWERS_OF_TEN[scale];
+        }
+        return Double.parseDouble(toString());
+    }
+
+    public FixedDecimal stripTrailingZeros() {
+        if (big != null) {
+            return of(big.stripTrailingZeros());
+        }
+        long value = unscaled;
+        int reduced = scale;
+        while (reduced > 0 && value % 10 == 0) {
+            value /= 10;
+            reduced--;
+        }
+        return reduced == scale ? this : new FixedDecimal(value, reduced, null);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FixedDecimal)) {
+            return false;
+        }
+        FixedDecimal that = (FixedDecimal) other;
+        if (big == null && that.big == null) {
+            return unscaled == that.unscaled && scale == that.scale;
+        }
+        return toBigDecimal().equals(that.toBigDecimal());
+    }
+
+    @Override
+    public int hashCode() {
+        return big == null ? Long.hashCode(unscaled) * 31 + scale : big.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        if (big != null) {
+            return big.toPlainString();
+        }
+        if (scale == 0) {
+            return Long.toString(unscaled);
+        }
+        String digits = Long.toString(Math.abs(unscaled));
+        StringBuilder out = new StringBuilder(digits.length() + 3);
+        if (unscaled < 0) {
+            out.append('-');
+        }
+        int point = digits.length() - scale;
+        if (point <= 0) {
+            out.append("0.");
+            for (int i = point; i < 0; i++) {
+                out.append('0');
+            }
+            out.append(digits);
+        } else {
+            out.append(digits, 0, point).append('.').append(digits, point, digits.length());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package ru.vatolin.currencyexchange.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+public final class MoneyEngine {
+    private static final FixedDecimal[] NONE = new FixedDecimal[0];
+
+    private final RoundingMode rounding;
+    private final int rateScale;
+
+    public MoneyEngine(RoundingMode rounding, int rateScale) {
+        if (rateScale < 0 || rateScale > FixedDecimal.MAX_SCALE) {
+            throw new IllegalArgumentException("Точность курса должна быть от 0 до " + FixedDecimal.MAX_SCALE);
+        }
+        this.rounding = rounding;
+        this.rateScale = rateScale;
+    }
+
+    public static MoneyEngine fromSystem() {
+        String rounding = System.getProperty("currency.money.rounding",
+                System.getenv().getOrDefault("CURRENCY_MONEY_ROUNDING", "HALF_EVEN"));
+        String rateScale = System.getProperty("currency.money.rateScale",
+                System.getenv().getOrDefault("CURRENCY_MONEY_RATESCALE", "12"));
+        return new MoneyEngine(RoundingMode.valueOf(rounding.trim().toUpperCase(Locale.ROOT)),
+                Integer.parseInt(rateScale.trim()));
+    }
+
+    public RoundingMode getRounding() {
+        return rounding;
+    }
+
+    public int getRateScale() {
+        return rateScale;
+    }
+
+    public FixedDecimal ratio(FixedDecimal[] multipliers, FixedDecimal[] divisors) {
+        if (divisors.length == 0 && multipliers.length == 1) {
+            return multipliers[0];
+        }
+        return convert(FixedDecimal.ONE, multipliers, divisors, rateScale).stripTrailingZeros();
+    }
+
+    public FixedDecimal multiply(FixedDecimal amount, FixedDecimal rate, int scale) {
+        return convert(amount, new FixedDecimal[]{rate}, NONE, scale);
+    }
+
+    public FixedDecimal convert(FixedDecimal amount, FixedDecimal[] multipliers, FixedDecimal[] divisors, int scale) {
+        if (!amount.isCompact()) {
+            return convertExact(amount, multipliers, divisors, scale);
+        }
+        try {
+            long numerator = amount.unscaled();
+            long denominator = 1;
+            int exponent = scale - amount.scale();
+            for (FixedDecimal multiplier : multipliers) {
+                if (!multiplier.isCompact()) {
+                    return convertExact(amount, multipliers, divisors, scale);
+                }
+                numerator = Math.multiplyExact(numerator, multiplier.unscaled());
+                exponent -= multiplier.scale();
+            }
+            for (FixedDecimal divisor : divisors) {
+                if (!divisor.isCompact()) {
+                    return convertExact(amount, multipliers, divisors, scale);
+                }
+                denominator = Math.multiplyExact(denominator, divisor.unscaled());
+                exponent += divisor.scale();
+            }
+            if (Math.abs(exponent) > FixedDecimal.MAX_SCALE) {
+                return convertExact(amount, multipliers, divisors, scale);
+            }
+            if (exponent > 0) {
+                numerator = Math.multiplyExact(numerator, FixedDecimal.POWERS_OF_TEN[exponent]);
+            } else if (exponent < 0) {
+                denominator = Math.multiplyExact(denominator, FixedDecimal.POWERS_OF_TEN[-exponent]);
+            }
+            return FixedDecimal.of(divide(numerator, denominator), scale);
+        } catch (ArithmeticException overflow) {
+            return convertExact(amount, multipliers, divisors, scale);
+        }
+    }
+
+    private FixedDecimal convertExact(FixedDecimal amount, FixedDecimal[] multipliers, FixedDecimal[] divisors, int scale) {
+        BigDecimal numerator = amount.toBigDecimal();
+        for (FixedDecimal multiplier : multipliers) {
+            numerator = numerator.multiply(multiplier.toBigDecimal());
+        }
+        BigDecimal denominator = BigDecimal.ONE;
+        for (FixedDecimal divisor : divisors) {
+            denominator = denominator.multiply(divisor.toBigDecimal());
+        }
+        return FixedDecimal.of(numerator.divide(denominator, scale, rounding));
+    }
+
+    private long divide(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new ArithmeticException("Деление на ноль");
+        }
+        if (denominator < 0) {
+            numerator = Math.negateExact(numerator);
+            denominator = Math.negateExact(denominator);
+        }
+        long quotient = numerator / denominator;
+        long remainder = numerator % denominator;
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        int sign = numerator < 0 ? -1 : 1;
+        long absRemainder = Math.abs(remainder);
+        long other = denominator - absRemainder;
+        int half = Long.compare(absRemainder, other);
+        boolean up;
+        switch (rounding) {
+            case UP:
+                up = true;
+                break;
+            case DOWN:
+                up = false;
+                break;
+            case CEILING:
+                up = sign > 0;
+                break;
+            case FLOOR:
+                up = sign < 0;
+                break;
+            case HALF_UP:
+                up = half >= 0;
+                break;
+            case HALF_DOWN:
+                up = half > 0;
+                break;
+            case HALF_EVEN:
+                up = half > 0 || (half == 0 && (quotient & 1) != 0);
+                break;
+            default:
+                throw new ArithmeticException("Требуется округление");
+        }
+        return up ? quotient + sign : quotient;
+    }
+}
@@ -0,0 +1,191 @@
+package ru.vatolin.currencyexchange.server;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.annotation.WebServlet;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.valves.ValveBase;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import ru.vatolin.currencyexchange.controller.AdmissionFilter;
+import ru.vatolin.currencyexchange.controller.ChangesServlet;
+import ru.vatolin.currencyexchange.controller.CurrenciesServlet;
+import ru.vatolin.currencyexchange.controller.DatabaseContextListener;
+import ru.vatolin.currencyexchange.controller.ExchangeRatesServlet;
+import ru.vatolin.currencyexchange.controller.MetricsServlet;
+import ru.vatolin.currencyexchange.service.RateBookSnapshot;
+import ru.vatolin.currencyexchange.service.ServerConfig;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class EmbeddedServer implements AutoCloseable {
+    private static final List<Class<?>> SERVLETS = List.of(
+            CurrenciesServlet.class, ExchangeRatesServlet.class, ChangesServlet.class, MetricsServlet.class);
+    private static final List<Class<?>> FILTERS = List.of(AdmissionFilter.class);
+
+    private final Tomcat tomcat;
+    private final Connector connector;
+    private final String host;
+
+    private EmbeddedServer(Tomcat tomcat, Connector connector, String host) {
+        this.tomcat = tomcat;
+        this.connector = connector;
+        this.host = host == null || host.isBlank() || host.equals("0.0.0.0") ? "localhost" : host;
+    }
+
+    public static EmbeddedServer start(Map<String, String> parameters) throws LifecycleException, IOException {
+        ServerConfig config = ServerConfig.from(parameters::get);
+        Path workDirectory = config.getWorkDirectory() != null
+                ? config.getWorkDirectory()
+                : Files.createTempDirectory("currency-exchange");
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(workDirectory.resolve("tomcat").toAbsolutePath().toString());
+        Connector warmupConnector = connector("127.0.0.1", 0);
+        tomcat.setConnector(warmupConnector);
+
+        Context context = tomcat.addContext("", workDirectory.toAbsolutePath().toString());
+        parameters.forEach(context::addParameter);
+        context.addApplicationListener(DatabaseContextListener.class.getName());
+        for (Class<?> servlet : SERVLETS) {
+            WebServlet mapping = servlet.getAnnotation(WebServlet.class);
+            Wrapper wrapper = Tomcat.addServlet(context, servlet.getSimpleName(), servlet.getName());
+            wrapper.setAsyncSupported(mapping.asyncSupported());
+            wrapper.setLoadOnStartup(1);
+            String[] patterns = mapping.urlPatterns().length > 0 ? mapping.urlPatterns() : mapping.value();
+            for (String pattern : patterns) {
+                context.addServletMappingDecoded(pattern, servlet.getSimpleName());
+            }
+        }
+        for (Class<?> filter : FILTERS) {
+            WebFilter mapping = filter.getAnnotation(WebFilter.class);
+            FilterDef definition = new FilterDef();
+            definition.setFilterName(filter.getSimpleName());
+            definition.setFilterClass(filter.getName());
+            definition.setAsyncSupported(Boolean.toString(mapping.asyncSupported()));
+            context.addFilterDef(definition);
+            FilterMap filterMap = new FilterMap();
+            filterMap.setFilterName(filter.getSimpleName());
+            String[] patterns = mapping.urlPatterns().length > 0 ? mapping.urlPatterns() : mapping.value();
+            for (String pattern : patterns) {
+                filterMap.addURLPatternDecoded(pattern);
+            }
+            context.addFilterMap(filterMap);
+        }
+
+        Connector connector = connector(config.getHost(), config.getPort());
+        tomcat.getEngine().getPipeline().addValve(new FirstRequestValve(connector));
+
+        long preloadStart = System.nanoTime();
+        tomcat.start();
+        if (!context.getState().isAvailable()) {
+            tomcat.stop();
+            tomcat.destroy();
+            throw new LifecycleException("Не удалось запустить приложение");
+        }
+        RateBookSnapshot snapshot = DatabaseContextListener.rateBook(context.getServletContext()).snapshot();
+        System.out.printf("Загружено валют: %d, курсов: %d за %d мс%n", snapshot.getCurrencies().size(),
+                snapshot.getExchangeRates().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - preloadStart));
+
+        AdmissionFilter admission = (AdmissionFilter) context.getServletContext()
+                .getAttribute(AdmissionFilter.class.getName());
+        if (admission != null) {
+            admission.setWarmupPort(warmupConnector.getLocalPort());
+        }
+        long warmupStart = System.nanoTime();
+        try {
+            URI warmupUri = URI.create("http://127.0.0.1:" + warmupConnector.getLocalPort());
+            int completed = Warmup.of(warmupUri, snapshot).run(config.getWarmupRequests(), config.getWarmupMillis());
+            System.out.printf("Прогрев: %d запросов за %d мс%n", completed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - warmupStart));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        tomcat.getService().addConnector(connector);
+        tomcat.getService().removeConnector(warmupConnector);
+        warmupConnector.destroy();
+        if (admission != null) {
+            admission.setWarmupPort(-1);
+        }
+        if (!connector.getState().isAvailable()) {
+            tomcat.stop();
+            tomcat.destroy();
+            throw new LifecycleException("Не удалось открыть порт " + config.getPort());
+        }
+
+        EmbeddedServer server = new EmbeddedServer(tomcat, connector, config.getHost());
+        System.out.printf("Сервер принимает запросы на %s, запуск занял %d мс%n", server.getBaseUri(), sinceJvmStart());
+        return server;
+    }
+
+    public int getPort() {
+        return connector.getLocalPort();
+    }
+
+    public URI getBaseUri() {
+        return URI.create("http://" + host + ":" + getPort());
+    }
+
+    public void await() {
+        tomcat.getServer().await();
+    }
+
+    @Override
+    public void close() {
+        try {
+            tomcat.stop();
+            tomcat.destroy();
+        } catch (LifecycleException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+        }
+    }
+
+    private static Connector connector(String host, int port) {
+        Connector connector = new Connector();
+        connector.setPort(port);
+        if (host != null) {
+            connector.setProperty("address", host);
+        }
+        return connector;
+    }
+
+    private static long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    private static final class FirstRequestValve extends ValveBase {
+        private final Connector connector;
+        private final AtomicBoolean served = new AtomicBoolean();
+
+        FirstRequestValve(Connector connector) {
+            super(true);
+            this.connector = connector;
+        }
+
+        @Override
+        public void invoke(Request request, Response response) throws IOException, ServletException {
+            try {
+                getNext().invoke(request, response);
+            } finally {
+                if (request.getConnector() == connector && served.compareAndSet(false, true)) {
+                    System.out.printf("Первый запрос обслужен через %d мс после старта JVM%n", sinceJvmStart());
+                }
+            }
+        }
+    }
+}
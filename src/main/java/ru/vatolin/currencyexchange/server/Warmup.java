@@ -0,0 +1,90 @@
+package ru.vatolin.currencyexchange.server;
+
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.service.RateBookSnapshot;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class Warmup {
+    private static final int MAX_PAIRS = 64;
+
+    private final URI baseUri;
+    private final List<String> paths;
+
+    private Warmup(URI baseUri, List<String> paths) {
+        this.baseUri = baseUri;
+        this.paths = paths;
+    }
+
+    static Warmup of(URI baseUri, RateBookSnapshot snapshot) {
+        List<String> paths = new ArrayList<>();
+        paths.add("/api/currencies");
+        paths.add("/api/exchangeRates");
+
+        List<Currency> currencies = snapshot.getCurrencies();
+        if (!currencies.isEmpty()) {
+            paths.add("/api/currencies/" + currencies.get(0).getCode());
+        }
+        List<ExchangeRate> rates = snapshot.getExchangeRates();
+        for (int i = 0; i < rates.size() && i < MAX_PAIRS; i++) {
+            String base = rates.get(i).getBaseCurrency().getCode();
+            String target = rates.get(i).getTargetCurrency().getCode();
+            paths.add("/api/exchangeRates/" + base + target);
+            paths.add("/api/exchangeRates/exchange?from=" + base + "&to=" + target + "&amount=100");
+            paths.add("/api/exchangeRates/exchange?from=" + target + "&to=" + base + "&amount=12.34");
+        }
+        for (int i = 0; i + 1 < currencies.size() && i < MAX_PAIRS; i++) {
+            paths.add("/api/exchangeRates/exchange?from=" + currencies.get(i).getCode()
+                    + "&to=" + currencies.get(currencies.size() - 1 - i).getCode() + "&amount=1000");
+        }
+        return new Warmup(baseUri, paths);
+    }
+
+    int run(int requests, long millis) throws InterruptedException {
+        if (requests == 0 || millis == 0) {
+            return 0;
+        }
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        AtomicInteger issued = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        int workers = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < workers; worker++) {
+                executor.execute(() -> {
+                    int index;
+                    while ((index = issued.getAndIncrement()) < requests && System.nanoTime() - deadline < 0) {
+                        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(paths.get(index % paths.size())))
+                                .timeout(Duration.ofMillis(millis))
+                                .GET()
+                                .build();
+                        try {
+                            client.send(request, HttpResponse.BodyHandlers.discarding());
+                            completed.incrementAndGet();
+                        } catch (IOException e) {
+                            System.err.println("Ошибка: прогрев " + request.uri() + ": " + e.getMessage());
+                            return;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+            }
+        }
+        return completed.get();
+    }
+}
@@ -0,0 +1,128 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+public class AdmissionConfig {
+    public enum RouteClass {
+        READS("reads", 256, 512, 50),
+        CONVERSIONS("conversions", 128, 256, 100),
+        WRITES("writes", 8, 64, 200);
+
+        private final String key;
+        private final int defaultLimit;
+        private final int defaultQueue;
+        private final long defaultTargetMillis;
+
+        RouteClass(String key, int defaultLimit, int defaultQueue, long defaultTargetMillis) {
+            this.key = key;
+            this.defaultLimit = defaultLimit;
+            this.defaultQueue = defaultQueue;
+            this.defaultTargetMillis = defaultTargetMillis;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    public static final class Limits {
+        private final int limit;
+        private final int queueDepth;
+        private final long targetLatencyMillis;
+
+        public Limits(int limit, int queueDepth, long targetLatencyMillis) {
+            if (limit < 1) {
+                throw new IllegalArgumentException("Лимит параллельных запросов должен быть положительным");
+            }
+            this.limit = limit;
+            this.queueDepth = Math.max(0, queueDepth);
+            this.targetLatencyMillis = Math.max(1, targetLatencyMillis);
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getTargetLatencyMillis() {
+            return targetLatencyMillis;
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<RouteClass, Limits> limits;
+    private final long queueTimeoutMillis;
+    private final double clientRate;
+    private final int clientBurst;
+
+    public AdmissionConfig(boolean enabled, Map<RouteClass, Limits> limits, long queueTimeoutMillis,
+                           double clientRate, int clientBurst) {
+        for (RouteClass routeClass : RouteClass.values()) {
+            if (!limits.containsKey(routeClass)) {
+                throw new IllegalArgumentException("Не заданы лимиты для класса запросов " + routeClass.getKey());
+            }
+        }
+        this.enabled = enabled;
+        this.limits = new EnumMap<>(limits);
+        this.queueTimeoutMillis = Math.max(0, queueTimeoutMillis);
+        this.clientRate = Math.max(0, clientRate);
+        this.clientBurst = clientBurst > 0 ? clientBurst : Math.max(1, (int) Math.ceil(this.clientRate));
+    }
+
+    public static AdmissionConfig fromSystem() {
+        return from(key -> null);
+    }
+
+    public static AdmissionConfig from(UnaryOperator<String> overrides) {
+        UnaryOperator<String> source = DatabaseConfig.lookup(overrides);
+
+        String mode = DatabaseConfig.stringValue(source.apply("currency.admission"), "on");
+        if (!mode.equalsIgnoreCase("on") && !mode.equalsIgnoreCase("off")) {
+            throw new IllegalArgumentException("Неизвестный режим контроля нагрузки: " + mode);
+        }
+
+        Map<RouteClass, Limits> limits = new EnumMap<>(RouteClass.class);
+        for (RouteClass routeClass : RouteClass.values()) {
+            String prefix = "currency.admission." + routeClass.getKey() + ".";
+            limits.put(routeClass, new Limits(
+                    DatabaseConfig.intValue(source.apply(prefix + "limit"), routeClass.defaultLimit),
+                    DatabaseConfig.intValue(source.apply(prefix + "queue"), routeClass.defaultQueue),
+                    DatabaseConfig.longValue(source.apply(prefix + "targetLatencyMs"), routeClass.defaultTargetMillis)
+            ));
+        }
+
+        String clientRate = DatabaseConfig.stringValue(source.apply("currency.admission.clientRate"), "0");
+        return new AdmissionConfig(
+                mode.equalsIgnoreCase("on"),
+                limits,
+                DatabaseConfig.longValue(source.apply("currency.admission.queueTimeoutMs"), 500),
+                Double.parseDouble(clientRate),
+                DatabaseConfig.intValue(source.apply("currency.admission.clientBurst"), 0)
+        );
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Limits getLimits(RouteClass routeClass) {
+        return limits.get(routeClass);
+    }
+
+    public long getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    public double getClientRate() {
+        return clientRate;
+    }
+
+    public int getClientBurst() {
+        return clientBurst;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.ChangeSet;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+final class ChangeLog {
+    private final String runId = UUID.randomUUID().toString();
+    private final Change[] entries;
+    private long first;
+    private long next;
+    private long baseVersion;
+    private CompletableFuture<Void> published = new CompletableFuture<>();
+
+    ChangeLog(int capacity, long baseVersion) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Размер журнала изменений должен быть положительным");
+        }
+        entries = new Change[capacity];
+        this.baseVersion = baseVersion;
+    }
+
+    String getRunId() {
+        return runId;
+    }
+
+    synchronized void appendCurrency(Currency currency, long version) {
+        append(new Change(version, currency, null));
+    }
+
+    synchronized void appendRates(List<ExchangeRate> rates, long version) {
+        for (ExchangeRate rate : rates) {
+            append(new Change(version, null, rate));
+        }
+    }
+
+    synchronized void reset(long version) {
+        first = next;
+        baseVersion = version;
+    }
+
+    void published() {
+        CompletableFuture<Void> done;
+        synchronized (this) {
+            done = published;
+            published = new CompletableFuture<>();
+        }
+        done.complete(null);
+    }
+
+    synchronized CompletableFuture<Void> nextPublished() {
+        return published;
+    }
+
+    ChangeSet since(String runId, long since, RateBookSnapshot view) {
+        long upTo = view.getVersion();
+        Map<Integer, Currency> currencies = new LinkedHashMap<>();
+        Map<Long, ExchangeRate> rates = new LinkedHashMap<>();
+        synchronized (this) {
+            if (!this.runId.equals(runId) || since < baseVersion || since > upTo) {
+                return new ChangeSet(this.runId, upTo, true, view.getCurrencies(), view.getExchangeRates());
+            }
+            for (long seq = firstAfter(since); seq < next; seq++) {
+                Change change = entries[(int) (seq % entries.length)];
+                if (change.version > upTo) {
+                    break;
+                }
+                if (change.currency != null) {
+                    currencies.put(change.currency.getId(), change.currency);
+                } else {
+                    long key = RateHistory.pairKey(change.rate.getBaseCurrency().getId(), change.rate.getTargetCurrency().getId());
+                    rates.remove(key);
+                    rates.put(key, change.rate);
+                }
+            }
+        }
+        return new ChangeSet(runId, upTo, false, new ArrayList<>(currencies.values()), new ArrayList<>(rates.values()));
+    }
+
+    private void append(Change change) {
+        if (next - first == entries.length) {
+            baseVersion = entries[(int) (first % entries.length)].version;
+            first++;
+        }
+        entries[(int) (next % entries.length)] = change;
+        next++;
+    }
+
+    private long firstAfter(long version) {
+        long low = first;
+        long high = next;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (entries[(int) (middle % entries.length)].version <= version) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static final class Change {
+        private final long version;
+        private final Currency currency;
+        private final ExchangeRate rate;
+
+        Change(long version, Currency currency, ExchangeRate rate) {
+            this.version = version;
+            this.currency = currency;
+            this.rate = rate;
+        }
+    }
+}
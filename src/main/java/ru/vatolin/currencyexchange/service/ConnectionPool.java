@@ -0,0 +1,413 @@
+package ru.vatolin.currencyexchange.service;
+
+import org.sqlite.SQLiteConfig;
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool implements ConnectionPoolMXBean, AutoCloseable {
+    private final DatabaseConfig config;
+    private final SqlDialect dialect;
+    private final BlockingQueue<PooledConnection> readers;
+    private final BlockingQueue<PooledConnection> writer = new ArrayBlockingQueue<>(1);
+    private final List<PooledConnection> connections = new ArrayList<>();
+
+    private final LongAdder readerAcquires = new LongAdder();
+    private final LongAdder writerAcquires = new LongAdder();
+    private final LongAdder readerWaitNanos = new LongAdder();
+    private final LongAdder writerWaitNanos = new LongAdder();
+    private final LongAdder readerLatencyNanos = new LongAdder();
+    private final LongAdder writerLatencyNanos = new LongAdder();
+    private final LongAdder readerLatencyCount = new LongAdder();
+    private final LongAdder writerLatencyCount = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(DatabaseConfig config) throws SQLException {
+        this.dialect = SqlDialect.of(config.getUrl());
+        try {
+            Class.forName(dialect.getDriver());
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Драйвер базы данных не найден: " + dialect.getDriver(), e);
+        }
+
+        this.config = config;
+        this.readers = new ArrayBlockingQueue<>(config.getReaders());
+
+        try {
+            writer.add(open(false));
+            for (int i = 0; i < config.getReaders(); i++) {
+                readers.add(open(true));
+            }
+        } catch (SQLException e) {
+            closed = true;
+            closeAll(connections);
+            throw e;
+        }
+    }
+
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+
+    SqlDialect getDialect() {
+        return dialect;
+    }
+
+    public Connection getReader() throws SQLException {
+        return getReader(null);
+    }
+
+    public Connection getWriter() throws SQLException {
+        return getWriter(null);
+    }
+
+    public Connection getReader(LatencyHistogram timer) throws SQLException {
+        return acquire(readers, readerAcquires, readerWaitNanos, timer);
+    }
+
+    public Connection getWriter(LatencyHistogram timer) throws SQLException {
+        return acquire(writer, writerAcquires, writerWaitNanos, timer);
+    }
+
+    @Override
+    public int getReaderPoolSize() {
+        return config.getReaders();
+    }
+
+    @Override
+    public int getIdleReaders() {
+        return readers.size();
+    }
+
+    @Override
+    public boolean isWriterBusy() {
+        return writer.isEmpty();
+    }
+
+    @Override
+    public long getReaderAcquireCount() {
+        return readerAcquires.sum();
+    }
+
+    @Override
+    public long getWriterAcquireCount() {
+        return writerAcquires.sum();
+    }
+
+    @Override
+    public long getReaderWaitNanos() {
+        return readerWaitNanos.sum();
+    }
+
+    @Override
+    public long getWriterWaitNanos() {
+        return writerWaitNanos.sum();
+    }
+
+    @Override
+    public long getReaderLatencyNanos() {
+        return readerLatencyNanos.sum();
+    }
+
+    @Override
+    public long getReaderLatencyCount() {
+        return readerLatencyCount.sum();
+    }
+
+    @Override
+    public long getWriterLatencyNanos() {
+        return writerLatencyNanos.sum();
+    }
+
+    @Override
+    public long getWriterLatencyCount() {
+        return writerLatencyCount.sum();
+    }
+
+    @Override
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeAll(connections);
+        readers.clear();
+        writer.clear();
+    }
+
+    private static void closeAll(List<PooledConnection> connections) {
+        synchronized (connections) {
+            for (PooledConnection connection : connections) {
+                connection.closePhysical();
+            }
+            connections.clear();
+        }
+    }
+
+    private Connection acquire(BlockingQueue<PooledConnection> queue, LongAdder acquires, LongAdder waitNanos,
+                               LatencyHistogram timer) throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+
+        long start = System.nanoTime();
+        PooledConnection connection = queue.poll();
+        if (connection == null) {
+            try {
+                connection = queue.poll(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Ожидание соединения прервано", e);
+            }
+            long waited = System.nanoTime() - start;
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            if (connection == null) {
+                timeouts.increment();
+                recordLatency(queue == readers, waited);
+                if (timer != null) {
+                    timer.record(waited, true);
+                }
+                throw new SQLException("Истекло время ожидания соединения с базой данных");
+            }
+        }
+        acquires.increment();
+        return connection.lease(timer, start);
+    }
+
+    private void recordLatency(boolean reader, long nanos) {
+        (reader ? readerLatencyNanos : writerLatencyNanos).add(nanos);
+        (reader ? readerLatencyCount : writerLatencyCount).increment();
+    }
+
+    private PooledConnection open(boolean readOnly) throws SQLException {
+        PooledConnection connection = new PooledConnection(connect(readOnly), readOnly ? readers : writer, readOnly);
+        synchronized (connections) {
+            connections.add(connection);
+        }
+        return connection;
+    }
+
+    private Connection connect(boolean readOnly) throws SQLException {
+        if (dialect != SqlDialect.SQLITE) {
+            Connection connection = DriverManager.getConnection(config.getUrl());
+            connection.setReadOnly(readOnly);
+            return connection;
+        }
+
+        SQLiteConfig sqliteConfig = new SQLiteConfig();
+        sqliteConfig.setBusyTimeout(config.getBusyTimeoutMillis());
+        sqliteConfig.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(config.getSynchronous().toUpperCase()));
+        sqliteConfig.setCacheSize(config.getCacheSize());
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(config.getMmapSize()));
+        if (readOnly) {
+            sqliteConfig.setReadOnly(true);
+        } else {
+            sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        }
+        return sqliteConfig.createConnection(config.getUrl());
+    }
+
+    private final class PooledConnection {
+        private final BlockingQueue<PooledConnection> home;
+        private final boolean readOnly;
+        private final Map<String, CachedStatement> statements;
+        private Connection physical;
+
+        PooledConnection(Connection physical, BlockingQueue<PooledConnection> home, boolean readOnly) {
+            this.physical = physical;
+            this.home = home;
+            this.readOnly = readOnly;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() > config.getStatementCacheSize()) {
+                        closeQuietly(eldest.getValue().statement);
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection lease(LatencyHistogram timer, long start) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this, timer, start));
+        }
+
+        PreparedStatement prepare(String sql, int generatedKeys) throws SQLException {
+            String key = generatedKeys + ":" + sql;
+            CachedStatement statement = statements.get(key);
+            if (statement == null) {
+                statement = new CachedStatement(physical.prepareStatement(sql, generatedKeys));
+                statements.put(key, statement);
+            }
+            return statement.proxy;
+        }
+
+        void release() {
+            if (closed) {
+                return;
+            }
+            try {
+                if (physical.isClosed()) {
+                    reopen();
+                } else if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                try {
+                    reopen();
+                } catch (SQLException reopenError) {
+                    System.err.println("Ошибка: " + reopenError.getMessage());
+                }
+            }
+            home.offer(this);
+        }
+
+        void closePhysical() {
+            for (CachedStatement statement : statements.values()) {
+                closeQuietly(statement.statement);
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Ошибка: " + e.getMessage());
+            }
+        }
+
+        private void reopen() throws SQLException {
+            closePhysical();
+            physical = connect(readOnly);
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection connection;
+        private final LatencyHistogram timer;
+        private final long start;
+        private boolean released;
+
+        Lease(PooledConnection connection, LatencyHistogram timer, long start) {
+            this.connection = connection;
+            this.timer = timer;
+            this.start = start;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        connection.release();
+                        long elapsed = System.nanoTime() - start;
+                        recordLatency(connection.readOnly, elapsed);
+                        if (timer != null) {
+                            timer.record(elapsed);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return released || connection.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + connection.physical;
+                default:
+                    break;
+            }
+
+            if (released) {
+                throw new SQLException("Соединение уже возвращено в пул");
+            }
+
+            if ("prepareStatement".equals(method.getName()) && args.length <= 2
+                    && (args.length == 1 || method.getParameterTypes()[1] == int.class)) {
+                int generatedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return connection.prepare((String) args[0], generatedKeys);
+            }
+
+            try {
+                return method.invoke(connection.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static final class CachedStatement implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    statement.clearParameters();
+                    statement.clearBatch();
+                    return null;
+                case "isClosed":
+                    return false;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.vatolin.currencyexchange.service;
+
+public interface ConnectionPoolMXBean {
+    int getReaderPoolSize();
+
+    int getIdleReaders();
+
+    boolean isWriterBusy();
+
+    long getReaderAcquireCount();
+
+    long getWriterAcquireCount();
+
+    long getReaderWaitNanos();
+
+    long getWriterWaitNanos();
+
+    long getReaderLatencyNanos();
+
+    long getReaderLatencyCount();
+
+    long getWriterLatencyNanos();
+
+    long getWriterLatencyCount();
+
+    long getMaxWaitNanos();
+
+    long getTimeoutCount();
+}
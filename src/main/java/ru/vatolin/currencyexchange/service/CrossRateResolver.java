@@ -0,0 +1,380 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.ExchangeResult;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+import ru.vatolin.currencyexchange.money.MoneyEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class CrossRateResolver implements AutoCloseable {
+    private final List<String> pivots;
+    private final int maxHops;
+    private final MoneyEngine engine;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cross-rate-resolver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<RateBookSnapshot> pending = new AtomicReference<>();
+    private volatile Matrix matrix;
+    private volatile Rows rows;
+
+    public CrossRateResolver(List<String> pivots, int maxHops) {
+        this(pivots, maxHops, MoneyEngine.fromSystem());
+    }
+
+    public CrossRateResolver(List<String> pivots, int maxHops, MoneyEngine engine) {
+        if (maxHops < 1) {
+            throw new IllegalArgumentException("Максимальное число шагов должно быть положительным");
+        }
+        List<String> codes = new ArrayList<>(pivots.size());
+        for (String pivot : pivots) {
+            if (!pivot.isBlank()) {
+                codes.add(pivot.trim().toUpperCase());
+            }
+        }
+        this.pivots = Collections.unmodifiableList(codes);
+        this.maxHops = maxHops;
+        this.engine = engine;
+    }
+
+    public static CrossRateResolver fromSystem() {
+        String pivots = System.getProperty("currency.pivots", System.getenv().getOrDefault("CURRENCY_PIVOTS", "USD"));
+        String maxHops = System.getProperty("currency.maxHops", System.getenv().getOrDefault("CURRENCY_MAXHOPS", "2"));
+        return new CrossRateResolver(Arrays.asList(pivots.split(",")), Integer.parseInt(maxHops.trim()));
+    }
+
+    public List<String> getPivots() {
+        return pivots;
+    }
+
+    public int getMaxHops() {
+        return maxHops;
+    }
+
+    public MoneyEngine getEngine() {
+        return engine;
+    }
+
+    public void rebuild(RateBookSnapshot snapshot) {
+        matrix = new Matrix(snapshot, pivots, maxHops, engine);
+    }
+
+    public void rebuildAsync(RateBookSnapshot snapshot) {
+        if (pending.getAndSet(snapshot) == null) {
+            executor.execute(() -> {
+                RateBookSnapshot latest = pending.getAndSet(null);
+                if (latest != null) {
+                    rebuild(latest);
+                }
+            });
+        }
+    }
+
+    public ExchangeRate resolve(RateBookSnapshot snapshot, String baseCode, String targetCode) {
+        return resolve(snapshot, CurrencyCode.pack(baseCode), CurrencyCode.pack(targetCode));
+    }
+
+    public ExchangeRate resolve(RateBookSnapshot snapshot, int baseCode, int targetCode) {
+        int base = snapshot.indexOfCode(baseCode);
+        int target = snapshot.indexOfCode(targetCode);
+        if (base < 0 || target < 0) {
+            return null;
+        }
+        return current(snapshot, base).toExchangeRate(base, target);
+    }
+
+    public ExchangeResult exchange(RateBookSnapshot snapshot, int baseCode, int targetCode, FixedDecimal amount) {
+        int base = snapshot.indexOfCode(baseCode);
+        int target = snapshot.indexOfCode(targetCode);
+        if (base < 0 || target < 0) {
+            return null;
+        }
+        return current(snapshot, base).exchange(base, target, amount);
+    }
+
+    public ExchangeRate resolveAt(RateBookSnapshot snapshot, RateHistory history, String baseCode, String targetCode, long timestamp) {
+        return resolveAt(snapshot, history, CurrencyCode.pack(baseCode), CurrencyCode.pack(targetCode), timestamp);
+    }
+
+    public ExchangeRate resolveAt(RateBookSnapshot snapshot, RateHistory history, int baseCode, int targetCode, long timestamp) {
+        int base = snapshot.indexOfCode(baseCode);
+        int target = snapshot.indexOfCode(targetCode);
+        if (base < 0 || target < 0) {
+            return null;
+        }
+        return at(snapshot, history, base, timestamp).toExchangeRate(base, target);
+    }
+
+    public ExchangeResult exchangeAt(RateBookSnapshot snapshot, RateHistory history, int baseCode, int targetCode,
+                                     FixedDecimal amount, long timestamp) {
+        int base = snapshot.indexOfCode(baseCode);
+        int target = snapshot.indexOfCode(targetCode);
+        if (base < 0 || target < 0) {
+            return null;
+        }
+        return at(snapshot, history, base, timestamp).exchange(base, target, amount);
+    }
+
+    private Matrix current(RateBookSnapshot snapshot, int base) {
+        Matrix current = matrix;
+        if (current != null && current.snapshot == snapshot) {
+            return current;
+        }
+        Rows cached = rows;
+        if (cached == null || cached.snapshot != snapshot) {
+            cached = new Rows(snapshot);
+            rows = cached;
+        }
+        Matrix row = cached.bySource.get(base);
+        if (row == null) {
+            row = Matrix.row(snapshot, pivots, maxHops, engine, base, Matrix.current(snapshot));
+            cached.bySource.set(base, row);
+        }
+        return row;
+    }
+
+    private Matrix at(RateBookSnapshot snapshot, RateHistory history, int base, long timestamp) {
+        return Matrix.row(snapshot, pivots, maxHops, engine, base, Matrix.at(snapshot, history, timestamp));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class Rows {
+        private final RateBookSnapshot snapshot;
+        private final AtomicReferenceArray<Matrix> bySource;
+
+        Rows(RateBookSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.bySource = new AtomicReferenceArray<>(snapshot.size());
+        }
+    }
+
+    private interface EdgeSource {
+        double rate(int from, int to);
+
+        FixedDecimal exact(int from, int to);
+    }
+
+    private static final class Matrix {
+        private final RateBookSnapshot snapshot;
+        private final EdgeSource edges;
+        private final MoneyEngine engine;
+        private final int size;
+        private final int onlySource;
+        private final double[] rates;
+        private final int[] previous;
+
+        Matrix(RateBookSnapshot snapshot, List<String> pivots, int maxHops, MoneyEngine engine) {
+            this(snapshot, pivots, maxHops, engine, -1, current(snapshot));
+        }
+
+        private Matrix(RateBookSnapshot snapshot, List<String> pivots, int maxHops, MoneyEngine engine, int onlySource,
+                       EdgeSource edges) {
+            this.snapshot = snapshot;
+            this.edges = edges;
+            this.engine = engine;
+            this.size = snapshot.size();
+            this.onlySource = onlySource;
+            this.rates = new double[onlySource >= 0 ? size : size * size];
+            this.previous = new int[onlySource >= 0 ? size : size * size];
+            Arrays.fill(rates, Double.NaN);
+            Arrays.fill(previous, -1);
+
+            boolean[] pivot = new boolean[size];
+            for (String code : pivots) {
+                int index = snapshot.indexOfCode(code);
+                if (index >= 0) {
+                    pivot[index] = true;
+                }
+            }
+
+            int[] frontier = new int[size];
+            int[] next = new int[size];
+            if (onlySource >= 0) {
+                search(onlySource, pivot, maxHops, frontier, next);
+            } else {
+                for (int source = 0; source < size; source++) {
+                    search(source, pivot, maxHops, frontier, next);
+                }
+            }
+        }
+
+        static Matrix row(RateBookSnapshot snapshot, List<String> pivots, int maxHops, MoneyEngine engine, int source,
+                          EdgeSource edges) {
+            return new Matrix(snapshot, pivots, maxHops, engine, source, edges);
+        }
+
+        private int row(int source) {
+            return onlySource >= 0 ? 0 : source * size;
+        }
+
+        private void search(int source, boolean[] pivot, int maxHops, int[] frontier, int[] next) {
+            int row = row(source);
+            rates[row + source] = 1.0;
+            frontier[0] = source;
+            int frontierSize = 1;
+
+            for (int hop = 1; hop <= maxHops && frontierSize > 0; hop++) {
+                int nextSize = 0;
+                for (int i = 0; i < frontierSize; i++) {
+                    int from = frontier[i];
+                    double fromRate = rates[row + from];
+                    for (int to = 0; to < size; to++) {
+                        if (!Double.isNaN(rates[row + to])) {
+                            continue;
+                        }
+                        double edge = edge(from, to);
+                        if (Double.isNaN(edge)) {
+                            continue;
+                        }
+                        rates[row + to] = fromRate * edge;
+                        previous[row + to] = from;
+                        if (pivot[to]) {
+                            next[nextSize++] = to;
+                        }
+                    }
+                }
+                int[] swap = frontier;
+                frontier = next;
+                next = swap;
+                frontierSize = nextSize;
+            }
+        }
+
+        static EdgeSource current(RateBookSnapshot snapshot) {
+            return new EdgeSource() {
+                @Override
+                public double rate(int from, int to) {
+                    ExchangeRate direct = snapshot.rateAt(from, to);
+                    return direct != null ? direct.getRate() : Double.NaN;
+                }
+
+                @Override
+                public FixedDecimal exact(int from, int to) {
+                    ExchangeRate direct = snapshot.rateAt(from, to);
+                    return direct != null ? direct.getExactRate() : null;
+                }
+            };
+        }
+
+        static EdgeSource at(RateBookSnapshot snapshot, RateHistory history, long timestamp) {
+            return new EdgeSource() {
+                @Override
+                public double rate(int from, int to) {
+                    FixedDecimal rate = exact(from, to);
+                    return rate != null ? rate.doubleValue() : Double.NaN;
+                }
+
+                @Override
+                public FixedDecimal exact(int from, int to) {
+                    ExchangeRate direct = snapshot.rateAt(from, to);
+                    if (direct == null) {
+                        return null;
+                    }
+                    return history.rateAt(direct.getBaseCurrency().getId(), direct.getTargetCurrency().getId(), timestamp);
+                }
+            };
+        }
+
+        private double edge(int from, int to) {
+            double direct = edges.rate(from, to);
+            if (!Double.isNaN(direct)) {
+                return direct;
+            }
+            double reverse = edges.rate(to, from);
+            if (!Double.isNaN(reverse)) {
+                return 1.0 / reverse;
+            }
+            return Double.NaN;
+        }
+
+        ExchangeRate toExchangeRate(int base, int target) {
+            Route route = route(base, target);
+            if (route == null) {
+                return null;
+            }
+            ExchangeRate direct = snapshot.rateAt(base, target);
+            int id = direct != null && route.nodes.length == 2 ? direct.getId() : 0;
+            return new ExchangeRate(id, snapshot.currencyAt(base), snapshot.currencyAt(target),
+                    engine.ratio(route.multipliers, route.divisors), route.path());
+        }
+
+        ExchangeResult exchange(int base, int target, FixedDecimal amount) {
+            Route route = route(base, target);
+            if (route == null) {
+                return null;
+            }
+            Currency targetCurrency = snapshot.currencyAt(target);
+            FixedDecimal converted = engine.convert(amount, route.multipliers, route.divisors, targetCurrency.getMinorUnits());
+            return new ExchangeResult(snapshot.currencyAt(base), targetCurrency,
+                    engine.ratio(route.multipliers, route.divisors), amount, converted, route.path());
+        }
+
+        private Route route(int base, int target) {
+            if (onlySource >= 0 && base != onlySource) {
+                return null;
+            }
+            int row = row(base);
+            if (Double.isNaN(rates[row + target])) {
+                return null;
+            }
+
+            int hops = 0;
+            for (int node = target; node != base; node = previous[row + node]) {
+                hops++;
+            }
+            int[] nodes = new int[hops + 1];
+            for (int node = target, i = hops; i >= 0; node = previous[row + node], i--) {
+                nodes[i] = node;
+            }
+
+            FixedDecimal[] multipliers = new FixedDecimal[hops];
+            FixedDecimal[] divisors = new FixedDecimal[hops];
+            int multiplierCount = 0;
+            int divisorCount = 0;
+            for (int i = 0; i < hops; i++) {
+                FixedDecimal direct = edges.exact(nodes[i], nodes[i + 1]);
+                if (direct != null) {
+                    multipliers[multiplierCount++] = direct;
+                } else {
+                    divisors[divisorCount++] = edges.exact(nodes[i + 1], nodes[i]);
+                }
+            }
+            return new Route(nodes, Arrays.copyOf(multipliers, multiplierCount), Arrays.copyOf(divisors, divisorCount));
+        }
+
+        private final class Route {
+            private final int[] nodes;
+            private final FixedDecimal[] multipliers;
+            private final FixedDecimal[] divisors;
+
+            Route(int[] nodes, FixedDecimal[] multipliers, FixedDecimal[] divisors) {
+                this.nodes = nodes;
+                this.multipliers = multipliers;
+                this.divisors = divisors;
+            }
+
+            List<String> path() {
+                List<String> path = new ArrayList<>(nodes.length);
+                for (int node : nodes) {
+                    path.add(snapshot.currencyAt(node).getCode());
+                }
+                return Collections.unmodifiableList(path);
+            }
+        }
+    }
+}
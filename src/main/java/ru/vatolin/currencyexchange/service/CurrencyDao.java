@@ -1,32 +1,62 @@
 package ru.vatolin.currencyexchange.service;
 
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+import ru.vatolin.currencyexchange.metrics.Metrics;
 import ru.vatolin.currencyexchange.model.Currency;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
-public class CurrencyDao {
-    private final String url = "jdbc:sqlite:C:/Users/vladi/IdeaProjects/CurrencyExchange/src/main/resources/currency_exchange.db";
+public class CurrencyDao implements CurrencyStore {
+    private static final LatencyHistogram GET_ALL_TIMER = Metrics.db("CurrencyDao.getAllCurrencies");
+    private static final LatencyHistogram GET_PAGE_TIMER = Metrics.db("CurrencyDao.getCurrenciesPage");
+    private static final LatencyHistogram GET_BY_CODE_TIMER = Metrics.db("CurrencyDao.getCurrencyByCode");
+    private static final LatencyHistogram ADD_TIMER = Metrics.db("CurrencyDao.addCurrency");
+    private static final LatencyHistogram PREPARE_TIMER = Metrics.db("CurrencyDao.prepare");
+
+    private final ConnectionPool pool;
 
     public CurrencyDao() {
-        try {
-            Class.forName("org.sqlite.JDBC");
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("Драйвер SQLite не найден", e);
+        this(DatabaseConnection.getPool());
+    }
+
+    public CurrencyDao(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void prepare() throws SQLException {
+        SqlDialect dialect = pool.getDialect();
+        String createSql = """
+            CREATE TABLE Currencies (
+            ID %s,
+            Code VARCHAR(3) NOT NULL UNIQUE,
+            FullName VARCHAR(100) NOT NULL,
+            Sign VARCHAR(5))
+            """.formatted(dialect.getIdentity());
+
+        try (Connection conn = pool.getWriter(PREPARE_TIMER)) {
+            if (dialect.tableExists(conn, "Currencies")) {
+                return;
+            }
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate(createSql);
+            }
         }
     }
 
+    @Override
     public List<Currency> getAllCurrencies() throws SQLException {
         List<Currency> currencies = new ArrayList<>();
         String sql = "SELECT * FROM Currencies";
 
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getReader(GET_ALL_TIMER);
              Statement statement = conn.createStatement();
              ResultSet rs = statement.executeQuery(sql)) {
 
             while (rs.next()) {
-                currencies.add(new Currency(
+                currencies.add(CurrencyRegistry.intern(
                         rs.getInt("ID"),
                         rs.getString("Code"),
                         rs.getString("FullName"),
@@ -37,15 +67,40 @@ public class CurrencyDao {
         return currencies;
     }
 
+    @Override
+    public List<Currency> getCurrenciesPage(int afterId, int limit) throws SQLException {
+        List<Currency> currencies = new ArrayList<>(limit);
+        String sql = "SELECT * FROM Currencies WHERE ID > ? ORDER BY ID LIMIT ?";
+
+        try (Connection conn = pool.getReader(GET_PAGE_TIMER);
+             PreparedStatement statement = conn.prepareStatement(sql)) {
+
+            statement.setInt(1, afterId);
+            statement.setInt(2, limit);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    currencies.add(CurrencyRegistry.intern(
+                            rs.getInt("ID"),
+                            rs.getString("Code"),
+                            rs.getString("FullName"),
+                            rs.getString("Sign")
+                    ));
+                }
+            }
+        }
+        return currencies;
+    }
+
+    @Override
     public Currency getCurrencyByCode(String code) throws SQLException {
         String sql = "SELECT * FROM Currencies WHERE Code = ?";
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getReader(GET_BY_CODE_TIMER);
             PreparedStatement statement = conn.prepareStatement(sql)) {
 
             statement.setString(1, code);
             try (ResultSet rs = statement.executeQuery()) {
                 if (rs.next()) {
-                    return new Currency(
+                    return CurrencyRegistry.intern(
                             rs.getInt("ID"),
                             rs.getString("Code"),
                             rs.getString("FullName"),
@@ -57,24 +112,25 @@ public class CurrencyDao {
         return null;
     }
 
+    @Override
     public Currency addCurrency(Currency currency) throws SQLException {
         String sql = "INSERT INTO Currencies (Code, FullName, Sign) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getWriter(ADD_TIMER);
             PreparedStatement statement = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             statement.setString(1, currency.getCode());
             statement.setString(2, currency.getFullName());
             statement.setString(3, currency.getSign());
             statement.executeUpdate();
+            DataVersion.bump();
 
             try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
-                    currency.setId(generatedKeys.getInt(1));
+                    return CurrencyRegistry.intern(generatedKeys.getInt(1), currency.getCode(), currency.getFullName(), currency.getSign());
                 } else {
                     throw new SQLException("Не удалось получить ID новой валюты.");
                 }
             }
         }
-        return currency;
     }
 }
@@ -0,0 +1,76 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public final class CurrencyRegistry {
+    private static volatile Table table = new Table(new IntIntMap(64), new Currency[0]);
+
+    private CurrencyRegistry() {
+    }
+
+    public static Currency get(int codeKey) {
+        Table current = table;
+        int index = current.index.get(codeKey);
+        return index == IntIntMap.MISSING ? null : current.currencies[index];
+    }
+
+    public static Currency intern(Currency currency) {
+        Currency existing = get(currency.getCodeKey());
+        if (matches(existing, currency.getId(), currency.getCode(), currency.getFullName(), currency.getSign())) {
+            return existing;
+        }
+        return register(currency);
+    }
+
+    public static Currency intern(int id, String code, String fullName, String sign) {
+        Currency existing = get(CurrencyCode.packCanonical(code));
+        if (matches(existing, id, code, fullName, sign)) {
+            return existing;
+        }
+        return register(new Currency(id, code, fullName, sign));
+    }
+
+    private static boolean matches(Currency existing, int id, String code, String fullName, String sign) {
+        return existing != null && existing.getId() == id && existing.getCode().equals(code)
+                && Objects.equals(existing.getFullName(), fullName) && Objects.equals(existing.getSign(), sign);
+    }
+
+    private static synchronized Currency register(Currency currency) {
+        if (currency.getCodeKey() == CurrencyCode.NONE) {
+            return currency;
+        }
+        Table current = table;
+        int index = current.index.get(currency.getCodeKey());
+        if (index != IntIntMap.MISSING) {
+            Currency existing = current.currencies[index];
+            if (matches(existing, currency.getId(), currency.getCode(), currency.getFullName(), currency.getSign())) {
+                return existing;
+            }
+            Currency[] currencies = current.currencies.clone();
+            currencies[index] = currency;
+            table = new Table(current.index, currencies);
+            return currency;
+        }
+
+        IntIntMap grown = current.index.copy();
+        Currency[] currencies = Arrays.copyOf(current.currencies, current.currencies.length + 1);
+        currencies[current.currencies.length] = currency;
+        grown.put(currency.getCodeKey(), current.currencies.length);
+        table = new Table(grown, currencies);
+        return currency;
+    }
+
+    private static final class Table {
+        private final IntIntMap index;
+        private final Currency[] currencies;
+
+        Table(IntIntMap index, Currency[] currencies) {
+            this.index = index;
+            this.currencies = currencies;
+        }
+    }
+}
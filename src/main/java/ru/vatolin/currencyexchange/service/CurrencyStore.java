@@ -0,0 +1,18 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.Currency;
+
+import java.sql.SQLException;
+import java.util.List;
+
+public interface CurrencyStore {
+    void prepare() throws SQLException;
+
+    List<Currency> getAllCurrencies() throws SQLException;
+
+    List<Currency> getCurrenciesPage(int afterId, int limit) throws SQLException;
+
+    Currency getCurrencyByCode(String code) throws SQLException;
+
+    Currency addCurrency(Currency currency) throws SQLException;
+}
@@ -0,0 +1,18 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class DataVersion {
+    private static final AtomicLong VERSION = new AtomicLong(System.currentTimeMillis());
+
+    private DataVersion() {
+    }
+
+    public static long current() {
+        return VERSION.get();
+    }
+
+    public static long bump() {
+        return VERSION.incrementAndGet();
+    }
+}
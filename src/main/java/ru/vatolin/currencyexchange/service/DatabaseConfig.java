@@ -0,0 +1,142 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.function.UnaryOperator;
+
+public class DatabaseConfig {
+    private static final String DEFAULT_PATH = "src/main/resources/currency_exchange.db";
+    private static final String DEFAULT_H2_URL = "jdbc:h2:mem:currency_exchange;DB_CLOSE_DELAY=-1";
+
+    private final String url;
+    private final int readers;
+    private final int concurrency;
+    private final long acquireTimeoutMillis;
+    private final int busyTimeoutMillis;
+    private final String synchronous;
+    private final int cacheSize;
+    private final long mmapSize;
+    private final int statementCacheSize;
+
+    public DatabaseConfig(String url, int readers, int concurrency, long acquireTimeoutMillis, int busyTimeoutMillis,
+                          String synchronous, int cacheSize, long mmapSize, int statementCacheSize) {
+        if (readers < 1) {
+            throw new IllegalArgumentException("Количество соединений для чтения должно быть положительным");
+        }
+        this.url = url;
+        this.readers = readers;
+        this.concurrency = concurrency;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        this.synchronous = synchronous;
+        this.cacheSize = cacheSize;
+        this.mmapSize = mmapSize;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public static DatabaseConfig fromSystem() {
+        return from(key -> null);
+    }
+
+    public static DatabaseConfig from(UnaryOperator<String> overrides) {
+        UnaryOperator<String> source = lookup(overrides);
+
+        String url = source.apply("currency.db.url");
+        if (url == null) {
+            String path = source.apply("currency.db.path");
+            if (StorageConfig.backend(source.apply("currency.storage")) == StorageConfig.Backend.H2) {
+                url = path != null ? "jdbc:h2:" + Path.of(path).toAbsolutePath() : DEFAULT_H2_URL;
+            } else {
+                url = "jdbc:sqlite:" + (path != null ? path : defaultPath());
+            }
+        }
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        int readers = intValue(source.apply("currency.db.readers"), Math.max(2, processors));
+        return new DatabaseConfig(
+                url,
+                readers,
+                intValue(source.apply("currency.db.concurrency"), processors > 1 ? readers + 1 : 0),
+                intValue(source.apply("currency.db.acquireTimeoutMs"), 5000),
+                intValue(source.apply("currency.db.busyTimeoutMs"), 5000),
+                stringValue(source.apply("currency.db.synchronous"), "NORMAL"),
+                intValue(source.apply("currency.db.cacheSize"), -16384),
+                longValue(source.apply("currency.db.mmapSize"), 256L * 1024 * 1024),
+                intValue(source.apply("currency.db.statementCacheSize"), 32)
+        );
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getReaders() {
+        return readers;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    static UnaryOperator<String> lookup(UnaryOperator<String> overrides) {
+        return key -> {
+            String value = overrides.apply(key);
+            if (value == null) {
+                value = System.getProperty(key);
+            }
+            if (value == null) {
+                value = System.getenv(key.toUpperCase().replace('.', '_'));
+            }
+            return value;
+        };
+    }
+
+    private static String defaultPath() {
+        URL resource = DatabaseConfig.class.getResource("/currency_exchange.db");
+        if (resource != null && "file".equals(resource.getProtocol())) {
+            try {
+                return Path.of(resource.toURI()).toString();
+            } catch (URISyntaxException e) {
+                return DEFAULT_PATH;
+            }
+        }
+        return DEFAULT_PATH;
+    }
+
+    static String stringValue(String value, String defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    static int intValue(String value, int defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    static long longValue(String value, long defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+}
@@ -1,16 +1,69 @@
 package ru.vatolin.currencyexchange.service;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
-    private static final String DB_URL = "jdbc:sqlite:src/main/resources/currency_exchange.db";
+    private static volatile ConnectionPool pool;
+    private static volatile DatabaseExecutor executor;
+
+    public static synchronized ConnectionPool init(DatabaseConfig config) throws SQLException {
+        shutdown();
+        pool = new ConnectionPool(config);
+        executor = new DatabaseExecutor(config.getConcurrency(), config.getAcquireTimeoutMillis());
+        return pool;
+    }
+
+    public static synchronized void initWithoutPool(DatabaseConfig config) {
+        shutdown();
+        executor = new DatabaseExecutor(config.getConcurrency(), config.getAcquireTimeoutMillis());
+    }
+
+    public static ConnectionPool currentPool() {
+        return pool;
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = pool;
+                if (current == null) {
+                    try {
+                        current = init(DatabaseConfig.fromSystem());
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Не удалось открыть базу данных", e);
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    public static DatabaseExecutor getExecutor() {
+        DatabaseExecutor current = executor;
+        if (current == null) {
+            getPool();
+            current = executor;
+        }
+        return current;
+    }
+
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.close();
+            executor = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
 
     public static Connection getConnection() {
         try {
-            return DriverManager.getConnection(DB_URL);
-        } catch (SQLException e) {
+            return getPool().getReader();
+        } catch (RuntimeException | SQLException e) {
             System.err.println("Ошибка: " + e.getMessage());
             return null;
         }
@@ -0,0 +1,78 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class DatabaseExecutor implements AutoCloseable {
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("db-", 0).factory());
+    private final Semaphore permits;
+    private final int concurrency;
+    private final long acquireTimeoutMillis;
+
+    public DatabaseExecutor(int concurrency, long acquireTimeoutMillis) {
+        if (concurrency < 0) {
+            throw new IllegalArgumentException("Лимит параллельных обращений к базе не может быть отрицательным");
+        }
+        this.permits = new Semaphore(concurrency, true);
+        this.concurrency = concurrency;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> run(task, future));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public boolean isInline() {
+        return concurrency == 0;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> void run(Callable<T> task, CompletableFuture<T> future) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                future.completeExceptionally(new RejectedExecutionException("Превышено время ожидания доступа к базе данных"));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return;
+        }
+
+        try {
+            future.complete(task.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            permits.release();
+        }
+    }
+}
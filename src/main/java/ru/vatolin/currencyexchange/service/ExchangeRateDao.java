@@ -1,28 +1,141 @@
 package ru.vatolin.currencyexchange.service;
 
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+import ru.vatolin.currencyexchange.metrics.Metrics;
+import ru.vatolin.currencyexchange.model.BulkUpsertResult;
 import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
 import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
-public class ExchangeRateDao {
-    private final String url = "jdbc:sqlite:C:/Users/vladi/IdeaProjects/CurrencyExchange/src/main/resources/currency_exchange.db";
+public class ExchangeRateDao implements RateStore {
+    private static final LatencyHistogram GET_ALL_TIMER = Metrics.db("ExchangeRateDao.getAllExchangeRates");
+    private static final LatencyHistogram GET_PAGE_TIMER = Metrics.db("ExchangeRateDao.getExchangeRatesPage");
+    private static final LatencyHistogram STREAM_TIMER = Metrics.db("ExchangeRateDao.streamExchangeRates");
+    private static final LatencyHistogram GET_TIMER = Metrics.db("ExchangeRateDao.getExchangeRate");
+    private static final LatencyHistogram LEGS_TIMER = Metrics.db("ExchangeRateDao.findPairLegs");
+    private static final LatencyHistogram ADD_TIMER = Metrics.db("ExchangeRateDao.addExchangeRate");
+    private static final LatencyHistogram UPDATE_TIMER = Metrics.db("ExchangeRateDao.updateExchangeRate");
+    private static final LatencyHistogram UPDATE_BATCH_TIMER = Metrics.db("ExchangeRateDao.updateExchangeRates");
+    private static final LatencyHistogram UPSERT_TIMER = Metrics.db("ExchangeRateDao.upsertExchangeRates");
+    private static final LatencyHistogram MIGRATE_TIMER = Metrics.db("ExchangeRateDao.addExactRateColumnIfMissing");
+    private static final LatencyHistogram PREPARE_TIMER = Metrics.db("ExchangeRateDao.prepare");
+    private static final int STREAM_PAGE_SIZE = 256;
+    private static final int CODE_LOOKUP_CHUNK = 256;
+
+    private static final String SELECT_BY_CODES_SQL = """
+        SELECT er.ID, COALESCE(er.RateExact, CAST(er.Rate AS VARCHAR)) AS Rate,
+               bc.ID AS BaseCurrencyId, bc.Code AS BaseCurrencyCode, bc.FullName AS BaseCurrencyName, bc.Sign AS BaseCurrencySign,
+               tc.ID AS TargetCurrencyId, tc.Code AS TargetCurrencyCode, tc.FullName AS TargetCurrencyName, tc.Sign AS TargetCurrencySign
+        FROM ExchangeRates er
+        JOIN Currencies bc ON er.BaseCurrencyId = bc.ID
+        JOIN Currencies tc ON er.TargetCurrencyId = tc.ID
+        WHERE bc.Code = ? AND tc.Code = ?
+        """;
+
+    private static final String SELECT_RATES_SQL = """
+        SELECT er.ID, COALESCE(er.RateExact, CAST(er.Rate AS VARCHAR)) AS Rate,
+               bc.ID AS BaseCurrencyId, bc.Code AS BaseCurrencyCode, bc.FullName AS BaseCurrencyName, bc.Sign AS BaseCurrencySign,
+               tc.ID AS TargetCurrencyId, tc.Code AS TargetCurrencyCode, tc.FullName AS TargetCurrencyName, tc.Sign AS TargetCurrencySign
+        FROM ExchangeRates er
+        JOIN Currencies bc ON er.BaseCurrencyId = bc.ID
+        JOIN Currencies tc ON er.TargetCurrencyId = tc.ID
+        WHERE er.ID > ?
+        """;
+
+    private static final String SELECT_PAIR_LEGS_SQL = """
+        SELECT er.ID, COALESCE(er.RateExact, CAST(er.Rate AS VARCHAR)) AS Rate,
+               bc.ID AS BaseCurrencyId, bc.Code AS BaseCurrencyCode, bc.FullName AS BaseCurrencyName, bc.Sign AS BaseCurrencySign,
+               tc.ID AS TargetCurrencyId, tc.Code AS TargetCurrencyCode, tc.FullName AS TargetCurrencyName, tc.Sign AS TargetCurrencySign
+        FROM ExchangeRates er
+        JOIN Currencies bc ON er.BaseCurrencyId = bc.ID
+        JOIN Currencies tc ON er.TargetCurrencyId = tc.ID
+        WHERE bc.Code IN (%1$s) AND tc.Code IN (%1$s) AND (bc.Code IN (?, ?) OR tc.Code IN (?, ?))
+        """;
+
+    private final ConnectionPool pool;
+    private final RateHistoryDao historyDao;
 
     public ExchangeRateDao() {
-        try {
-            Class.forName("org.sqlite.JDBC");
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("Драйвер SQLite не найден", e);
+        this(DatabaseConnection.getPool());
+    }
+
+    public ExchangeRateDao(ConnectionPool pool) {
+        this.pool = pool;
+        this.historyDao = new RateHistoryDao(pool);
+    }
+
+    @Override
+    public void prepare() throws SQLException {
+        SqlDialect dialect = pool.getDialect();
+        String createSql = """
+            CREATE TABLE ExchangeRates (
+            ID %s,
+            BaseCurrencyId INTEGER NOT NULL,
+            TargetCurrencyId INTEGER NOT NULL,
+            Rate %s NOT NULL,
+            RateExact %s,
+            UNIQUE (BaseCurrencyId, TargetCurrencyId),
+            FOREIGN KEY (BaseCurrencyId) REFERENCES Currencies(ID),
+            FOREIGN KEY (TargetCurrencyId) REFERENCES Currencies(ID))
+            """.formatted(dialect.getIdentity(), dialect.getRateType(), dialect.getTextType());
+
+        boolean created = false;
+        try (Connection conn = pool.getWriter(PREPARE_TIMER)) {
+            if (!dialect.tableExists(conn, "ExchangeRates")) {
+                try (Statement statement = conn.createStatement()) {
+                    statement.executeUpdate(createSql);
+                }
+                created = true;
+            }
+        }
+        if (!created) {
+            addExactRateColumnIfMissing();
+        }
+        historyDao.createTableIfMissing();
+        historyDao.addExactRateColumnIfMissing();
+    }
+
+    public void addExactRateColumnIfMissing() throws SQLException {
+        SqlDialect dialect = pool.getDialect();
+        String alterSql = "ALTER TABLE ExchangeRates ADD COLUMN RateExact " + dialect.getTextType();
+        String backfillSql = "UPDATE ExchangeRates SET RateExact = CAST(Rate AS VARCHAR) WHERE RateExact IS NULL";
+
+        try (Connection conn = pool.getWriter(MIGRATE_TIMER)) {
+            if (dialect.columnExists(conn, "ExchangeRates", "RateExact")) {
+                return;
+            }
+
+            conn.setAutoCommit(false);
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate(alterSql);
+                statement.executeUpdate(backfillSql);
+            }
+            conn.commit();
         }
     }
 
+    @Override
+    public void loadHistory(RateHistory history) throws SQLException {
+        historyDao.loadAll(history);
+    }
+
+    @Override
     public List<ExchangeRate> getAllExchangeRates() throws SQLException {
         List<ExchangeRate> rates = new ArrayList<>();
         String sql = """
-            SELECT er.ID, er.Rate,
+            SELECT er.ID, COALESCE(er.RateExact, CAST(er.Rate AS VARCHAR)) AS Rate,
                    bc.ID AS BaseCurrencyId, bc.Code AS BaseCurrencyCode, bc.FullName AS BaseCurrencyName, bc.Sign AS BaseCurrencySign,
                    tc.ID AS TargetCurrencyId, tc.Code AS TargetCurrencyCode, tc.FullName AS TargetCurrencyName, tc.Sign AS TargetCurrencySign
             FROM ExchangeRates er
@@ -30,74 +143,167 @@ public class ExchangeRateDao {
             JOIN Currencies tc ON er.TargetCurrencyId = tc.ID
             """;
 
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getReader(GET_ALL_TIMER);
              Statement statement = conn.createStatement();
              ResultSet rs = statement.executeQuery(sql)) {
 
             while (rs.next()) {
                 rates.add(new ExchangeRate(
                         rs.getInt("ID"),
-                        new Currency(rs.getInt("BaseCurrencyId"), rs.getString("BaseCurrencyCode"), rs.getString("BaseCurrencyName"), rs.getString("BaseCurrencySign")),
-                        new Currency(rs.getInt("TargetCurrencyId"), rs.getString("TargetCurrencyCode"), rs.getString("TargetCurrencyName"), rs.getString("TargetCurrencySign")),
-                        rs.getDouble("Rate")
+                        CurrencyRegistry.intern(rs.getInt("BaseCurrencyId"), rs.getString("BaseCurrencyCode"), rs.getString("BaseCurrencyName"), rs.getString("BaseCurrencySign")),
+                        CurrencyRegistry.intern(rs.getInt("TargetCurrencyId"), rs.getString("TargetCurrencyCode"), rs.getString("TargetCurrencyName"), rs.getString("TargetCurrencySign")),
+                        FixedDecimal.parse(rs.getString("Rate"))
                 ));
             }
         }
         return rates;
     }
 
+    @Override
+    public List<ExchangeRate> getExchangeRatesPage(int afterId, int limit, String baseCode, String targetCode) throws SQLException {
+        return readPage(GET_PAGE_TIMER, afterId, limit, baseCode, targetCode);
+    }
+
+    @Override
+    public void streamExchangeRates(String baseCode, String targetCode, RowSink<ExchangeRate> sink) throws SQLException, IOException {
+        int afterId = 0;
+        List<ExchangeRate> page;
+        do {
+            page = readPage(STREAM_TIMER, afterId, STREAM_PAGE_SIZE, baseCode, targetCode);
+            for (ExchangeRate rate : page) {
+                sink.accept(rate);
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    private List<ExchangeRate> readPage(LatencyHistogram timer, int afterId, int limit, String baseCode, String targetCode)
+            throws SQLException {
+        List<ExchangeRate> rates = new ArrayList<>(limit);
+        try (Connection conn = pool.getReader(timer);
+             PreparedStatement statement = conn.prepareStatement(filteredRatesSql(baseCode, targetCode) + " LIMIT ?")) {
+            int index = bindFilter(statement, afterId, baseCode, targetCode);
+            statement.setInt(index, limit);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    rates.add(mapResultSetToExchangeRate(rs));
+                }
+            }
+        }
+        return rates;
+    }
+
+    private static String filteredRatesSql(String baseCode, String targetCode) {
+        StringBuilder sql = new StringBuilder(SELECT_RATES_SQL);
+        if (baseCode != null) {
+            sql.append(" AND bc.Code = ?");
+        }
+        if (targetCode != null) {
+            sql.append(" AND tc.Code = ?");
+        }
+        return sql.append(" ORDER BY er.ID").toString();
+    }
+
+    private static int bindFilter(PreparedStatement statement, int afterId, String baseCode, String targetCode) throws SQLException {
+        int index = 1;
+        statement.setInt(index++, afterId);
+        if (baseCode != null) {
+            statement.setString(index++, baseCode);
+        }
+        if (targetCode != null) {
+            statement.setString(index++, targetCode);
+        }
+        return index;
+    }
+
+    @Override
     public ExchangeRate getExchangeRate(String baseCode, String targetCode) throws SQLException {
-        String sql = """
-            SELECT er.ID, er.Rate,
-                   bc.ID AS BaseCurrencyId, bc.Code AS BaseCurrencyCode, bc.FullName AS BaseCurrencyName, bc.Sign AS BaseCurrencySign,
-                   tc.ID AS TargetCurrencyId, tc.Code AS TargetCurrencyCode, tc.FullName AS TargetCurrencyName, tc.Sign AS TargetCurrencySign
-            FROM ExchangeRates er
-            JOIN Currencies bc ON er.BaseCurrencyId = bc.ID
-            JOIN Currencies tc ON er.TargetCurrencyId = tc.ID
-            WHERE bc.Code = ? AND tc.Code = ?
-            """;
+        try (Connection conn = pool.getReader(GET_TIMER)) {
+            return findExchangeRate(conn, baseCode, targetCode);
+        }
+    }
 
-        try (Connection conn = DriverManager.getConnection(url);
-            PreparedStatement statement = conn.prepareStatement(sql)) {
-            statement.setString(1, baseCode.toUpperCase());
-            statement.setString(2, targetCode.toUpperCase());
+    private ExchangeRate findExchangeRate(Connection conn, String baseCode, String targetCode) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(SELECT_BY_CODES_SQL)) {
+            statement.setString(1, baseCode);
+            statement.setString(2, targetCode);
 
             try (ResultSet rs = statement.executeQuery()) {
                 if (rs.next()) {
-                    return new ExchangeRate(
-                            rs.getInt("ID"),
-                            new Currency(rs.getInt("BaseCurrencyId"), rs.getString("BaseCurrencyCode"), rs.getString("BaseCurrencyName"), rs.getString("BaseCurrencySign")),
-                            new Currency(rs.getInt("TargetCurrencyId"), rs.getString("TargetCurrencyCode"), rs.getString("TargetCurrencyName"), rs.getString("TargetCurrencySign")),
-                            rs.getDouble("Rate")
-                    );
+                    return mapResultSetToExchangeRate(rs);
                 }
             }
         }
         return null;
     }
 
+    @Override
+    public List<ExchangeRate> findPairLegs(String baseCode, String targetCode, List<String> pivots) throws SQLException {
+        List<String> codes = new ArrayList<>(2 + pivots.size());
+        codes.add(baseCode);
+        codes.add(targetCode);
+        for (String pivot : pivots) {
+            if (!codes.contains(pivot)) {
+                codes.add(pivot);
+            }
+        }
+        String sql = SELECT_PAIR_LEGS_SQL.formatted(String.join(", ", Collections.nCopies(codes.size(), "?")));
+
+        List<ExchangeRate> legs = new ArrayList<>();
+        try (Connection conn = pool.getReader(LEGS_TIMER);
+             PreparedStatement statement = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int round = 0; round < 2; round++) {
+                for (String code : codes) {
+                    statement.setString(index++, code);
+                }
+            }
+            for (int round = 0; round < 2; round++) {
+                statement.setString(index++, codes.get(0));
+                statement.setString(index++, codes.get(1));
+            }
+
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    legs.add(mapResultSetToExchangeRate(rs));
+                }
+            }
+        }
+        return legs;
+    }
+
     public ExchangeRate addExchangeRate(String baseCurrencyCode, String targetCurrencyCode, double rate) throws SQLException {
+        return addExchangeRate(baseCurrencyCode, targetCurrencyCode, FixedDecimal.valueOf(rate), System.currentTimeMillis());
+    }
+
+    @Override
+    public ExchangeRate addExchangeRate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate, long changedAt) throws SQLException {
         String findCurrenciesSql = "SELECT ID, Code FROM Currencies WHERE Code IN (?, ?)";
         String insertExchangeRateSql = """
-            INSERT INTO ExchangeRates (BaseCurrencyId, TargetCurrencyId, Rate)
-            VALUES (?, ?, ?)
+            INSERT INTO ExchangeRates (BaseCurrencyId, TargetCurrencyId, Rate, RateExact)
+            VALUES (?, ?, ?, ?)
             """;
 
-        try (Connection conn = DriverManager.getConnection(url)) {
+        try (Connection conn = pool.getWriter(ADD_TIMER)) {
             conn.setAutoCommit(false);
 
             int baseCurrencyId = -1;
             int targetCurrencyId = -1;
+            int baseKey = CurrencyCode.pack(baseCurrencyCode);
+            int targetKey = CurrencyCode.pack(targetCurrencyCode);
 
             try (PreparedStatement findStatement = conn.prepareStatement(findCurrenciesSql)) {
-                findStatement.setString(1, baseCurrencyCode.toUpperCase());
-                findStatement.setString(2, targetCurrencyCode.toUpperCase());
+                findStatement.setString(1, CurrencyCode.unpack(baseKey));
+                findStatement.setString(2, CurrencyCode.unpack(targetKey));
 
                 try (ResultSet rs = findStatement.executeQuery()) {
                     while (rs.next()) {
-                        if (rs.getString("Code").equalsIgnoreCase(baseCurrencyCode)) {
+                        int key = CurrencyCode.pack(rs.getString("Code"));
+                        if (key == baseKey) {
                             baseCurrencyId = rs.getInt("ID");
-                        } else if (rs.getString("Code").equalsIgnoreCase(targetCurrencyCode)) {
+                        } else if (key == targetKey) {
                             targetCurrencyId = rs.getInt("ID");
                         }
                     }
@@ -112,35 +318,40 @@ public class ExchangeRateDao {
             try (PreparedStatement insertStatement = conn.prepareStatement(insertExchangeRateSql, Statement.RETURN_GENERATED_KEYS)) {
                 insertStatement.setInt(1, baseCurrencyId);
                 insertStatement.setInt(2, targetCurrencyId);
-                insertStatement.setDouble(3, rate);
+                insertStatement.setDouble(3, rate.doubleValue());
+                insertStatement.setString(4, rate.toString());
 
                 insertStatement.executeUpdate();
 
                 try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        int exchangeRateId = generatedKeys.getInt(1);
-
-                        return getExchangeRate(baseCurrencyCode, targetCurrencyCode);
-                    } else {
+                    if (!generatedKeys.next()) {
                         throw new SQLException("Не удалось получить ID нового обменного курса");
                     }
                 }
-            } finally {
+                ExchangeRate added = findExchangeRate(conn, baseCurrencyCode, targetCurrencyCode);
+                historyDao.record(conn, List.of(added), changedAt);
                 conn.commit();
+                DataVersion.bump();
+                return added;
             }
         }
     }
 
     public Optional<ExchangeRate> updateExchangeRate(String baseCurrencyCode, String targetCurrencyCode, double rate) throws SQLException {
+        return updateExchangeRate(baseCurrencyCode, targetCurrencyCode, FixedDecimal.valueOf(rate), System.currentTimeMillis());
+    }
+
+    @Override
+    public Optional<ExchangeRate> updateExchangeRate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate, long changedAt) throws SQLException {
         String updateQuery = """
             UPDATE ExchangeRates
-            SET Rate = ?
+            SET Rate = ?, RateExact = ?
             WHERE BaseCurrencyId = (SELECT ID FROM Currencies WHERE Code = ?)
             AND TargetCurrencyId = (SELECT ID FROM Currencies WHERE Code = ?)
         """;
 
         String selectQuery = """
-            SELECT er.ID, er.Rate,
+            SELECT er.ID, COALESCE(er.RateExact, CAST(er.Rate AS VARCHAR)) AS Rate,
                 bc.ID AS BaseCurrencyId, bc.Code AS BaseCurrencyCode, bc.FullName AS BaseCurrencyName, bc.Sign AS BaseCurrencySign,
                 tc.ID AS TargetCurrencyId, tc.Code AS TargetCurrencyCode, tc.FullName AS TargetCurrencyName, tc.Sign AS TargetCurrencySign
             FROM ExchangeRates er
@@ -149,39 +360,247 @@ public class ExchangeRateDao {
             WHERE bc.Code = ? AND tc.Code = ?
         """;
 
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getWriter(UPDATE_TIMER);
             PreparedStatement updateStatement = conn.prepareStatement(updateQuery);
             PreparedStatement selectStatement = conn.prepareStatement(selectQuery)) {
 
-            updateStatement.setDouble(1, rate);
-            updateStatement.setString(2, baseCurrencyCode);
-            updateStatement.setString(3, targetCurrencyCode);
+            conn.setAutoCommit(false);
+
+            updateStatement.setDouble(1, rate.doubleValue());
+            updateStatement.setString(2, rate.toString());
+            updateStatement.setString(3, baseCurrencyCode);
+            updateStatement.setString(4, targetCurrencyCode);
 
             int rowsUpdated = updateStatement.executeUpdate();
             if (rowsUpdated == 0) {
+                conn.rollback();
                 return Optional.empty();
             }
 
+            ExchangeRate updated = null;
             selectStatement.setString(1, baseCurrencyCode);
             selectStatement.setString(2, targetCurrencyCode);
             try (ResultSet rs = selectStatement.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapResultSetToExchangeRate(rs));
+                    updated = mapResultSetToExchangeRate(rs);
+                }
+            }
+            if (updated != null) {
+                historyDao.record(conn, List.of(updated), changedAt);
+            }
+
+            conn.commit();
+            DataVersion.bump();
+            return Optional.ofNullable(updated);
+        }
+    }
+
+    @Override
+    public List<ExchangeRate> updateExchangeRates(List<RateUpdate> updates, long changedAt) throws SQLException {
+        String updateQuery = """
+            UPDATE ExchangeRates
+            SET Rate = ?, RateExact = ?
+            WHERE BaseCurrencyId = (SELECT ID FROM Currencies WHERE Code = ?)
+            AND TargetCurrencyId = (SELECT ID FROM Currencies WHERE Code = ?)
+        """;
+
+        List<ExchangeRate> updated = new ArrayList<>(updates.size());
+        try (Connection conn = pool.getWriter(UPDATE_BATCH_TIMER)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement updateStatement = conn.prepareStatement(updateQuery)) {
+                for (RateUpdate update : updates) {
+                    updateStatement.setDouble(1, update.getExactRate().doubleValue());
+                    updateStatement.setString(2, update.getExactRate().toString());
+                    updateStatement.setString(3, update.getBaseCurrencyCode());
+                    updateStatement.setString(4, update.getTargetCurrencyCode());
+                    updateStatement.addBatch();
+                }
+
+                int[] counts = updateStatement.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] != 0) {
+                        RateUpdate update = updates.get(i);
+                        ExchangeRate rate = findExchangeRate(conn, update.getBaseCurrencyCode(), update.getTargetCurrencyCode());
+                        if (rate != null) {
+                            updated.add(rate);
+                        }
+                    }
                 }
             }
+
+            if (updated.isEmpty()) {
+                conn.rollback();
+                return updated;
+            }
+            historyDao.record(conn, updated, changedAt);
+            conn.commit();
+            DataVersion.bump();
         }
-        return Optional.empty();
+        return updated;
+    }
+
+    public BulkUpsertResult upsertExchangeRates(List<RateUpdate> updates) throws SQLException {
+        return upsertExchangeRates(updates, System.currentTimeMillis());
+    }
+
+    @Override
+    public BulkUpsertResult upsertExchangeRates(List<RateUpdate> updates, long changedAt) throws SQLException {
+        String maxIdSql = "SELECT COALESCE(MAX(ID), 0) FROM ExchangeRates";
+        String upsertSql = pool.getDialect().getUpsertRateSql();
+        String insertedSql = "SELECT ID, BaseCurrencyId, TargetCurrencyId FROM ExchangeRates WHERE ID > ?";
+        String existingSql = "SELECT ID FROM ExchangeRates WHERE BaseCurrencyId = ? AND TargetCurrencyId = ?";
+
+        BulkUpsertResult result = new BulkUpsertResult(updates.size());
+
+        try (Connection conn = pool.getWriter(UPSERT_TIMER)) {
+            conn.setAutoCommit(false);
+
+            List<Currency> currencies = findCurrencies(conn, updates);
+            IntIntMap currencyIndex = new IntIntMap(currencies.size());
+            for (int i = 0; i < currencies.size(); i++) {
+                currencyIndex.put(currencies.get(i).getCodeKey(), i);
+            }
+
+            Map<Long, ExchangeRate> accepted = new LinkedHashMap<>();
+            for (int i = 0; i < updates.size(); i++) {
+                RateUpdate update = updates.get(i);
+                if (update.getBaseCurrencyCode() == null || update.getTargetCurrencyCode() == null) {
+                    result.reject(i, "Отсутствует одно или несколько полей");
+                    continue;
+                }
+
+                int baseIndex = currencyIndex.get(CurrencyCode.pack(update.getBaseCurrencyCode()));
+                int targetIndex = currencyIndex.get(CurrencyCode.pack(update.getTargetCurrencyCode()));
+                Currency base = baseIndex < 0 ? null : currencies.get(baseIndex);
+                Currency target = targetIndex < 0 ? null : currencies.get(targetIndex);
+                if (base == null || target == null) {
+                    result.reject(i, "Одна или обе валюты не найдены в базе данных");
+                } else if (base.getId() == target.getId()) {
+                    result.reject(i, "Валюты пары совпадают");
+                } else if (!update.hasValidRate()) {
+                    result.reject(i, "Некоректный параметр rate");
+                } else {
+                    long key = pairKey(base.getId(), target.getId());
+                    accepted.remove(key);
+                    accepted.put(key, new ExchangeRate(0, base, target, update.getExactRate()));
+                }
+            }
+
+            if (accepted.isEmpty()) {
+                conn.rollback();
+                return result;
+            }
+
+            int maxId;
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery(maxIdSql)) {
+                maxId = rs.next() ? rs.getInt(1) : 0;
+            }
+
+            try (PreparedStatement upsertStatement = conn.prepareStatement(upsertSql)) {
+                for (ExchangeRate rate : accepted.values()) {
+                    upsertStatement.setInt(1, rate.getBaseCurrency().getId());
+                    upsertStatement.setInt(2, rate.getTargetCurrency().getId());
+                    upsertStatement.setDouble(3, rate.getRate());
+                    upsertStatement.setString(4, rate.getExactRate().toString());
+                    upsertStatement.addBatch();
+                }
+                upsertStatement.executeBatch();
+            }
+            historyDao.record(conn, accepted.values(), changedAt);
+
+            Map<Long, Integer> insertedIds = new HashMap<>();
+            try (PreparedStatement insertedStatement = conn.prepareStatement(insertedSql)) {
+                insertedStatement.setInt(1, maxId);
+                try (ResultSet rs = insertedStatement.executeQuery()) {
+                    while (rs.next()) {
+                        insertedIds.put(pairKey(rs.getInt("BaseCurrencyId"), rs.getInt("TargetCurrencyId")), rs.getInt("ID"));
+                    }
+                }
+            }
+
+            List<ExchangeRate> updated = new ArrayList<>(accepted.size() - insertedIds.size());
+            try (PreparedStatement existingStatement = conn.prepareStatement(existingSql)) {
+                for (Map.Entry<Long, ExchangeRate> entry : accepted.entrySet()) {
+                    ExchangeRate rate = entry.getValue();
+                    Integer insertedId = insertedIds.get(entry.getKey());
+                    if (insertedId != null) {
+                        entry.setValue(new ExchangeRate(insertedId, rate.getBaseCurrency(), rate.getTargetCurrency(), rate.getExactRate()));
+                        continue;
+                    }
+                    existingStatement.setInt(1, rate.getBaseCurrency().getId());
+                    existingStatement.setInt(2, rate.getTargetCurrency().getId());
+                    try (ResultSet rs = existingStatement.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new SQLException("Не удалось получить ID обменного курса");
+                        }
+                        entry.setValue(new ExchangeRate(rs.getInt("ID"), rate.getBaseCurrency(), rate.getTargetCurrency(), rate.getExactRate()));
+                    }
+                }
+            }
+
+            conn.commit();
+            DataVersion.bump();
+
+            for (Map.Entry<Long, ExchangeRate> entry : accepted.entrySet()) {
+                if (insertedIds.containsKey(entry.getKey())) {
+                    result.addInserted(entry.getValue());
+                } else {
+                    result.addUpdated(entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Currency> findCurrencies(Connection conn, List<RateUpdate> updates) throws SQLException {
+        List<String> codes = new ArrayList<>();
+        IntIntMap seen = new IntIntMap(64);
+        for (RateUpdate update : updates) {
+            for (String code : new String[]{update.getBaseCurrencyCode(), update.getTargetCurrencyCode()}) {
+                int key = code == null ? CurrencyCode.NONE : CurrencyCode.pack(code);
+                if (key != CurrencyCode.NONE && seen.get(key) < 0) {
+                    seen.put(key, codes.size());
+                    codes.add(CurrencyCode.unpack(key));
+                }
+            }
+        }
+
+        List<Currency> currencies = new ArrayList<>(codes.size());
+        for (int from = 0; from < codes.size(); from += CODE_LOOKUP_CHUNK) {
+            List<String> chunk = codes.subList(from, Math.min(codes.size(), from + CODE_LOOKUP_CHUNK));
+            String sql = "SELECT ID, Code, FullName, Sign FROM Currencies WHERE Code IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement statement = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        Currency currency = CurrencyRegistry.intern(rs.getInt("ID"), rs.getString("Code"), rs.getString("FullName"), rs.getString("Sign"));
+                        if (currency.getCodeKey() != CurrencyCode.NONE) {
+                            currencies.add(currency);
+                        }
+                    }
+                }
+            }
+        }
+        return currencies;
+    }
+
+    private static long pairKey(int baseCurrencyId, int targetCurrencyId) {
+        return ((long) baseCurrencyId << 32) | (targetCurrencyId & 0xFFFFFFFFL);
     }
 
     private ExchangeRate mapResultSetToExchangeRate(ResultSet rs) throws SQLException {
-        Currency baseCurrency = new Currency(
+        Currency baseCurrency = CurrencyRegistry.intern(
                 rs.getInt("BaseCurrencyId"),
                 rs.getString("BaseCurrencyCode"),
                 rs.getString("BaseCurrencyName"),
                 rs.getString("BaseCurrencySign")
         );
 
-        Currency targetCurrency = new Currency(
+        Currency targetCurrency = CurrencyRegistry.intern(
                 rs.getInt("TargetCurrencyId"),
                 rs.getString("TargetCurrencyCode"),
                 rs.getString("TargetCurrencyName"),
@@ -192,7 +611,7 @@ public class ExchangeRateDao {
                 rs.getInt("ID"),
                 baseCurrency,
                 targetCurrency,
-                rs.getDouble("Rate")
+                FixedDecimal.parse(rs.getString("Rate"))
         );
     }
 }
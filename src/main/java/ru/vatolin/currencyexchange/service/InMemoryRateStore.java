@@ -0,0 +1,252 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.BulkUpsertResult;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InMemoryRateStore implements CurrencyStore, RateStore {
+    private static final Comparator<ExchangeRate> BY_ID = Comparator.comparingInt(ExchangeRate::getId);
+
+    private final ConcurrentHashMap<Integer, Currency> currencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ExchangeRate> rates = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCurrencyId = new AtomicInteger(1);
+    private final AtomicInteger nextRateId = new AtomicInteger(1);
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public List<Currency> getAllCurrencies() {
+        List<Currency> all = new ArrayList<>(currencies.values());
+        all.sort(Comparator.comparingInt(Currency::getId));
+        return all;
+    }
+
+    @Override
+    public List<Currency> getCurrenciesPage(int afterId, int limit) {
+        List<Currency> page = new ArrayList<>(limit);
+        for (Currency currency : getAllCurrencies()) {
+            if (currency.getId() > afterId) {
+                page.add(currency);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Currency getCurrencyByCode(String code) {
+        return currencies.get(CurrencyCode.pack(code));
+    }
+
+    @Override
+    public Currency addCurrency(Currency currency) throws SQLException {
+        int codeKey = CurrencyCode.pack(currency.getCode());
+        if (codeKey == CurrencyCode.NONE) {
+            throw new SQLException("Некорректный код валюты");
+        }
+        if (currencies.containsKey(codeKey)) {
+            throw new SQLException("Валюта с таким кодом уже существует");
+        }
+        Currency added = CurrencyRegistry.intern(nextCurrencyId.getAndIncrement(), CurrencyCode.unpack(codeKey),
+                currency.getFullName(), currency.getSign());
+        if (currencies.putIfAbsent(codeKey, added) != null) {
+            throw new SQLException("Валюта с таким кодом уже существует");
+        }
+        DataVersion.bump();
+        return added;
+    }
+
+    @Override
+    public List<ExchangeRate> getAllExchangeRates() {
+        List<ExchangeRate> all = new ArrayList<>(rates.values());
+        all.sort(BY_ID);
+        return all;
+    }
+
+    @Override
+    public List<ExchangeRate> getExchangeRatesPage(int afterId, int limit, String baseCode, String targetCode) {
+        List<ExchangeRate> page = new ArrayList<>(limit);
+        for (ExchangeRate rate : filtered(baseCode, targetCode)) {
+            if (rate.getId() > afterId) {
+                page.add(rate);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void streamExchangeRates(String baseCode, String targetCode, RowSink<ExchangeRate> sink) throws IOException {
+        for (ExchangeRate rate : filtered(baseCode, targetCode)) {
+            sink.accept(rate);
+        }
+    }
+
+    private List<ExchangeRate> filtered(String baseCode, String targetCode) {
+        int base = baseCode == null ? CurrencyCode.NONE : CurrencyCode.pack(baseCode);
+        int target = targetCode == null ? CurrencyCode.NONE : CurrencyCode.pack(targetCode);
+        List<ExchangeRate> matching = new ArrayList<>();
+        for (ExchangeRate rate : rates.values()) {
+            if ((baseCode == null || rate.getBaseCurrency().getCodeKey() == base)
+                    && (targetCode == null || rate.getTargetCurrency().getCodeKey() == target)) {
+                matching.add(rate);
+            }
+        }
+        matching.sort(BY_ID);
+        return matching;
+    }
+
+    @Override
+    public ExchangeRate getExchangeRate(String baseCode, String targetCode) {
+        return rates.get(CurrencyCode.pairKey(CurrencyCode.pack(baseCode), CurrencyCode.pack(targetCode)));
+    }
+
+    @Override
+    public List<ExchangeRate> findPairLegs(String baseCode, String targetCode, List<String> pivots) {
+        int base = CurrencyCode.pack(baseCode);
+        int target = CurrencyCode.pack(targetCode);
+        List<ExchangeRate> legs = new ArrayList<>(2 + 4 * pivots.size());
+        addLeg(legs, base, target);
+        addLeg(legs, target, base);
+        for (String pivotCode : pivots) {
+            int pivot = CurrencyCode.pack(pivotCode);
+            if (pivot == base || pivot == target) {
+                continue;
+            }
+            addLeg(legs, base, pivot);
+            addLeg(legs, pivot, base);
+            addLeg(legs, target, pivot);
+            addLeg(legs, pivot, target);
+        }
+        return legs;
+    }
+
+    private void addLeg(List<ExchangeRate> legs, int baseCode, int targetCode) {
+        ExchangeRate rate = rates.get(CurrencyCode.pairKey(baseCode, targetCode));
+        if (rate != null) {
+            legs.add(rate);
+        }
+    }
+
+    @Override
+    public ExchangeRate addExchangeRate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate, long changedAt)
+            throws SQLException {
+        Currency base = currencies.get(CurrencyCode.pack(baseCurrencyCode));
+        Currency target = currencies.get(CurrencyCode.pack(targetCurrencyCode));
+        if (base == null || target == null) {
+            throw new SQLException("Одна или обе валюты не найдены в базе данных");
+        }
+        long key = CurrencyCode.pairKey(base.getCodeKey(), target.getCodeKey());
+        if (rates.containsKey(key)) {
+            throw new SQLException("Обменный курс уже существует");
+        }
+        ExchangeRate added = new ExchangeRate(nextRateId.getAndIncrement(), base, target, rate);
+        if (rates.putIfAbsent(key, added) != null) {
+            throw new SQLException("Обменный курс уже существует");
+        }
+        DataVersion.bump();
+        return added;
+    }
+
+    @Override
+    public Optional<ExchangeRate> updateExchangeRate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate,
+                                                     long changedAt) {
+        long key = CurrencyCode.pairKey(CurrencyCode.pack(baseCurrencyCode), CurrencyCode.pack(targetCurrencyCode));
+        ExchangeRate updated = rates.computeIfPresent(key, (ignored, existing) ->
+                new ExchangeRate(existing.getId(), existing.getBaseCurrency(), existing.getTargetCurrency(), rate));
+        if (updated == null) {
+            return Optional.empty();
+        }
+        DataVersion.bump();
+        return Optional.of(updated);
+    }
+
+    @Override
+    public List<ExchangeRate> updateExchangeRates(List<RateUpdate> updates, long changedAt) {
+        List<ExchangeRate> updated = new ArrayList<>(updates.size());
+        for (RateUpdate update : updates) {
+            long key = CurrencyCode.pairKey(CurrencyCode.pack(update.getBaseCurrencyCode()), CurrencyCode.pack(update.getTargetCurrencyCode()));
+            ExchangeRate rate = rates.computeIfPresent(key, (ignored, existing) ->
+                    new ExchangeRate(existing.getId(), existing.getBaseCurrency(), existing.getTargetCurrency(), update.getExactRate()));
+            if (rate != null) {
+                updated.add(rate);
+            }
+        }
+        if (!updated.isEmpty()) {
+            DataVersion.bump();
+        }
+        return updated;
+    }
+
+    @Override
+    public BulkUpsertResult upsertExchangeRates(List<RateUpdate> updates, long changedAt) {
+        BulkUpsertResult result = new BulkUpsertResult(updates.size());
+        Map<Long, ExchangeRate> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            RateUpdate update = updates.get(i);
+            if (update.getBaseCurrencyCode() == null || update.getTargetCurrencyCode() == null) {
+                result.reject(i, "Отсутствует одно или несколько полей");
+                continue;
+            }
+
+            Currency base = currencies.get(CurrencyCode.pack(update.getBaseCurrencyCode()));
+            Currency target = currencies.get(CurrencyCode.pack(update.getTargetCurrencyCode()));
+            if (base == null || target == null) {
+                result.reject(i, "Одна или обе валюты не найдены в базе данных");
+            } else if (base.getId() == target.getId()) {
+                result.reject(i, "Валюты пары совпадают");
+            } else if (!update.hasValidRate()) {
+                result.reject(i, "Некоректный параметр rate");
+            } else {
+                long key = CurrencyCode.pairKey(base.getCodeKey(), target.getCodeKey());
+                accepted.remove(key);
+                accepted.put(key, new ExchangeRate(0, base, target, update.getExactRate()));
+            }
+        }
+
+        List<ExchangeRate> stored = new ArrayList<>(accepted.size());
+        for (Map.Entry<Long, ExchangeRate> entry : accepted.entrySet()) {
+            ExchangeRate rate = entry.getValue();
+            boolean[] inserted = new boolean[1];
+            ExchangeRate merged = rates.compute(entry.getKey(), (ignored, existing) -> {
+                inserted[0] = existing == null;
+                int id = existing != null ? existing.getId() : nextRateId.getAndIncrement();
+                return new ExchangeRate(id, rate.getBaseCurrency(), rate.getTargetCurrency(), rate.getExactRate());
+            });
+            if (inserted[0]) {
+                result.addInserted(merged);
+            } else {
+                result.addUpdated(merged);
+            }
+            stored.add(merged);
+        }
+        if (!stored.isEmpty()) {
+            DataVersion.bump();
+        }
+        return result;
+    }
+
+    @Override
+    public void loadHistory(RateHistory target) {
+    }
+}
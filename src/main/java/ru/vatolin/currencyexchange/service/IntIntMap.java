@@ -0,0 +1,90 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.util.Arrays;
+
+final class IntIntMap {
+    static final int MISSING = -1;
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    IntIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private IntIntMap(IntIntMap source) {
+        keys = source.keys.clone();
+        values = source.values.clone();
+        mask = source.mask;
+        size = source.size;
+    }
+
+    IntIntMap copy() {
+        return new IntIntMap(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int key) {
+        if (key == EMPTY) {
+            return MISSING;
+        }
+        int slot = slot(key);
+        while (true) {
+            int current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    void put(int key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Недопустимый ключ");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private int slot(int key) {
+        return (key * 0x9E3779B9 >>> 16 ^ key * 0x9E3779B9) & mask;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.nio.file.Path;
+import java.util.function.UnaryOperator;
+
+public class JournalConfig {
+    private static final String SQLITE_PREFIX = "jdbc:sqlite:";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final long checkpointIntervalMillis;
+    private final long groupCommitMicros;
+
+    public JournalConfig(boolean enabled, Path directory, int segmentBytes, long checkpointIntervalMillis, long groupCommitMicros) {
+        if (segmentBytes < 4096) {
+            throw new IllegalArgumentException("Размер сегмента журнала должен быть не меньше 4096 байт");
+        }
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+        this.groupCommitMicros = groupCommitMicros;
+    }
+
+    public static JournalConfig fromSystem() {
+        return from(key -> null);
+    }
+
+    public static JournalConfig from(UnaryOperator<String> overrides) {
+        UnaryOperator<String> source = DatabaseConfig.lookup(overrides);
+
+        String mode = DatabaseConfig.stringValue(source.apply("currency.persistence"), "sqlite");
+        if (!mode.equalsIgnoreCase("sqlite") && !mode.equalsIgnoreCase("journal")) {
+            throw new IllegalArgumentException("Неизвестный режим хранения: " + mode);
+        }
+
+        String directory = source.apply("currency.journal.dir");
+        return new JournalConfig(
+                mode.equalsIgnoreCase("journal"),
+                directory != null ? Path.of(directory) : defaultDirectory(DatabaseConfig.from(overrides).getUrl()),
+                DatabaseConfig.intValue(source.apply("currency.journal.segmentBytes"), 64 * 1024 * 1024),
+                DatabaseConfig.longValue(source.apply("currency.journal.checkpointIntervalMs"), 60_000),
+                DatabaseConfig.longValue(source.apply("currency.journal.groupCommitMicros"), 200)
+        );
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    public long getGroupCommitMicros() {
+        return groupCommitMicros;
+    }
+
+    private static Path defaultDirectory(String url) {
+        if (url.startsWith(SQLITE_PREFIX)) {
+            String file = url.substring(SQLITE_PREFIX.length());
+            int query = file.indexOf('?');
+            if (query >= 0) {
+                file = file.substring(0, query);
+            }
+            if (!file.isEmpty() && !file.startsWith(":memory:") && !file.startsWith("file:")) {
+                Path parent = Path.of(file).toAbsolutePath().getParent();
+                if (parent != null) {
+                    return parent.resolve("journal");
+                }
+            }
+        }
+        return Path.of("journal");
+    }
+}
@@ -0,0 +1,730 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.BulkUpsertResult;
+import ru.vatolin.currencyexchange.model.ChangeSet;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.ExchangeResult;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class RateBook implements AutoCloseable {
+    private static final int WRITE_BATCH = 256;
+    private static final int CHANGE_LOG_CAPACITY = 65536;
+
+    private static volatile RateBook instance;
+
+    private final CurrencyStore currencyStore;
+    private final RateStore rateStore;
+    private final CrossRateResolver resolver;
+    private final RateJournal journal;
+    private final RateWriter writer;
+    private final boolean readThrough;
+    private final RateHistory history = new RateHistory();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final ScheduledExecutorService checkpoints;
+    private final List<RateChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ChangeLog changes;
+    private final ArrayDeque<Staged> pending = new ArrayDeque<>();
+    private volatile RateBookSnapshot snapshot;
+    private RateBookSnapshot staged;
+    private volatile boolean readOnly;
+    private int nextCurrencyId = 1;
+    private int nextRateId = 1;
+
+    public RateBook(CurrencyStore currencyStore, RateStore rateStore, CrossRateResolver resolver) throws SQLException {
+        this(currencyStore, rateStore, resolver, null, 0);
+    }
+
+    public RateBook(CurrencyStore currencyStore, RateStore rateStore, CrossRateResolver resolver,
+                    RateJournal journal, long checkpointIntervalMillis) throws SQLException {
+        this(currencyStore, rateStore, resolver, journal, checkpointIntervalMillis, false);
+    }
+
+    public RateBook(CurrencyStore currencyStore, RateStore rateStore, CrossRateResolver resolver,
+                    RateJournal journal, long checkpointIntervalMillis, boolean readThrough) throws SQLException {
+        this.currencyStore = currencyStore;
+        this.rateStore = rateStore;
+        this.resolver = resolver;
+        this.journal = journal;
+        this.readThrough = readThrough && journal == null;
+
+        RateBookSnapshot initial = null;
+        if (journal != null) {
+            try {
+                initial = journal.recover(history);
+            } catch (IOException e) {
+                throw new SQLException("Не удалось восстановить журнал курсов", e);
+            }
+        }
+        if (initial == null) {
+            currencyStore.prepare();
+            rateStore.prepare();
+            rateStore.loadHistory(history);
+            initial = RateBookSnapshot.of(currencyStore.getAllCurrencies(), rateStore.getAllExchangeRates());
+        }
+        snapshot = initial;
+        staged = initial;
+        changes = new ChangeLog(CHANGE_LOG_CAPACITY, initial.getVersion());
+        resolver.rebuild(initial);
+
+        if (journal == null) {
+            writer = new RateWriter(this::applyUpdates, WRITE_BATCH);
+            checkpoints = null;
+            return;
+        }
+        writer = null;
+
+        for (Currency currency : initial.getCurrencies()) {
+            nextCurrencyId = Math.max(nextCurrencyId, currency.getId() + 1);
+        }
+        for (ExchangeRate rate : initial.getExchangeRates()) {
+            nextRateId = Math.max(nextRateId, rate.getId() + 1);
+        }
+
+        checkpoints = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-journal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (checkpointIntervalMillis > 0) {
+            checkpoints.scheduleWithFixedDelay(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Ошибка: " + e.getMessage());
+                }
+            }, checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static RateBook getInstance() {
+        RateBook book = instance;
+        if (book == null) {
+            synchronized (RateBook.class) {
+                book = instance;
+                if (book == null) {
+                    book = init(JournalConfig.fromSystem());
+                }
+            }
+        }
+        return book;
+    }
+
+    public static synchronized RateBook init(JournalConfig config) {
+        return init(StorageConfig.fromSystem(), config);
+    }
+
+    public static synchronized RateBook init(StorageConfig storageConfig, JournalConfig config) {
+        shutdown();
+        instance = open(storageConfig, config);
+        return instance;
+    }
+
+    public static RateBook open(StorageConfig storageConfig, JournalConfig config) {
+        RateJournal journal = null;
+        RateBook book = null;
+        try {
+            Storage storage = Storage.open(storageConfig);
+            if (config.isEnabled()) {
+                journal = new RateJournal(config);
+            }
+            book = new RateBook(storage.getCurrencies(), storage.getRates(),
+                    CrossRateResolver.fromSystem(), journal, config.getCheckpointIntervalMillis(),
+                    storageConfig.isReadThrough());
+            book.checkpoint();
+            return book;
+        } catch (IOException | SQLException e) {
+            if (book != null) {
+                book.close();
+            } else if (journal != null) {
+                journal.close();
+            }
+            throw new RuntimeException("Не удалось загрузить справочник курсов", e);
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    public RateBookSnapshot snapshot() {
+        return snapshot;
+    }
+
+    public boolean isReadThrough() {
+        return readThrough;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public List<Currency> listCurrencies(RateBookSnapshot view, int afterId, int limit) {
+        if (!readThrough) {
+            return view.currenciesAfter(afterId, limit);
+        }
+        try {
+            return currencyStore.getCurrenciesPage(afterId, limit);
+        } catch (SQLException e) {
+            throw new RuntimeException("Не удалось загрузить страницу валют", e);
+        }
+    }
+
+    public List<ExchangeRate> listRates(RateBookSnapshot view, int afterId, int limit,
+                                        String baseCurrencyCode, String targetCurrencyCode) {
+        if (!readThrough) {
+            return view.ratesAfter(afterId, limit, filterCode(baseCurrencyCode), filterCode(targetCurrencyCode));
+        }
+        try {
+            return rateStore.getExchangeRatesPage(afterId, limit, canonical(baseCurrencyCode), canonical(targetCurrencyCode));
+        } catch (SQLException e) {
+            throw new RuntimeException("Не удалось загрузить страницу курсов", e);
+        }
+    }
+
+    public void streamRates(RateBookSnapshot view, String baseCurrencyCode, String targetCurrencyCode,
+                            RowSink<ExchangeRate> sink) throws IOException {
+        if (!readThrough) {
+            for (ExchangeRate rate : view.ratesAfter(0, Integer.MAX_VALUE,
+                    filterCode(baseCurrencyCode), filterCode(targetCurrencyCode))) {
+                sink.accept(rate);
+            }
+            return;
+        }
+        try {
+            rateStore.streamExchangeRates(canonical(baseCurrencyCode), canonical(targetCurrencyCode), sink);
+        } catch (SQLException e) {
+            throw new RuntimeException("Не удалось загрузить курсы", e);
+        }
+    }
+
+    public ExchangeRate findRate(String baseCurrencyCode, String targetCurrencyCode) {
+        return findRate(snapshot, baseCurrencyCode, targetCurrencyCode);
+    }
+
+    public ExchangeRate findRate(RateBookSnapshot view, String baseCurrencyCode, String targetCurrencyCode) {
+        if (readThrough) {
+            return resolver.resolve(legs(baseCurrencyCode, targetCurrencyCode), baseCurrencyCode, targetCurrencyCode);
+        }
+        return resolver.resolve(view, baseCurrencyCode, targetCurrencyCode);
+    }
+
+    public ExchangeRate findRate(RateBookSnapshot view, int baseCurrencyCode, int targetCurrencyCode) {
+        if (readThrough) {
+            if (baseCurrencyCode == CurrencyCode.NONE || targetCurrencyCode == CurrencyCode.NONE) {
+                return null;
+            }
+            return findRate(view, CurrencyCode.unpack(baseCurrencyCode), CurrencyCode.unpack(targetCurrencyCode));
+        }
+        return resolver.resolve(view, baseCurrencyCode, targetCurrencyCode);
+    }
+
+    public ExchangeRate findRateAt(RateBookSnapshot view, String baseCurrencyCode, String targetCurrencyCode, long timestamp) {
+        return resolver.resolveAt(view, history, baseCurrencyCode, targetCurrencyCode, timestamp);
+    }
+
+    public RateHistory history() {
+        return history;
+    }
+
+    public void addChangeListener(RateChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(RateChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public String getRunId() {
+        return changes.getRunId();
+    }
+
+    public ChangeSet changesSince(String runId, long version) {
+        return changes.since(runId, version, snapshot);
+    }
+
+    public CompletableFuture<Void> nextChange() {
+        return changes.nextPublished();
+    }
+
+    public ExchangeResult exchange(RateBookSnapshot view, String baseCurrencyCode, String targetCurrencyCode, double amount) {
+        return exchange(view, baseCurrencyCode, targetCurrencyCode, FixedDecimal.valueOf(amount));
+    }
+
+    public ExchangeResult exchange(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal amount) {
+        RateBookSnapshot view = readThrough ? legs(baseCurrencyCode, targetCurrencyCode) : snapshot;
+        return exchange(view, baseCurrencyCode, targetCurrencyCode, amount);
+    }
+
+    public ExchangeResult exchange(RateBookSnapshot view, String baseCurrencyCode, String targetCurrencyCode,
+                                   FixedDecimal amount) {
+        return resolver.exchange(view, CurrencyCode.pack(baseCurrencyCode), CurrencyCode.pack(targetCurrencyCode), amount);
+    }
+
+    public ExchangeResult exchangeAt(RateBookSnapshot view, String baseCurrencyCode, String targetCurrencyCode,
+                                     double amount, long timestamp) {
+        return exchangeAt(view, baseCurrencyCode, targetCurrencyCode, FixedDecimal.valueOf(amount), timestamp);
+    }
+
+    public ExchangeResult exchangeAt(RateBookSnapshot view, String baseCurrencyCode, String targetCurrencyCode,
+                                     FixedDecimal amount, long timestamp) {
+        return resolver.exchangeAt(view, history, CurrencyCode.pack(baseCurrencyCode), CurrencyCode.pack(targetCurrencyCode),
+                amount, timestamp);
+    }
+
+    private static String canonical(String code) {
+        return code == null ? null : CurrencyCode.canonical(code);
+    }
+
+    private static List<RateUpdate> canonical(List<RateUpdate> updates) {
+        List<RateUpdate> canonical = new ArrayList<>(updates.size());
+        for (RateUpdate update : updates) {
+            String base = canonical(update.getBaseCurrencyCode());
+            String target = canonical(update.getTargetCurrencyCode());
+            canonical.add(Objects.equals(base, update.getBaseCurrencyCode()) && Objects.equals(target, update.getTargetCurrencyCode())
+                    ? update
+                    : new RateUpdate(base, target, update.getExactRate()));
+        }
+        return canonical;
+    }
+
+    private static int filterCode(String code) {
+        if (code == null) {
+            return CurrencyCode.NONE;
+        }
+        int packed = CurrencyCode.pack(code);
+        if (packed == CurrencyCode.NONE) {
+            throw new IllegalArgumentException("Некорректный код валюты: " + code);
+        }
+        return packed;
+    }
+
+    private List<ExchangeRate> applyUpdates(List<RateUpdate> updates) throws SQLException {
+        writeLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            List<ExchangeRate> updated = rateStore.updateExchangeRates(updates, now);
+            if (!updated.isEmpty()) {
+                for (ExchangeRate exchangeRate : updated) {
+                    appendHistory(exchangeRate, now);
+                }
+                publishRates(snapshot.withExchangeRates(updated), updated);
+            }
+            return updated;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private RateBookSnapshot legs(String baseCurrencyCode, String targetCurrencyCode) {
+        List<ExchangeRate> legs;
+        try {
+            legs = rateStore.findPairLegs(canonical(baseCurrencyCode), canonical(targetCurrencyCode), resolver.getPivots());
+        } catch (SQLException e) {
+            throw new RuntimeException("Не удалось загрузить курсы пары " + baseCurrencyCode + "/" + targetCurrencyCode, e);
+        }
+        Map<Integer, Currency> currencies = new LinkedHashMap<>();
+        for (ExchangeRate leg : legs) {
+            currencies.putIfAbsent(leg.getBaseCurrency().getId(), leg.getBaseCurrency());
+            currencies.putIfAbsent(leg.getTargetCurrency().getId(), leg.getTargetCurrency());
+        }
+        return RateBookSnapshot.of(new ArrayList<>(currencies.values()), legs);
+    }
+
+    public void reload() throws SQLException {
+        if (journal != null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            RateBookSnapshot reloaded = RateBookSnapshot.of(currencyStore.getAllCurrencies(), rateStore.getAllExchangeRates());
+            changes.reset(reloaded.getVersion());
+            publish(reloaded);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Currency addCurrency(Currency requested) throws SQLException {
+        String code = canonical(requested.getCode());
+        Currency currency = Objects.equals(code, requested.getCode())
+                ? requested
+                : new Currency(requested.getId(), code, requested.getFullName(), requested.getSign());
+        if (journal != null) {
+            return journaled(now -> {
+                if (staged.getCurrency(currency.getCode()) != null) {
+                    throw new SQLException("Валюта с таким кодом уже существует");
+                }
+                Currency added = CurrencyRegistry.intern(nextCurrencyId, currency.getCode(), currency.getFullName(), currency.getSign());
+                long position = journal.appendCurrency(added);
+                nextCurrencyId++;
+                DataVersion.bump();
+                staged = staged.withCurrency(added);
+                pending.add(new Staged(position, staged, now, added, List.of()));
+                return new Journaled<>(added, position);
+            });
+        }
+
+        return RateWriter.await(writer.submit(() -> {
+            writeLock.lock();
+            try {
+                Currency added = currencyStore.addCurrency(currency);
+                RateBookSnapshot next = snapshot.withCurrency(added);
+                changes.appendCurrency(added, next.getVersion());
+                publish(next);
+                return added;
+            } finally {
+                writeLock.unlock();
+            }
+        }));
+    }
+
+    public ExchangeRate addExchangeRate(String baseCurrencyCode, String targetCurrencyCode, double rate) throws SQLException {
+        return addExchangeRate(baseCurrencyCode, targetCurrencyCode, FixedDecimal.valueOf(rate));
+    }
+
+    public ExchangeRate addExchangeRate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate) throws SQLException {
+        if (journal != null) {
+            return journaled(now -> {
+                Currency base = staged.getCurrency(baseCurrencyCode);
+                Currency target = staged.getCurrency(targetCurrencyCode);
+                if (base == null || target == null) {
+                    throw new SQLException("Одна или обе валюты не найдены в базе данных");
+                }
+                if (staged.getExchangeRate(baseCurrencyCode, targetCurrencyCode) != null) {
+                    throw new SQLException("Обменный курс уже существует");
+                }
+                ExchangeRate added = new ExchangeRate(nextRateId, base, target, rate);
+                long position = stageRates(List.of(added), now);
+                nextRateId++;
+                return new Journaled<>(added, position);
+            });
+        }
+
+        return RateWriter.await(writer.submit(() -> {
+            writeLock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                ExchangeRate added = rateStore.addExchangeRate(canonical(baseCurrencyCode), canonical(targetCurrencyCode), rate, now);
+                if (added != null) {
+                    appendHistory(added, now);
+                    publishRates(snapshot.withExchangeRate(added), List.of(added));
+                }
+                return added;
+            } finally {
+                writeLock.unlock();
+            }
+        }));
+    }
+
+    public Optional<ExchangeRate> updateExchangeRate(String baseCurrencyCode, String targetCurrencyCode, double rate) throws SQLException {
+        return updateExchangeRate(baseCurrencyCode, targetCurrencyCode, FixedDecimal.valueOf(rate));
+    }
+
+    public Optional<ExchangeRate> updateExchangeRate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate)
+            throws SQLException {
+        if (journal != null) {
+            return journaled(now -> {
+                ExchangeRate existing = staged.getExchangeRate(baseCurrencyCode, targetCurrencyCode);
+                if (existing == null) {
+                    return new Journaled<>(Optional.<ExchangeRate>empty(), 0);
+                }
+                ExchangeRate updated = new ExchangeRate(existing.getId(), existing.getBaseCurrency(), existing.getTargetCurrency(), rate);
+                return new Journaled<>(Optional.of(updated), stageRates(List.of(updated), now));
+            });
+        }
+
+        return RateWriter.await(writer.update(canonical(baseCurrencyCode), canonical(targetCurrencyCode), rate));
+    }
+
+    public BulkUpsertResult upsertExchangeRates(List<RateUpdate> updates) throws SQLException {
+        if (journal != null) {
+            return journaled(now -> stageUpsert(updates, now));
+        }
+
+        return RateWriter.await(writer.submit(() -> {
+            writeLock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                BulkUpsertResult result = rateStore.upsertExchangeRates(canonical(updates), now);
+                if (!result.getRates().isEmpty()) {
+                    for (ExchangeRate exchangeRate : result.getRates()) {
+                        appendHistory(exchangeRate, now);
+                    }
+                    publishRates(snapshot.withExchangeRates(result.getRates()), result.getRates());
+                }
+                return result;
+            } finally {
+                writeLock.unlock();
+            }
+        }));
+    }
+
+    public void checkpoint() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        checkpointLock.lock();
+        try {
+            long generation;
+            RateBookSnapshot view;
+            Map<Long, RateSeries.View> series;
+            boolean published;
+            writeLock.lock();
+            try {
+                generation = journal.roll();
+                published = publishLocked(Long.MAX_VALUE);
+                view = snapshot;
+                series = history.views();
+            } finally {
+                writeLock.unlock();
+            }
+            if (published) {
+                changes.published();
+            }
+            journal.writeCheckpoint(generation, view, series);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        resolver.close();
+        if (journal == null) {
+            writer.close();
+            return;
+        }
+        checkpoints.shutdownNow();
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+        }
+        journal.close();
+    }
+
+    private Journaled<BulkUpsertResult> stageUpsert(List<RateUpdate> updates, long now) throws IOException {
+        BulkUpsertResult result = new BulkUpsertResult(updates.size());
+        Map<Long, ExchangeRate> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            RateUpdate update = updates.get(i);
+            if (update.getBaseCurrencyCode() == null || update.getTargetCurrencyCode() == null) {
+                result.reject(i, "Отсутствует одно или несколько полей");
+                continue;
+            }
+
+            Currency base = staged.getCurrency(update.getBaseCurrencyCode());
+            Currency target = staged.getCurrency(update.getTargetCurrencyCode());
+            if (base == null || target == null) {
+                result.reject(i, "Одна или обе валюты не найдены в базе данных");
+            } else if (base.getId() == target.getId()) {
+                result.reject(i, "Валюты пары совпадают");
+            } else if (!update.hasValidRate()) {
+                result.reject(i, "Некоректный параметр rate");
+            } else {
+                long key = RateHistory.pairKey(base.getId(), target.getId());
+                accepted.remove(key);
+                ExchangeRate existing = staged.getExchangeRate(base.getCode(), target.getCode());
+                accepted.put(key, new ExchangeRate(existing != null ? existing.getId() : 0, base, target, update.getExactRate()));
+            }
+        }
+        if (accepted.isEmpty()) {
+            return new Journaled<>(result, 0);
+        }
+
+        List<ExchangeRate> rates = new ArrayList<>(accepted.size());
+        int nextId = nextRateId;
+        for (ExchangeRate rate : accepted.values()) {
+            if (rate.getId() == 0) {
+                rate = new ExchangeRate(nextId++, rate.getBaseCurrency(), rate.getTargetCurrency(), rate.getExactRate());
+                result.addInserted(rate);
+            } else {
+                result.addUpdated(rate);
+            }
+            rates.add(rate);
+        }
+        long position = stageRates(rates, now);
+        nextRateId = nextId;
+        return new Journaled<>(result, position);
+    }
+
+    private <T> T journaled(JournalWrite<T> write) throws SQLException {
+        Journaled<T> written = null;
+        IOException error = null;
+        writeLock.lock();
+        try {
+            if (readOnly) {
+                throw new SQLException("Журнал курсов недоступен, справочник открыт только для чтения");
+            }
+            written = write.apply(System.currentTimeMillis());
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            writeLock.unlock();
+        }
+        if (error != null) {
+            if (journal.isFailed()) {
+                failJournal();
+            }
+            throw new SQLException("Не удалось записать журнал курсов", error);
+        }
+
+        if (written.position > 0) {
+            try {
+                journal.awaitDurable(written.position);
+            } catch (IOException e) {
+                failJournal();
+                throw new SQLException("Не удалось записать журнал курсов", e);
+            }
+            publishDurable(written.position);
+        }
+        return written.result;
+    }
+
+    private void failJournal() {
+        boolean published;
+        writeLock.lock();
+        try {
+            if (readOnly) {
+                return;
+            }
+            published = publishLocked(journal.durablePosition());
+            pending.clear();
+            staged = snapshot;
+            readOnly = true;
+            System.err.println("Ошибка: журнал курсов недоступен, запись курсов остановлена");
+        } finally {
+            writeLock.unlock();
+        }
+        if (published) {
+            changes.published();
+        }
+    }
+
+    private long stageRates(List<ExchangeRate> rates, long now) throws IOException {
+        long position = journal.appendRates(rates, now);
+        DataVersion.bump();
+        staged = staged.withExchangeRates(rates);
+        pending.add(new Staged(position, staged, now, null, rates));
+        return position;
+    }
+
+    private void appendHistory(ExchangeRate exchangeRate, long timestamp) {
+        history.append(exchangeRate.getBaseCurrency().getId(), exchangeRate.getTargetCurrency().getId(),
+                timestamp, exchangeRate.getExactRate());
+    }
+
+    private void publish(RateBookSnapshot next) {
+        staged = next;
+        snapshot = next;
+        resolver.rebuildAsync(next);
+        changes.published();
+    }
+
+    private void publishRates(RateBookSnapshot next, List<ExchangeRate> rates) {
+        changes.appendRates(rates, next.getVersion());
+        publish(next);
+        notifyListeners(rates, next.getVersion());
+    }
+
+    private void notifyListeners(List<ExchangeRate> rates, long version) {
+        for (RateChangeListener listener : listeners) {
+            try {
+                listener.ratesChanged(rates, version);
+            } catch (RuntimeException e) {
+                System.err.println("Ошибка: " + e.getMessage());
+            }
+        }
+    }
+
+    private void publishDurable(long position) {
+        boolean published;
+        writeLock.lock();
+        try {
+            published = publishLocked(position);
+        } finally {
+            writeLock.unlock();
+        }
+        if (published) {
+            changes.published();
+        }
+    }
+
+    private boolean publishLocked(long position) {
+        RateBookSnapshot next = null;
+        Staged durable;
+        while ((durable = pending.peek()) != null && durable.position <= position) {
+            pending.poll();
+            next = durable.snapshot;
+            if (durable.currency != null) {
+                changes.appendCurrency(durable.currency, next.getVersion());
+            }
+            if (!durable.rates.isEmpty()) {
+                for (ExchangeRate rate : durable.rates) {
+                    appendHistory(rate, durable.timestamp);
+                }
+                changes.appendRates(durable.rates, next.getVersion());
+                notifyListeners(durable.rates, next.getVersion());
+            }
+        }
+        if (next == null) {
+            return false;
+        }
+        snapshot = next;
+        resolver.rebuildAsync(next);
+        return true;
+    }
+
+    private interface JournalWrite<T> {
+        Journaled<T> apply(long now) throws IOException, SQLException;
+    }
+
+    private static final class Journaled<T> {
+        private final T result;
+        private final long position;
+
+        Journaled(T result, long position) {
+            this.result = result;
+            this.position = position;
+        }
+    }
+
+    private static final class Staged {
+        private final long position;
+        private final RateBookSnapshot snapshot;
+        private final long timestamp;
+        private final Currency currency;
+        private final List<ExchangeRate> rates;
+
+        Staged(long position, RateBookSnapshot snapshot, long timestamp, Currency currency, List<ExchangeRate> rates) {
+            this.position = position;
+            this.snapshot = snapshot;
+            this.timestamp = timestamp;
+            this.currency = currency;
+            this.rates = rates;
+        }
+    }
+}
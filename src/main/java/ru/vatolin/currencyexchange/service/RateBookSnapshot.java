@@ -0,0 +1,268 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+public final class RateBookSnapshot {
+    private static final Comparator<ExchangeRate> BY_ID = Comparator.comparingInt(ExchangeRate::getId);
+
+    private final Currency[] currencies;
+    private final List<Currency> currencyList;
+    private final IntIntMap indexByCode;
+    private final ExchangeRate[] rates;
+    private final int[] positions;
+    private final List<ExchangeRate> rateList;
+    private final long version;
+    private final long digest;
+
+    private RateBookSnapshot(Currency[] currencies, IntIntMap indexByCode,
+                             ExchangeRate[] rates, int[] positions, List<ExchangeRate> rateList, long digest) {
+        this(currencies, null, indexByCode, rates, positions, rateList, DataVersion.current(), digest);
+    }
+
+    private RateBookSnapshot(Currency[] currencies, List<Currency> currencyList, IntIntMap indexByCode,
+                             ExchangeRate[] rates, int[] positions, List<ExchangeRate> rateList, long version,
+                             long digest) {
+        this.currencies = currencies;
+        this.currencyList = currencyList != null ? currencyList : Collections.unmodifiableList(Arrays.asList(currencies));
+        this.indexByCode = indexByCode;
+        this.rates = rates;
+        this.positions = positions;
+        this.rateList = rateList;
+        this.version = version;
+        this.digest = digest;
+    }
+
+    public static RateBookSnapshot of(List<Currency> currencies, List<ExchangeRate> rates) {
+        Currency[] currencyArray = currencies.toArray(new Currency[0]);
+        Arrays.sort(currencyArray, Comparator.comparingInt(Currency::getId));
+        ExchangeRate[] rateArray = rates.toArray(new ExchangeRate[0]);
+        Arrays.sort(rateArray, BY_ID);
+        IntIntMap indexByCode = indexCodes(currencyArray);
+        int size = currencyArray.length;
+
+        ExchangeRate[] matrix = new ExchangeRate[size * size];
+        int[] positions = new int[size * size];
+        Arrays.fill(positions, -1);
+
+        long digest = 0;
+        for (Currency currency : currencyArray) {
+            digest += digestOf(currency);
+        }
+        List<ExchangeRate> rateList = new ArrayList<>(rateArray.length);
+        for (ExchangeRate rate : rateArray) {
+            int base = indexByCode.get(rate.getBaseCurrency().getCodeKey());
+            int target = indexByCode.get(rate.getTargetCurrency().getCodeKey());
+            if (base < 0 || target < 0) {
+                continue;
+            }
+            ExchangeRate shared = new ExchangeRate(rate.getId(), currencyArray[base], currencyArray[target], rate.getExactRate());
+            matrix[base * size + target] = shared;
+            positions[base * size + target] = rateList.size();
+            rateList.add(shared);
+            digest += digestOf(shared);
+        }
+
+        return new RateBookSnapshot(currencyArray, indexByCode, matrix, positions, Collections.unmodifiableList(rateList), digest);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getDigest() {
+        return digest;
+    }
+
+    public int size() {
+        return currencies.length;
+    }
+
+    public List<Currency> getCurrencies() {
+        return currencyList;
+    }
+
+    public List<ExchangeRate> getExchangeRates() {
+        return rateList;
+    }
+
+    public Currency getCurrency(String code) {
+        return getCurrency(CurrencyCode.pack(code));
+    }
+
+    public Currency getCurrency(int code) {
+        int index = indexByCode.get(code);
+        return index < 0 ? null : currencies[index];
+    }
+
+    public ExchangeRate getExchangeRate(String baseCode, String targetCode) {
+        return getExchangeRate(CurrencyCode.pack(baseCode), CurrencyCode.pack(targetCode));
+    }
+
+    public ExchangeRate getExchangeRate(int baseCode, int targetCode) {
+        int base = indexByCode.get(baseCode);
+        int target = indexByCode.get(targetCode);
+        if (base < 0 || target < 0) {
+            return null;
+        }
+        return rates[base * currencies.length + target];
+    }
+
+    public List<Currency> currenciesAfter(int afterId, int limit) {
+        int from = 0;
+        int to = currencies.length;
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (currencies[middle].getId() <= afterId) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return currencyList.subList(from, Math.min(currencies.length, from + limit));
+    }
+
+    public List<ExchangeRate> ratesAfter(int afterId, int limit, int baseCode, int targetCode) {
+        if (baseCode == CurrencyCode.NONE && targetCode == CurrencyCode.NONE) {
+            int from = 0;
+            int to = rateList.size();
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (rateList.get(middle).getId() <= afterId) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return rateList.subList(from, Math.min(rateList.size(), from + limit));
+        }
+
+        int base = baseCode == CurrencyCode.NONE ? -1 : indexByCode.get(baseCode);
+        int target = targetCode == CurrencyCode.NONE ? -1 : indexByCode.get(targetCode);
+        if ((baseCode != CurrencyCode.NONE && base < 0) || (targetCode != CurrencyCode.NONE && target < 0)) {
+            return List.of();
+        }
+        List<ExchangeRate> matching = new ArrayList<>();
+        int size = currencies.length;
+        for (int other = 0; other < size; other++) {
+            ExchangeRate rate = base >= 0
+                    ? rates[base * size + (target >= 0 ? target : other)]
+                    : rates[other * size + target];
+            if (rate != null && rate.getId() > afterId) {
+                matching.add(rate);
+            }
+            if (base >= 0 && target >= 0) {
+                break;
+            }
+        }
+        matching.sort(BY_ID);
+        return matching.size() > limit ? matching.subList(0, limit) : matching;
+    }
+
+    Currency currencyAt(int index) {
+        return currencies[index];
+    }
+
+    ExchangeRate rateAt(int base, int target) {
+        return rates[base * currencies.length + target];
+    }
+
+    int indexOfCode(String code) {
+        return indexByCode.get(CurrencyCode.pack(code));
+    }
+
+    int indexOfCode(int code) {
+        return indexByCode.get(code);
+    }
+
+    RateBookSnapshot withCurrency(Currency currency) {
+        int size = currencies.length;
+        int grown = size + 1;
+
+        Currency[] currencyArray = Arrays.copyOf(currencies, grown);
+        currencyArray[size] = currency;
+
+        ExchangeRate[] matrix = new ExchangeRate[grown * grown];
+        int[] positionMatrix = new int[grown * grown];
+        Arrays.fill(positionMatrix, -1);
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(rates, row * size, matrix, row * grown, size);
+            System.arraycopy(positions, row * size, positionMatrix, row * grown, size);
+        }
+
+        IntIntMap index = indexByCode.copy();
+        if (currency.getCodeKey() != CurrencyCode.NONE) {
+            index.put(currency.getCodeKey(), size);
+        }
+        return new RateBookSnapshot(currencyArray, index, matrix, positionMatrix, rateList, digest + digestOf(currency));
+    }
+
+    RateBookSnapshot withExchangeRate(ExchangeRate rate) {
+        return withExchangeRates(Collections.singletonList(rate));
+    }
+
+    RateBookSnapshot withExchangeRates(List<ExchangeRate> changed) {
+        ExchangeRate[] matrix = rates.clone();
+        int[] positionMatrix = positions.clone();
+        List<ExchangeRate> list = new ArrayList<>(rateList);
+        long changedDigest = digest;
+
+        for (ExchangeRate rate : changed) {
+            int base = indexByCode.get(rate.getBaseCurrency().getCodeKey());
+            int target = indexByCode.get(rate.getTargetCurrency().getCodeKey());
+            if (base < 0 || target < 0) {
+                throw new IllegalStateException("Валюта курса отсутствует в справочнике");
+            }
+
+            int cell = base * currencies.length + target;
+            ExchangeRate shared = new ExchangeRate(rate.getId(), currencies[base], currencies[target], rate.getExactRate());
+            if (matrix[cell] != null) {
+                changedDigest -= digestOf(matrix[cell]);
+            }
+            changedDigest += digestOf(shared);
+            matrix[cell] = shared;
+            if (positionMatrix[cell] >= 0) {
+                list.set(positionMatrix[cell], shared);
+            } else {
+                positionMatrix[cell] = list.size();
+                list.add(shared);
+            }
+        }
+
+        return new RateBookSnapshot(currencies, currencyList, indexByCode, matrix, positionMatrix,
+                Collections.unmodifiableList(list), DataVersion.current(), changedDigest);
+    }
+
+    private static long digestOf(Currency currency) {
+        return mix(31L * currency.getId() + Objects.hash(currency.getCode(), currency.getFullName(), currency.getSign()));
+    }
+
+    private static long digestOf(ExchangeRate rate) {
+        long pair = ((long) rate.getBaseCurrency().getId() << 32) | (rate.getTargetCurrency().getId() & 0xffffffffL);
+        return mix(mix(pair) + 31L * rate.getId() + rate.getExactRate().toString().hashCode());
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static IntIntMap indexCodes(Currency[] currencies) {
+        IntIntMap index = new IntIntMap(currencies.length);
+        for (int i = 0; i < currencies.length; i++) {
+            if (currencies[i].getCodeKey() != CurrencyCode.NONE) {
+                index.put(currencies[i].getCodeKey(), i);
+            }
+        }
+        return index;
+    }
+}
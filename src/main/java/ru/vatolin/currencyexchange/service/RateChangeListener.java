@@ -0,0 +1,9 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+
+import java.util.List;
+
+public interface RateChangeListener {
+    void ratesChanged(List<ExchangeRate> rates, long version);
+}
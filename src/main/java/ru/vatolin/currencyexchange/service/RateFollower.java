@@ -0,0 +1,216 @@
+package ru.vatolin.currencyexchange.service;
+
+import com.google.gson.stream.JsonReader;
+import ru.vatolin.currencyexchange.model.BulkUpsertResult;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class RateFollower implements AutoCloseable {
+    private static final long REQUEST_SLACK_MILLIS = 5000;
+
+    private final RateBook rateBook;
+    private final ReplicationConfig config;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile String runId;
+    private volatile long version;
+
+    public RateFollower(RateBook rateBook, ReplicationConfig config) {
+        this.rateBook = rateBook;
+        this.config = config;
+        thread = new Thread(this::pollLoop, "rate-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    String getRunId() {
+        return runId;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(REQUEST_SLACK_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                if (!poll()) {
+                    Thread.sleep(config.getRetryMillis());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Ошибка: синхронизация с " + config.getLeader() + ": " + e.getMessage());
+                try {
+                    Thread.sleep(config.getRetryMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean poll() throws IOException, InterruptedException, SQLException {
+        String since = runId == null ? Long.toString(version) : runId + ":" + version;
+        URI uri = config.getLeader().resolve("/api/changes?since=" + since + "&wait=" + config.getWaitMillis());
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(config.getWaitMillis() + REQUEST_SLACK_MILLIS))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (JsonReader reader = new JsonReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            if (response.statusCode() != 200) {
+                throw new IOException("ведущий сервер ответил " + response.statusCode());
+            }
+            return apply(reader);
+        }
+    }
+
+    private boolean apply(JsonReader reader) throws IOException, SQLException {
+        String nextRunId = runId;
+        long next = version;
+        List<Currency> currencies = new ArrayList<>();
+        List<RateUpdate> rates = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "run":
+                    nextRunId = reader.nextString();
+                    break;
+                case "version":
+                    next = reader.nextLong();
+                    break;
+                case "currencies":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        currencies.add(readCurrency(reader));
+                    }
+                    reader.endArray();
+                    break;
+                case "rates":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        rates.add(readRate(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        for (Currency currency : currencies) {
+            if (rateBook.snapshot().getCurrency(currency.getCode()) == null) {
+                rateBook.addCurrency(currency);
+            }
+        }
+        RateBookSnapshot snapshot = rateBook.snapshot();
+        List<RateUpdate> changed = new ArrayList<>(rates.size());
+        boolean complete = true;
+        for (RateUpdate update : rates) {
+            ExchangeRate local = snapshot.getExchangeRate(update.getBaseCurrencyCode(), update.getTargetCurrencyCode());
+            if (local == null || !local.getExactRate().equals(update.getExactRate())) {
+                changed.add(update);
+            }
+        }
+        if (!changed.isEmpty()) {
+            BulkUpsertResult result = rateBook.upsertExchangeRates(changed);
+            for (BulkUpsertResult.Rejected rejected : result.getRejected()) {
+                RateUpdate update = changed.get(rejected.getIndex());
+                System.err.println("Ошибка: курс " + update.getBaseCurrencyCode() + update.getTargetCurrencyCode()
+                        + " не применён: " + rejected.getMessage());
+                complete = false;
+            }
+        }
+        if (complete) {
+            runId = nextRunId;
+            version = next;
+        }
+        return complete;
+    }
+
+    private static Currency readCurrency(JsonReader reader) throws IOException {
+        String code = null;
+        String fullName = null;
+        String sign = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "code":
+                    code = reader.nextString();
+                    break;
+                case "fullName":
+                    fullName = reader.nextString();
+                    break;
+                case "sign":
+                    sign = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new Currency(0, code, fullName, sign);
+    }
+
+    private static RateUpdate readRate(JsonReader reader) throws IOException {
+        String base = null;
+        String target = null;
+        FixedDecimal rate = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "base":
+                    base = reader.nextString();
+                    break;
+                case "target":
+                    target = reader.nextString();
+                    break;
+                case "rate":
+                    rate = FixedDecimal.parse(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new RateUpdate(base, target, rate);
+    }
+}
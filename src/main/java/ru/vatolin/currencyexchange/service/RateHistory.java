@@ -0,0 +1,42 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class RateHistory {
+    private final ConcurrentHashMap<Long, RateSeries> series = new ConcurrentHashMap<>();
+
+    void append(int baseCurrencyId, int targetCurrencyId, long timestamp, FixedDecimal rate) {
+        series.computeIfAbsent(pairKey(baseCurrencyId, targetCurrencyId), key -> new RateSeries()).append(timestamp, rate);
+    }
+
+    public RateSeries getSeries(int baseCurrencyId, int targetCurrencyId) {
+        return series.get(pairKey(baseCurrencyId, targetCurrencyId));
+    }
+
+    public FixedDecimal rateAt(int baseCurrencyId, int targetCurrencyId, long timestamp) {
+        RateSeries pair = series.get(pairKey(baseCurrencyId, targetCurrencyId));
+        return pair == null ? null : pair.rateAt(timestamp);
+    }
+
+    Map<Long, RateSeries.View> views() {
+        Map<Long, RateSeries.View> views = new HashMap<>(series.size() * 2);
+        series.forEach((key, pair) -> views.put(key, pair.view()));
+        return views;
+    }
+
+    static int baseIdOf(long pairKey) {
+        return (int) (pairKey >>> 32);
+    }
+
+    static int targetIdOf(long pairKey) {
+        return (int) pairKey;
+    }
+
+    static long pairKey(int baseCurrencyId, int targetCurrencyId) {
+        return ((long) baseCurrencyId << 32) | (targetCurrencyId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,121 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+import ru.vatolin.currencyexchange.metrics.Metrics;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+
+public class RateHistoryDao {
+    private static final LatencyHistogram CREATE_TABLE_TIMER = Metrics.db("RateHistoryDao.createTableIfMissing");
+    private static final LatencyHistogram LOAD_ALL_TIMER = Metrics.db("RateHistoryDao.loadAll");
+    private static final LatencyHistogram MIGRATE_TIMER = Metrics.db("RateHistoryDao.addExactRateColumnIfMissing");
+
+    private final ConnectionPool pool;
+
+    public RateHistoryDao() {
+        this(DatabaseConnection.getPool());
+    }
+
+    public RateHistoryDao(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public void createTableIfMissing() throws SQLException {
+        SqlDialect dialect = pool.getDialect();
+        String createSql = """
+            CREATE TABLE ExchangeRateHistory (
+            ID %s,
+            BaseCurrencyId INTEGER NOT NULL,
+            TargetCurrencyId INTEGER NOT NULL,
+            Rate %s NOT NULL,
+            RateExact %s,
+            ChangedAt BIGINT NOT NULL,
+            FOREIGN KEY (BaseCurrencyId) REFERENCES Currencies(ID),
+            FOREIGN KEY (TargetCurrencyId) REFERENCES Currencies(ID))
+            """.formatted(dialect.getIdentity(), dialect.getRateType(), dialect.getTextType());
+        String indexSql = """
+            CREATE INDEX ExchangeRateHistoryPairTime
+            ON ExchangeRateHistory (BaseCurrencyId, TargetCurrencyId, ChangedAt)
+            """;
+        String seedSql = """
+            INSERT INTO ExchangeRateHistory (BaseCurrencyId, TargetCurrencyId, Rate, RateExact, ChangedAt)
+            SELECT BaseCurrencyId, TargetCurrencyId, Rate, COALESCE(RateExact, CAST(Rate AS VARCHAR)), CAST(? AS BIGINT)
+            FROM ExchangeRates
+            """;
+
+        try (Connection conn = pool.getWriter(CREATE_TABLE_TIMER)) {
+            if (dialect.tableExists(conn, "ExchangeRateHistory")) {
+                return;
+            }
+
+            conn.setAutoCommit(false);
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate(createSql);
+                statement.executeUpdate(indexSql);
+            }
+            try (PreparedStatement statement = conn.prepareStatement(seedSql)) {
+                statement.setLong(1, System.currentTimeMillis());
+                statement.executeUpdate();
+            }
+            conn.commit();
+        }
+    }
+
+    public void addExactRateColumnIfMissing() throws SQLException {
+        SqlDialect dialect = pool.getDialect();
+        String alterSql = "ALTER TABLE ExchangeRateHistory ADD COLUMN RateExact " + dialect.getTextType();
+        String backfillSql = "UPDATE ExchangeRateHistory SET RateExact = CAST(Rate AS VARCHAR) WHERE RateExact IS NULL";
+
+        try (Connection conn = pool.getWriter(MIGRATE_TIMER)) {
+            if (dialect.columnExists(conn, "ExchangeRateHistory", "RateExact")) {
+                return;
+            }
+
+            conn.setAutoCommit(false);
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate(alterSql);
+                statement.executeUpdate(backfillSql);
+            }
+            conn.commit();
+        }
+    }
+
+    public void loadAll(RateHistory history) throws SQLException {
+        String sql = """
+            SELECT BaseCurrencyId, TargetCurrencyId, COALESCE(RateExact, CAST(Rate AS VARCHAR)) AS Rate, ChangedAt
+            FROM ExchangeRateHistory ORDER BY ChangedAt, ID
+            """;
+
+        try (Connection conn = pool.getReader(LOAD_ALL_TIMER);
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                history.append(rs.getInt("BaseCurrencyId"), rs.getInt("TargetCurrencyId"),
+                        rs.getLong("ChangedAt"), FixedDecimal.parse(rs.getString("Rate")));
+            }
+        }
+    }
+
+    void record(Connection conn, Collection<ExchangeRate> rates, long changedAt) throws SQLException {
+        String sql = "INSERT INTO ExchangeRateHistory (BaseCurrencyId, TargetCurrencyId, Rate, RateExact, ChangedAt) VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            for (ExchangeRate rate : rates) {
+                statement.setInt(1, rate.getBaseCurrency().getId());
+                statement.setInt(2, rate.getTargetCurrency().getId());
+                statement.setDouble(3, rate.getRate());
+                statement.setString(4, rate.getExactRate().toString());
+                statement.setLong(5, changedAt);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
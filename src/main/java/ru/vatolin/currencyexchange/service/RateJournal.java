@@ -0,0 +1,591 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class RateJournal implements AutoCloseable {
+    private static final int CHECKPOINT_MAGIC = 0x52424350;
+    private static final int FORMAT_VERSION = 3;
+    private static final int DOUBLE_HISTORY_FORMAT_VERSION = 2;
+    private static final int DOUBLE_FORMAT_VERSION = 1;
+    private static final byte CURRENCY_RECORD = 1;
+    private static final byte RATES_RECORD = 2;
+    private static final byte EXACT_RATES_RECORD = 3;
+    private static final int RECORD_HEADER = 8;
+    private static final int RATE_ENTRY = 21;
+    private static final String CHECKPOINT_FILE = "rates.checkpoint";
+    private static final String JOURNAL_PREFIX = "rates-";
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long groupCommitNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appendedSignal = lock.newCondition();
+    private final Condition durableSignal = lock.newCondition();
+    private final Thread syncThread;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long generation;
+    private long appended;
+    private long durable;
+    private int syncedOffset;
+    private IOException failure;
+    private boolean closed;
+
+    public RateJournal(JournalConfig config) throws IOException {
+        this.directory = config.getDirectory();
+        this.segmentBytes = config.getSegmentBytes();
+        this.groupCommitNanos = TimeUnit.MICROSECONDS.toNanos(config.getGroupCommitMicros());
+
+        Files.createDirectories(directory);
+        for (long existing : journalGenerations(0)) {
+            generation = Math.max(generation, existing);
+        }
+
+        syncThread = new Thread(this::syncLoop, "rate-journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public boolean hasCheckpoint() {
+        return Files.exists(directory.resolve(CHECKPOINT_FILE));
+    }
+
+    RateBookSnapshot recover(RateHistory history) throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        Map<Integer, Currency> currencies = new LinkedHashMap<>();
+        Map<Long, ExchangeRate> rates = new LinkedHashMap<>();
+        long firstGeneration;
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            int bodyLength = in.limit() - 4;
+            CRC32 crc = new CRC32();
+            if (bodyLength < 16) {
+                throw new IOException("Контрольная точка журнала повреждена");
+            }
+            crc.update(in.duplicate().limit(bodyLength));
+            if ((int) crc.getValue() != in.getInt(bodyLength) || in.getInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("Контрольная точка журнала повреждена");
+            }
+            int version = in.getInt();
+            if (version != FORMAT_VERSION && version != DOUBLE_HISTORY_FORMAT_VERSION && version != DOUBLE_FORMAT_VERSION) {
+                throw new IOException("Неподдерживаемая версия контрольной точки журнала");
+            }
+            firstGeneration = in.getLong();
+
+            int currencyCount = in.getInt();
+            for (int i = 0; i < currencyCount; i++) {
+                Currency currency = CurrencyRegistry.intern(in.getInt(), getString(in), getString(in), getString(in));
+                currencies.put(currency.getId(), currency);
+            }
+
+            int rateCount = in.getInt();
+            for (int i = 0; i < rateCount; i++) {
+                int id = in.getInt();
+                int baseId = in.getInt();
+                int targetId = in.getInt();
+                FixedDecimal rate = version == DOUBLE_FORMAT_VERSION ? FixedDecimal.valueOf(in.getDouble()) : getRate(in);
+                rates.put(RateHistory.pairKey(baseId, targetId),
+                        new ExchangeRate(id, currencies.get(baseId), currencies.get(targetId), rate));
+            }
+
+            int seriesCount = in.getInt();
+            for (int i = 0; i < seriesCount; i++) {
+                long key = in.getLong();
+                int points = in.getInt();
+                for (int j = 0; j < points; j++) {
+                    long timestamp = in.getLong();
+                    FixedDecimal rate = version == FORMAT_VERSION ? getRate(in) : FixedDecimal.valueOf(in.getDouble());
+                    history.append(RateHistory.baseIdOf(key), RateHistory.targetIdOf(key), timestamp, rate);
+                }
+            }
+        }
+
+        List<Long> journals = journalGenerations(firstGeneration);
+        for (int i = 0; i < journals.size(); i++) {
+            Path journal = journalPath(journals.get(i));
+            boolean newest = i == journals.size() - 1;
+            int torn = replay(journal, newest, currencies, rates, history);
+            if (torn >= 0) {
+                System.err.println("Ошибка: отброшен неполный хвост журнала " + journal.getFileName() + " со смещения " + torn);
+                try (FileChannel file = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                    file.truncate(torn);
+                    file.force(true);
+                }
+            }
+        }
+        return RateBookSnapshot.of(new ArrayList<>(currencies.values()), new ArrayList<>(rates.values()));
+    }
+
+    long appendCurrency(Currency currency) throws IOException {
+        byte[] code = encode(currency.getCode());
+        byte[] fullName = encode(currency.getFullName());
+        byte[] sign = encode(currency.getSign());
+
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + 12 + length(code) + length(fullName) + length(sign));
+        record.put(CURRENCY_RECORD).putInt(currency.getId());
+        putString(record, code);
+        putString(record, fullName);
+        putString(record, sign);
+        return append(record.flip());
+    }
+
+    long appendRates(Collection<ExchangeRate> rates, long timestamp) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(1 + 8 + 4 + rates.size() * RATE_ENTRY);
+        record.put(EXACT_RATES_RECORD).putLong(timestamp).putInt(rates.size());
+        for (ExchangeRate rate : rates) {
+            record.putInt(rate.getId())
+                    .putInt(rate.getBaseCurrency().getId())
+                    .putInt(rate.getTargetCurrency().getId());
+            putRate(record, rate.getExactRate());
+        }
+        return append(record.flip());
+    }
+
+    void awaitDurable(long position) throws IOException {
+        lock.lock();
+        try {
+            while (durable < position) {
+                if (failure != null) {
+                    throw new IOException("Не удалось сохранить журнал курсов", failure);
+                }
+                durableSignal.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long durablePosition() {
+        lock.lock();
+        try {
+            return durable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isFailed() {
+        lock.lock();
+        try {
+            return failure != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long roll() throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            rollLocked();
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void writeCheckpoint(long firstGeneration, RateBookSnapshot view, Map<Long, RateSeries.View> history) throws IOException {
+        Path target = directory.resolve(CHECKPOINT_FILE);
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        CRC32 crc = new CRC32();
+
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(file), crc), 1 << 16));
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(firstGeneration);
+
+            List<Currency> currencies = view.getCurrencies();
+            out.writeInt(currencies.size());
+            for (Currency currency : currencies) {
+                out.writeInt(currency.getId());
+                writeString(out, currency.getCode());
+                writeString(out, currency.getFullName());
+                writeString(out, currency.getSign());
+            }
+
+            List<ExchangeRate> rates = view.getExchangeRates();
+            out.writeInt(rates.size());
+            for (ExchangeRate rate : rates) {
+                out.writeInt(rate.getId());
+                out.writeInt(rate.getBaseCurrency().getId());
+                out.writeInt(rate.getTargetCurrency().getId());
+                FixedDecimal exact = compact(rate.getExactRate());
+                out.writeLong(exact.unscaled());
+                out.writeByte(exact.scale());
+            }
+
+            out.writeInt(history.size());
+            for (Map.Entry<Long, RateSeries.View> entry : history.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                try {
+                    entry.getValue().forEach((timestamp, rate) -> {
+                        try {
+                            FixedDecimal exact = compact(rate);
+                            out.writeLong(timestamp);
+                            out.writeLong(exact.unscaled());
+                            out.writeByte(exact.scale());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            out.flush();
+
+            file.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip());
+            file.force(true);
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (long journal : journalGenerations(0)) {
+            if (journal < firstGeneration) {
+                Files.deleteIfExists(journalPath(journal));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (buffer != null) {
+                try {
+                    force(buffer, 0, buffer.position());
+                    durable = appended;
+                    channel.close();
+                } catch (IOException e) {
+                    failure = e;
+                    System.err.println("Ошибка: " + e.getMessage());
+                }
+            }
+            appendedSignal.signalAll();
+            durableSignal.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long append(ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        if (length + RECORD_HEADER > segmentBytes) {
+            throw new IOException("Запись не помещается в сегмент журнала курсов");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        lock.lock();
+        try {
+            checkOpen();
+            if (buffer == null || buffer.remaining() < length + RECORD_HEADER) {
+                rollLocked();
+            }
+            buffer.putInt(length).putInt((int) crc.getValue()).put(payload);
+            appended += length + RECORD_HEADER;
+            appendedSignal.signal();
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("Не удалось сохранить журнал курсов", failure);
+        }
+        if (closed) {
+            throw new IOException("Журнал курсов закрыт");
+        }
+    }
+
+    private void rollLocked() throws IOException {
+        if (buffer != null) {
+            force(buffer, syncedOffset, buffer.position());
+            durable = appended;
+            durableSignal.signalAll();
+            channel.close();
+        }
+        generation++;
+        channel = FileChannel.open(journalPath(generation), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        syncedOffset = 0;
+    }
+
+    private void syncLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (!closed && durable == appended) {
+                    appendedSignal.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (groupCommitNanos > 0) {
+                LockSupport.parkNanos(groupCommitNanos);
+            }
+
+            MappedByteBuffer target;
+            int from;
+            int to;
+            long position;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                target = buffer;
+                from = syncedOffset;
+                to = buffer.position();
+                position = appended;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                force(target, from, to);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                    System.err.println("Ошибка: " + error.getMessage());
+                } else {
+                    durable = Math.max(durable, position);
+                    if (target == buffer) {
+                        syncedOffset = Math.max(syncedOffset, to);
+                    }
+                }
+                durableSignal.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static void force(MappedByteBuffer target, int from, int to) throws IOException {
+        if (to <= from) {
+            return;
+        }
+        try {
+            target.force(from, to - from);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static int replay(Path path, boolean newest, Map<Integer, Currency> currencies, Map<Long, ExchangeRate> rates,
+                              RateHistory history) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            CRC32 crc = new CRC32();
+            while (in.hasRemaining()) {
+                int start = in.position();
+                if (isZero(in, start)) {
+                    return -1;
+                }
+                boolean intact = in.remaining() >= RECORD_HEADER;
+                int length = intact ? in.getInt() : 0;
+                int checksum = intact ? in.getInt() : 0;
+                intact = intact && length > 0 && length <= in.remaining();
+                ByteBuffer payload = null;
+                if (intact) {
+                    payload = in.slice(in.position(), length);
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    intact = (int) crc.getValue() == checksum;
+                }
+                if (!intact) {
+                    if (!newest) {
+                        throw new IOException("Журнал курсов повреждён: " + path.getFileName() + ", смещение " + start);
+                    }
+                    return start;
+                }
+                in.position(in.position() + length);
+                apply(payload, currencies, rates, history);
+            }
+            return -1;
+        }
+    }
+
+    private static boolean isZero(ByteBuffer in, int from) {
+        int position = from;
+        int limit = in.limit();
+        for (; position + Long.BYTES <= limit; position += Long.BYTES) {
+            if (in.getLong(position) != 0) {
+                return false;
+            }
+        }
+        for (; position < limit; position++) {
+            if (in.get(position) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void apply(ByteBuffer payload, Map<Integer, Currency> currencies, Map<Long, ExchangeRate> rates,
+                              RateHistory history) throws IOException {
+        byte type = payload.get();
+        if (type == CURRENCY_RECORD) {
+            Currency currency = CurrencyRegistry.intern(payload.getInt(), getString(payload), getString(payload), getString(payload));
+            currencies.put(currency.getId(), currency);
+        } else if (type == RATES_RECORD || type == EXACT_RATES_RECORD) {
+            long timestamp = payload.getLong();
+            int count = payload.getInt();
+            for (int i = 0; i < count; i++) {
+                int id = payload.getInt();
+                int baseId = payload.getInt();
+                int targetId = payload.getInt();
+                FixedDecimal rate = type == RATES_RECORD ? FixedDecimal.valueOf(payload.getDouble()) : getRate(payload);
+                Currency base = currencies.get(baseId);
+                Currency target = currencies.get(targetId);
+                if (base == null || target == null) {
+                    continue;
+                }
+                rates.put(RateHistory.pairKey(baseId, targetId), new ExchangeRate(id, base, target, rate));
+                history.append(baseId, targetId, timestamp, rate);
+            }
+        }
+    }
+
+    private List<Long> journalGenerations(long first) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long value = Long.parseLong(name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length()));
+                    if (value >= first) {
+                        generations.add(value);
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Ошибка: неизвестный файл журнала " + name);
+                }
+            }
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    private Path journalPath(long journal) {
+        return directory.resolve(String.format("%s%020d%s", JOURNAL_PREFIX, journal, JOURNAL_SUFFIX));
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void putString(ByteBuffer out, byte[] value) {
+        if (value == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(value.length).put(value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = encode(value);
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static FixedDecimal compact(FixedDecimal rate) throws IOException {
+        if (!rate.isCompact()) {
+            throw new IOException("Курс " + rate + " не помещается в журнал");
+        }
+        return rate;
+    }
+
+    private static void putRate(ByteBuffer out, FixedDecimal rate) throws IOException {
+        FixedDecimal exact = compact(rate);
+        out.putLong(exact.unscaled()).put((byte) exact.scale());
+    }
+
+    private static FixedDecimal getRate(ByteBuffer in) throws IOException {
+        long unscaled = in.getLong();
+        int scale = in.get();
+        if (scale < 0 || scale > FixedDecimal.MAX_SCALE) {
+            throw new IOException("Курс в журнале повреждён");
+        }
+        return FixedDecimal.of(unscaled, scale);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
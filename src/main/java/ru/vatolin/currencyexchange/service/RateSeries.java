@@ -0,0 +1,198 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.util.Arrays;
+
+public final class RateSeries {
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int INITIAL_SEGMENT_CAPACITY = 8;
+    private static final byte WIDE_SCALE = -1;
+
+    private volatile Segment[] segments = new Segment[0];
+
+    void append(long timestamp, FixedDecimal rate) {
+        Segment[] current = segments;
+        Segment last = current.length == 0 ? null : current[current.length - 1];
+        if (last != null) {
+            long lastTimestamp = last.timestampAt(last.count - 1);
+            if (timestamp < lastTimestamp) {
+                timestamp = lastTimestamp;
+            }
+        }
+
+        if (last == null || last.count == SEGMENT_SIZE || timestamp - last.base > Integer.MAX_VALUE) {
+            last = new Segment(timestamp);
+            last.add(timestamp, rate);
+            Segment[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = last;
+            segments = grown;
+        } else {
+            last.add(timestamp, rate);
+        }
+    }
+
+    public int size() {
+        Segment[] current = segments;
+        int size = 0;
+        for (Segment segment : current) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    public FixedDecimal rateAt(long timestamp) {
+        Segment[] current = segments;
+        int low = 0;
+        int high = current.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (current[mid].base <= timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return null;
+        }
+
+        Segment segment = current[found];
+        int index = segment.floor(timestamp);
+        return segment.rateAt(index);
+    }
+
+    public void forEach(long from, long to, PointConsumer consumer) {
+        Segment[] current = segments;
+        for (Segment segment : current) {
+            int count = segment.count;
+            if (count == 0 || segment.timestampAt(count - 1) < from) {
+                continue;
+            }
+            if (segment.base > to) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                long timestamp = segment.timestampAt(i);
+                if (timestamp > to) {
+                    return;
+                }
+                if (timestamp >= from) {
+                    consumer.accept(timestamp, segment.rateAt(i));
+                }
+            }
+        }
+    }
+
+    View view() {
+        Segment[] current = segments;
+        return new View(current, current.length == 0 ? 0 : current[current.length - 1].count);
+    }
+
+    public interface PointConsumer {
+        void accept(long timestamp, FixedDecimal rate);
+    }
+
+    static final class View {
+        private final Segment[] segments;
+        private final int lastCount;
+
+        private View(Segment[] segments, int lastCount) {
+            this.segments = segments;
+            this.lastCount = lastCount;
+        }
+
+        int size() {
+            int size = 0;
+            for (int i = 0; i < segments.length; i++) {
+                size += i == segments.length - 1 ? lastCount : segments[i].count;
+            }
+            return size;
+        }
+
+        void forEach(PointConsumer consumer) {
+            for (int i = 0; i < segments.length; i++) {
+                Segment segment = segments[i];
+                int count = i == segments.length - 1 ? lastCount : segment.count;
+                for (int j = 0; j < count; j++) {
+                    consumer.accept(segment.timestampAt(j), segment.rateAt(j));
+                }
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final long base;
+        private volatile int[] offsets = new int[INITIAL_SEGMENT_CAPACITY];
+        private volatile long[] unscaled = new long[INITIAL_SEGMENT_CAPACITY];
+        private volatile byte[] scales = new byte[INITIAL_SEGMENT_CAPACITY];
+        private volatile FixedDecimal[] wide;
+        private volatile int count;
+
+        Segment(long base) {
+            this.base = base;
+        }
+
+        void add(long timestamp, FixedDecimal rate) {
+            int index = count;
+            int[] currentOffsets = offsets;
+            long[] currentUnscaled = unscaled;
+            byte[] currentScales = scales;
+            FixedDecimal[] currentWide = wide;
+            if (index == currentOffsets.length) {
+                int capacity = Math.min(SEGMENT_SIZE, index * 2);
+                currentOffsets = Arrays.copyOf(currentOffsets, capacity);
+                currentUnscaled = Arrays.copyOf(currentUnscaled, capacity);
+                currentScales = Arrays.copyOf(currentScales, capacity);
+                if (currentWide != null) {
+                    currentWide = Arrays.copyOf(currentWide, capacity);
+                }
+            }
+            currentOffsets[index] = (int) (timestamp - base);
+            if (rate.isCompact()) {
+                currentUnscaled[index] = rate.unscaled();
+                currentScales[index] = (byte) rate.scale();
+            } else {
+                if (currentWide == null) {
+                    currentWide = new FixedDecimal[currentOffsets.length];
+                }
+                currentWide[index] = rate;
+                currentScales[index] = WIDE_SCALE;
+            }
+            offsets = currentOffsets;
+            unscaled = currentUnscaled;
+            scales = currentScales;
+            wide = currentWide;
+            count = index + 1;
+        }
+
+        FixedDecimal rateAt(int index) {
+            byte scale = scales[index];
+            return scale == WIDE_SCALE ? wide[index] : FixedDecimal.of(unscaled[index], scale);
+        }
+
+        long timestampAt(int index) {
+            return base + offsets[index];
+        }
+
+        int floor(long timestamp) {
+            int target = (int) Math.min(timestamp - base, Integer.MAX_VALUE);
+            int low = 0;
+            int high = count - 1;
+            int[] offsets = this.offsets;
+            int found = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (offsets[mid] <= target) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.BulkUpsertResult;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+public interface RateStore {
+    void prepare() throws SQLException;
+
+    List<ExchangeRate> getAllExchangeRates() throws SQLException;
+
+    List<ExchangeRate> getExchangeRatesPage(int afterId, int limit, String baseCode, String targetCode) throws SQLException;
+
+    void streamExchangeRates(String baseCode, String targetCode, RowSink<ExchangeRate> sink) throws SQLException, IOException;
+
+    ExchangeRate getExchangeRate(String baseCode, String targetCode) throws SQLException;
+
+    List<ExchangeRate> findPairLegs(String baseCode, String targetCode, List<String> pivots) throws SQLException;
+
+    ExchangeRate addExchangeRate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate, long changedAt)
+            throws SQLException;
+
+    Optional<ExchangeRate> updateExchangeRate(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate, long changedAt)
+            throws SQLException;
+
+    List<ExchangeRate> updateExchangeRates(List<RateUpdate> updates, long changedAt) throws SQLException;
+
+    BulkUpsertResult upsertExchangeRates(List<RateUpdate> updates, long changedAt) throws SQLException;
+
+    void loadHistory(RateHistory history) throws SQLException;
+}
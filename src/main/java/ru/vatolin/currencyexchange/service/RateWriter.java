@@ -0,0 +1,230 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.metrics.LatencyHistogram;
+import ru.vatolin.currencyexchange.metrics.Metrics;
+import ru.vatolin.currencyexchange.model.CurrencyCode;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+final class RateWriter implements AutoCloseable {
+    private static final LatencyHistogram FLUSH_TIMER = Metrics.db("RateWriter.flush");
+    private static final long NO_PAIR = -1;
+
+    private final UpdateBatch updates;
+    private final int maxBatch;
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final Task<Void> stop = new Task<>(() -> null);
+    private volatile boolean closed;
+
+    RateWriter(UpdateBatch updates, int maxBatch) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Размер пакета записи должен быть положительным");
+        }
+        this.updates = updates;
+        this.maxBatch = maxBatch;
+        thread = new Thread(this::writeLoop, "rate-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    <T> CompletableFuture<T> submit(Callable<T> task) {
+        Task<T> write = new Task<>(task);
+        enqueue(write);
+        return write.future;
+    }
+
+    CompletableFuture<Optional<ExchangeRate>> update(String baseCurrencyCode, String targetCurrencyCode, FixedDecimal rate) {
+        Update write = new Update(new RateUpdate(baseCurrencyCode, targetCurrencyCode, rate));
+        enqueue(write);
+        return write.future;
+    }
+
+    static <T> T await(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание записи прервано", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SQLException("Не удалось выполнить запись", cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(stop);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectPending();
+    }
+
+    private void enqueue(Write write) {
+        if (closed) {
+            write.fail(new RejectedExecutionException("Запись курсов остановлена"));
+            return;
+        }
+        queue.add(write);
+        if (closed && queue.remove(write)) {
+            write.fail(new RejectedExecutionException("Запись курсов остановлена"));
+        }
+    }
+
+    private void writeLoop() {
+        List<Write> batch = new ArrayList<>(maxBatch);
+        List<Update> group = new ArrayList<>(maxBatch);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+
+            long start = System.nanoTime();
+            for (Write write : batch) {
+                if (write instanceof Update update) {
+                    group.add(update);
+                } else if (write == stop) {
+                    running = false;
+                } else {
+                    flush(group);
+                    ((Task<?>) write).run();
+                }
+            }
+            flush(group);
+            FLUSH_TIMER.record(System.nanoTime() - start);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Update> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        Map<Long, Update> latest = new LinkedHashMap<>();
+        List<RateUpdate> distinct = new ArrayList<>(group.size());
+        for (Update write : group) {
+            long key = write.key();
+            if (key == NO_PAIR) {
+                distinct.add(write.update);
+            } else {
+                latest.remove(key);
+                latest.put(key, write);
+            }
+        }
+        for (Update write : latest.values()) {
+            distinct.add(write.update);
+        }
+
+        try {
+            Map<Long, ExchangeRate> applied = new HashMap<>();
+            for (ExchangeRate rate : updates.apply(distinct)) {
+                applied.put(CurrencyCode.pairKey(rate.getBaseCurrency().getCodeKey(), rate.getTargetCurrency().getCodeKey()), rate);
+            }
+            for (Update write : group) {
+                ExchangeRate stored = applied.get(write.key());
+                if (stored == null) {
+                    write.future.complete(Optional.empty());
+                } else if (latest.get(write.key()) == write) {
+                    write.future.complete(Optional.of(stored));
+                } else {
+                    write.future.complete(Optional.of(new ExchangeRate(stored.getId(), stored.getBaseCurrency(),
+                            stored.getTargetCurrency(), write.update.getExactRate())));
+                }
+            }
+        } catch (Throwable e) {
+            for (Update write : group) {
+                write.fail(e);
+            }
+        }
+        group.clear();
+    }
+
+    private void rejectPending() {
+        Write write;
+        while ((write = queue.poll()) != null) {
+            write.fail(new RejectedExecutionException("Запись курсов остановлена"));
+        }
+    }
+
+    interface UpdateBatch {
+        List<ExchangeRate> apply(List<RateUpdate> updates) throws SQLException;
+    }
+
+    private abstract static class Write {
+        abstract void fail(Throwable error);
+    }
+
+    private static final class Task<T> extends Write {
+        private final Callable<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(Callable<T> task) {
+            this.task = task;
+        }
+
+        void run() {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        void fail(Throwable error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private static final class Update extends Write {
+        private final RateUpdate update;
+        private final CompletableFuture<Optional<ExchangeRate>> future = new CompletableFuture<>();
+
+        Update(RateUpdate update) {
+            this.update = update;
+        }
+
+        long key() {
+            int base = CurrencyCode.pack(update.getBaseCurrencyCode());
+            int target = CurrencyCode.pack(update.getTargetCurrencyCode());
+            return base == CurrencyCode.NONE || target == CurrencyCode.NONE ? NO_PAIR : CurrencyCode.pairKey(base, target);
+        }
+
+        @Override
+        void fail(Throwable error) {
+            future.completeExceptionally(error);
+        }
+    }
+}
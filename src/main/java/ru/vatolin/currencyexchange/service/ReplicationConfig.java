@@ -0,0 +1,49 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.net.URI;
+import java.util.function.UnaryOperator;
+
+public class ReplicationConfig {
+    private final URI leader;
+    private final long waitMillis;
+    private final long retryMillis;
+
+    public ReplicationConfig(URI leader, long waitMillis, long retryMillis) {
+        if (leader != null && !"http".equals(leader.getScheme()) && !"https".equals(leader.getScheme())) {
+            throw new IllegalArgumentException("Некорректный адрес ведущего сервера: " + leader);
+        }
+        this.leader = leader;
+        this.waitMillis = Math.max(0, waitMillis);
+        this.retryMillis = Math.max(1, retryMillis);
+    }
+
+    public static ReplicationConfig fromSystem() {
+        return from(key -> null);
+    }
+
+    public static ReplicationConfig from(UnaryOperator<String> overrides) {
+        UnaryOperator<String> source = DatabaseConfig.lookup(overrides);
+        String leader = DatabaseConfig.stringValue(source.apply("currency.replication.leader"), null);
+        return new ReplicationConfig(
+                leader == null || leader.isBlank() ? null : URI.create(leader.trim()),
+                DatabaseConfig.longValue(source.apply("currency.replication.waitMs"), 25_000),
+                DatabaseConfig.longValue(source.apply("currency.replication.retryMs"), 1000)
+        );
+    }
+
+    public boolean isFollower() {
+        return leader != null;
+    }
+
+    public URI getLeader() {
+        return leader;
+    }
+
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    public long getRetryMillis() {
+        return retryMillis;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.io.IOException;
+
+public interface RowSink<T> {
+    void accept(T row) throws IOException;
+}
@@ -0,0 +1,59 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.nio.file.Path;
+import java.util.function.UnaryOperator;
+
+public class ServerConfig {
+    private final String host;
+    private final int port;
+    private final Path workDirectory;
+    private final int warmupRequests;
+    private final long warmupMillis;
+
+    public ServerConfig(String host, int port, Path workDirectory, int warmupRequests, long warmupMillis) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Некорректный порт сервера: " + port);
+        }
+        this.host = host;
+        this.port = port;
+        this.workDirectory = workDirectory;
+        this.warmupRequests = Math.max(0, warmupRequests);
+        this.warmupMillis = Math.max(0, warmupMillis);
+    }
+
+    public static ServerConfig fromSystem() {
+        return from(key -> null);
+    }
+
+    public static ServerConfig from(UnaryOperator<String> overrides) {
+        UnaryOperator<String> source = DatabaseConfig.lookup(overrides);
+        String workDirectory = source.apply("currency.server.workDir");
+        return new ServerConfig(
+                DatabaseConfig.stringValue(source.apply("currency.server.host"), null),
+                DatabaseConfig.intValue(source.apply("currency.server.port"), 8080),
+                workDirectory == null || workDirectory.isBlank() ? null : Path.of(workDirectory.trim()),
+                DatabaseConfig.intValue(source.apply("currency.server.warmupRequests"), 1000),
+                DatabaseConfig.longValue(source.apply("currency.server.warmupMs"), 3000)
+        );
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public Path getWorkDirectory() {
+        return workDirectory;
+    }
+
+    public int getWarmupRequests() {
+        return warmupRequests;
+    }
+
+    public long getWarmupMillis() {
+        return warmupMillis;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+enum SqlDialect {
+    SQLITE("jdbc:sqlite:", "org.sqlite.JDBC",
+            "INTEGER PRIMARY KEY AUTOINCREMENT", "DECIMAL(6, 6)", "TEXT",
+            "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+            "SELECT 1 FROM pragma_table_info(?) WHERE name = ?",
+            """
+            INSERT INTO ExchangeRates (BaseCurrencyId, TargetCurrencyId, Rate, RateExact)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (BaseCurrencyId, TargetCurrencyId) DO UPDATE SET Rate = excluded.Rate, RateExact = excluded.RateExact
+            """),
+    H2("jdbc:h2:", "org.h2.Driver",
+            "INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY", "DOUBLE PRECISION", "VARCHAR(64)",
+            "SELECT 1 FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = UPPER(?)",
+            "SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE UPPER(TABLE_NAME) = UPPER(?) AND UPPER(COLUMN_NAME) = UPPER(?)",
+            """
+            MERGE INTO ExchangeRates (BaseCurrencyId, TargetCurrencyId, Rate, RateExact)
+            KEY (BaseCurrencyId, TargetCurrencyId)
+            VALUES (?, ?, ?, ?)
+            """);
+
+    private final String prefix;
+    private final String driver;
+    private final String identity;
+    private final String rateType;
+    private final String textType;
+    private final String tableExistsSql;
+    private final String columnExistsSql;
+    private final String upsertRateSql;
+
+    SqlDialect(String prefix, String driver, String identity, String rateType, String textType,
+               String tableExistsSql, String columnExistsSql, String upsertRateSql) {
+        this.prefix = prefix;
+        this.driver = driver;
+        this.identity = identity;
+        this.rateType = rateType;
+        this.textType = textType;
+        this.tableExistsSql = tableExistsSql;
+        this.columnExistsSql = columnExistsSql;
+        this.upsertRateSql = upsertRateSql;
+    }
+
+    static SqlDialect of(String url) {
+        for (SqlDialect dialect : values()) {
+            if (url.startsWith(dialect.prefix)) {
+                return dialect;
+            }
+        }
+        throw new IllegalArgumentException("Неподдерживаемая база данных: " + url);
+    }
+
+    String getDriver() {
+        return driver;
+    }
+
+    String getIdentity() {
+        return identity;
+    }
+
+    String getRateType() {
+        return rateType;
+    }
+
+    String getTextType() {
+        return textType;
+    }
+
+    String getUpsertRateSql() {
+        return upsertRateSql;
+    }
+
+    boolean tableExists(Connection conn, String table) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(tableExistsSql)) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(columnExistsSql)) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
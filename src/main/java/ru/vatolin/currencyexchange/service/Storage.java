@@ -0,0 +1,73 @@
+package ru.vatolin.currencyexchange.service;
+
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Storage {
+    private final CurrencyStore currencies;
+    private final RateStore rates;
+
+    public Storage(CurrencyStore currencies, RateStore rates) {
+        this.currencies = currencies;
+        this.rates = rates;
+    }
+
+    public static Storage open(StorageConfig config) throws SQLException {
+        Storage storage;
+        if (config.usesDatabase()) {
+            ConnectionPool pool = DatabaseConnection.getPool();
+            storage = new Storage(new CurrencyDao(pool), new ExchangeRateDao(pool));
+        } else {
+            InMemoryRateStore store = new InMemoryRateStore();
+            storage = new Storage(store, store);
+        }
+        if (config.getSeedUrl() != null) {
+            storage.seed(config.getSeedUrl());
+        }
+        return storage;
+    }
+
+    public CurrencyStore getCurrencies() {
+        return currencies;
+    }
+
+    public RateStore getRates() {
+        return rates;
+    }
+
+    public void prepare() throws SQLException {
+        currencies.prepare();
+        rates.prepare();
+    }
+
+    public void copyFrom(Storage source) throws SQLException {
+        for (Currency currency : source.currencies.getAllCurrencies()) {
+            currencies.addCurrency(currency);
+        }
+        List<RateUpdate> updates = new ArrayList<>();
+        for (ExchangeRate rate : source.rates.getAllExchangeRates()) {
+            updates.add(new RateUpdate(rate.getBaseCurrency().getCode(), rate.getTargetCurrency().getCode(), rate.getExactRate()));
+        }
+        if (!updates.isEmpty()) {
+            rates.upsertExchangeRates(updates, System.currentTimeMillis());
+        }
+    }
+
+    private void seed(String url) throws SQLException {
+        prepare();
+        if (!currencies.getAllCurrencies().isEmpty()) {
+            return;
+        }
+        DatabaseConfig config = DatabaseConfig.from(key -> key.equals("currency.db.url") ? url : null);
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            Storage source = new Storage(new CurrencyDao(pool), new ExchangeRateDao(pool));
+            source.prepare();
+            copyFrom(source);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.vatolin.currencyexchange.service;
+
+import java.util.function.UnaryOperator;
+
+public class StorageConfig {
+    public enum Backend {
+        SQLITE, H2, MEMORY
+    }
+
+    private final Backend backend;
+    private final String seedUrl;
+    private final boolean readThrough;
+
+    public StorageConfig(Backend backend, String seedUrl) {
+        this(backend, seedUrl, false);
+    }
+
+    public StorageConfig(Backend backend, String seedUrl, boolean readThrough) {
+        this.backend = backend;
+        this.seedUrl = seedUrl;
+        this.readThrough = readThrough;
+    }
+
+    public static StorageConfig fromSystem() {
+        return from(key -> null);
+    }
+
+    public static StorageConfig from(UnaryOperator<String> overrides) {
+        UnaryOperator<String> source = DatabaseConfig.lookup(overrides);
+
+        String reads = DatabaseConfig.stringValue(source.apply("currency.storage.reads"), "snapshot");
+        if (!reads.equalsIgnoreCase("snapshot") && !reads.equalsIgnoreCase("store")) {
+            throw new IllegalArgumentException("Неизвестный режим чтения: " + reads);
+        }
+
+        return new StorageConfig(
+                backend(source.apply("currency.storage")),
+                DatabaseConfig.stringValue(source.apply("currency.storage.seedUrl"), null),
+                reads.equalsIgnoreCase("store")
+        );
+    }
+
+    static Backend backend(String value) {
+        String mode = DatabaseConfig.stringValue(value, "sqlite");
+        for (Backend backend : Backend.values()) {
+            if (backend.name().equalsIgnoreCase(mode)) {
+                return backend;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное хранилище: " + mode);
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public boolean usesDatabase() {
+        return backend != Backend.MEMORY;
+    }
+
+    public String getSeedUrl() {
+        return seedUrl;
+    }
+
+    public boolean isReadThrough() {
+        return readThrough;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.vatolin.currencyexchange.controller;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class ClientRateLimiterTest extends TestCase {
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long start = System.nanoTime();
+
+    public void testAllowsBurstThenReportsRetryDelay() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(ClientRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", start));
+        }
+        assertEquals(INTERVAL, limiter.acquire("10.0.0.1", start));
+        assertEquals(1, limiter.getRejected());
+    }
+
+    public void testRejectionDoesNotConsumeCredit() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 1);
+        assertEquals(ClientRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", start));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(INTERVAL, limiter.acquire("10.0.0.1", start));
+        }
+        assertEquals(ClientRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", start + INTERVAL));
+    }
+
+    public void testSustainedRateIsAllowed() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(ClientRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", start + i * INTERVAL));
+        }
+        assertEquals(0, limiter.getRejected());
+    }
+
+    public void testClientsAreIndependent() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 1);
+        assertEquals(ClientRateLimiter.ALLOWED, limiter.acquire("10.0.0.1", start));
+        assertTrue(limiter.acquire("10.0.0.1", start) > 0);
+        assertEquals(ClientRateLimiter.ALLOWED, limiter.acquire("10.0.0.2", start));
+        assertEquals(2, limiter.getClients());
+    }
+
+    public void testEvictsIdleClientsWhenFull() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 5);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("busy", start);
+        }
+        for (int i = 1; i < ClientRateLimiter.MAX_CLIENTS; i++) {
+            limiter.acquire("client-" + i, start);
+        }
+        assertEquals(ClientRateLimiter.MAX_CLIENTS, limiter.getClients());
+
+        long later = start + 3 * INTERVAL;
+        assertEquals(ClientRateLimiter.ALLOWED, limiter.acquire("newcomer", later));
+        assertEquals(2, limiter.getClients());
+    }
+}
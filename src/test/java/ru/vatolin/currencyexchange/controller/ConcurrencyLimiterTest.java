@@ -0,0 +1,137 @@
+package ru.vatolin.currencyexchange.controller;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConcurrencyLimiterTest extends TestCase {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final FakeLatency latency = new FakeLatency();
+    private long now = System.nanoTime();
+
+    public void testRejectsBeyondLimitWithoutQueue() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 0, TARGET, latency);
+        assertTrue(limiter.acquire(SECOND));
+        assertTrue(limiter.acquire(SECOND));
+        assertFalse(limiter.acquire(SECOND));
+        assertEquals(1, limiter.getRejected());
+        assertEquals(2, limiter.getInFlight());
+
+        limiter.release();
+        assertTrue(limiter.acquire(0));
+    }
+
+    public void testQueuedRequestIsAdmittedOnRelease() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, TARGET, latency);
+        assertTrue(limiter.acquire(0));
+
+        AtomicBoolean admitted = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            try {
+                admitted.set(limiter.acquire(10 * SECOND));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        while (limiter.getWaiting() == 0) {
+            Thread.sleep(1);
+        }
+        limiter.release();
+        waiter.join(10_000);
+
+        assertTrue(admitted.get());
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getWaiting());
+    }
+
+    public void testQueuedRequestTimesOut() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, TARGET, latency);
+        assertTrue(limiter.acquire(0));
+        assertFalse(limiter.acquire(TimeUnit.MILLISECONDS.toNanos(20)));
+        assertEquals(1, limiter.getRejected());
+        assertEquals(0, limiter.getWaiting());
+    }
+
+    public void testBacksOffWhenDatabaseLatencyExceedsTarget() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0, TARGET, latency);
+        latency.record(4, TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(limiter.adapt(now += SECOND));
+        assertEquals(80, limiter.getLimit());
+
+        latency.record(4, TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(limiter.adapt(now += SECOND));
+        assertEquals(64, limiter.getLimit());
+    }
+
+    public void testRecoversWhenDatabaseLatencyDrops() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0, TARGET, latency);
+        latency.record(4, TimeUnit.MILLISECONDS.toNanos(50));
+        limiter.adapt(now += SECOND);
+        assertEquals(80, limiter.getLimit());
+
+        latency.record(4, TimeUnit.MILLISECONDS.toNanos(2));
+        assertFalse(limiter.adapt(now += SECOND));
+        assertEquals(88, limiter.getLimit());
+        for (int i = 0; i < 10; i++) {
+            limiter.adapt(now += SECOND);
+        }
+        assertEquals(100, limiter.getLimit());
+    }
+
+    public void testIgnoresLatencyInsideWindow() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0, TARGET, latency);
+        latency.record(4, TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(limiter.adapt(now));
+        assertEquals(100, limiter.getLimit());
+    }
+
+    public void testOnlyLatencyAfterConstructionCounts() {
+        latency.record(4, TimeUnit.MILLISECONDS.toNanos(50));
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0, TARGET, latency);
+        assertFalse(limiter.adapt(now += SECOND));
+        assertEquals(100, limiter.getLimit());
+    }
+
+    public void testCounterResetIsNotOverload() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 0, TARGET, latency);
+        latency.record(4, TimeUnit.MILLISECONDS.toNanos(5));
+        limiter.adapt(now += SECOND);
+
+        latency.nanos = 0;
+        latency.count = 0;
+        assertFalse(limiter.adapt(now += SECOND));
+        assertEquals(100, limiter.getLimit());
+    }
+
+    public void testBackOffKeepsOnePermit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 0, TARGET, latency);
+        for (int i = 0; i < 10; i++) {
+            limiter.backOff();
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    private static final class FakeLatency implements ConcurrencyLimiter.LatencySource {
+        private volatile long nanos;
+        private volatile long count;
+
+        void record(int samples, long each) {
+            nanos += samples * each;
+            count += samples;
+        }
+
+        @Override
+        public long nanos() {
+            return nanos;
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+    }
+}
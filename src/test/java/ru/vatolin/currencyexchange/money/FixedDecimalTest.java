@@ -0,0 +1,80 @@
+package ru.vatolin.currencyexchange.money;
+
+import junit.framework.TestCase;
+
+import java.math.BigDecimal;
+
+public class FixedDecimalTest extends TestCase {
+
+    public void testParsesCompactDecimal() {
+        FixedDecimal value = FixedDecimal.parse("1.2345");
+        assertTrue(value.isCompact());
+        assertEquals(12345, value.unscaled());
+        assertEquals(4, value.scale());
+        assertEquals("1.2345", value.toString());
+    }
+
+    public void testParsesSignedValues() {
+        FixedDecimal negative = FixedDecimal.parse("-42");
+        assertEquals(-42, negative.unscaled());
+        assertEquals(0, negative.scale());
+
+        FixedDecimal positive = FixedDecimal.parse("+0.5");
+        assertEquals(5, positive.unscaled());
+        assertEquals(1, positive.scale());
+        assertEquals("0.5", positive.toString());
+    }
+
+    public void testLeadingZerosDoNotCountAsDigits() {
+        FixedDecimal value = FixedDecimal.parse("0000.000000000000000001");
+        assertTrue(value.isCompact());
+        assertEquals(1, value.unscaled());
+        assertEquals(18, value.scale());
+        assertEquals("0.000000000000000001", value.toString());
+    }
+
+    public void testFallsBackToBigDecimalBeyondEighteenDigits() {
+        FixedDecimal value = FixedDecimal.parse("1234567890.1234567891");
+        assertFalse(value.isCompact());
+        assertEquals(new BigDecimal("1234567890.1234567891"), value.toBigDecimal());
+        assertEquals("1234567890.1234567891", value.toString());
+    }
+
+    public void testFallsBackToBigDecimalBeyondMaxScale() {
+        FixedDecimal value = FixedDecimal.parse("0.0000000000000000001");
+        assertFalse(value.isCompact());
+        assertEquals(19, value.scale());
+        assertEquals(new BigDecimal("1E-19"), value.toBigDecimal());
+    }
+
+    public void testRejectsMalformedInput() {
+        String[] malformed = {"", "-", ".", "1.2.3", "abc", "1e"};
+        for (String text : malformed) {
+            try {
+                FixedDecimal.parse(text);
+                fail("Ожидалась ошибка для \"" + text + "\"");
+            } catch (NumberFormatException expected) {
+            }
+        }
+    }
+
+    public void testCompactAndBigFormsAreEqual() {
+        FixedDecimal compact = FixedDecimal.parse("1.5");
+        FixedDecimal big = FixedDecimal.of(new BigDecimal("1.5"));
+        assertEquals(compact, big);
+        assertEquals(compact.hashCode(), big.hashCode());
+        assertFalse(compact.equals(FixedDecimal.parse("1.50")));
+        assertEquals(compact, FixedDecimal.parse("1.50").stripTrailingZeros());
+    }
+
+    public void testValueOfUsesShortestDecimal() {
+        assertEquals("0.1", FixedDecimal.valueOf(0.1).toString());
+        assertEquals("100", FixedDecimal.valueOf(1e2).toString());
+        assertEquals(0.1, FixedDecimal.parse("0.1").doubleValue(), 0.0);
+        try {
+            FixedDecimal.valueOf(Double.NaN);
+            fail("Ожидалась ошибка для NaN");
+        } catch (NumberFormatException expected) {
+        }
+    }
+}
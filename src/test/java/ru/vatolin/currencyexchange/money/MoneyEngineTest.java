@@ -0,0 +1,75 @@
+package ru.vatolin.currencyexchange.money;
+
+import junit.framework.TestCase;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public class MoneyEngineTest extends TestCase {
+    private final MoneyEngine engine = new MoneyEngine(RoundingMode.HALF_EVEN, 12);
+
+    public void testHalfEvenRoundsTiesToEvenDigit() {
+        assertEquals(FixedDecimal.parse("0.12"), engine.multiply(FixedDecimal.parse("0.125"), FixedDecimal.ONE, 2));
+        assertEquals(FixedDecimal.parse("0.14"), engine.multiply(FixedDecimal.parse("0.135"), FixedDecimal.ONE, 2));
+        assertEquals(FixedDecimal.parse("-0.12"), engine.multiply(FixedDecimal.parse("-0.125"), FixedDecimal.ONE, 2));
+        assertEquals(FixedDecimal.parse("0.13"), engine.multiply(FixedDecimal.parse("0.1251"), FixedDecimal.ONE, 2));
+    }
+
+    public void testCompactPathMatchesBigDecimalForEveryMode() {
+        RoundingMode[] modes = {RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR,
+                RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN};
+        FixedDecimal rate = FixedDecimal.parse("1.7");
+        for (RoundingMode mode : modes) {
+            MoneyEngine rounding = new MoneyEngine(mode, 12);
+            for (long unscaled = -3000; unscaled <= 3000; unscaled += 7) {
+                FixedDecimal amount = FixedDecimal.of(unscaled, 3);
+                BigDecimal expected = amount.toBigDecimal().multiply(rate.toBigDecimal()).setScale(2, mode);
+                assertEquals(mode + " " + amount, expected, rounding.multiply(amount, rate, 2).toBigDecimal());
+            }
+        }
+    }
+
+    public void testRatioUsesRateScale() {
+        FixedDecimal third = engine.ratio(new FixedDecimal[]{FixedDecimal.ONE}, new FixedDecimal[]{FixedDecimal.parse("3")});
+        assertEquals("0.333333333333", third.toString());
+
+        FixedDecimal direct = FixedDecimal.parse("1.2345678901234");
+        assertSame(direct, engine.ratio(new FixedDecimal[]{direct}, new FixedDecimal[0]));
+    }
+
+    public void testFallsBackToBigDecimalOnOverflow() {
+        FixedDecimal large = FixedDecimal.parse("999999999999999999");
+        FixedDecimal product = engine.multiply(large, large, 2);
+        BigDecimal expected = new BigDecimal("999999999999999999").pow(2).setScale(2);
+        assertFalse(product.isCompact());
+        assertEquals(expected, product.toBigDecimal());
+    }
+
+    public void testFallsBackToBigDecimalOnLargeExponent() {
+        FixedDecimal tiny = FixedDecimal.parse("0.000000000000000003");
+        FixedDecimal result = engine.convert(FixedDecimal.ONE, new FixedDecimal[0], new FixedDecimal[]{tiny}, 2);
+        assertEquals(new BigDecimal("333333333333333333.33"), result.toBigDecimal());
+    }
+
+    public void testBigAmountUsesExactPath() {
+        FixedDecimal amount = FixedDecimal.parse("12345678901234567890.5");
+        FixedDecimal result = engine.multiply(amount, FixedDecimal.parse("2"), 0);
+        assertEquals(new BigDecimal("24691357802469135781"), result.toBigDecimal());
+    }
+
+    public void testDivisionByZeroFails() {
+        try {
+            engine.convert(FixedDecimal.ONE, new FixedDecimal[0], new FixedDecimal[]{FixedDecimal.of(0, 0)}, 2);
+            fail("Ожидалось деление на ноль");
+        } catch (ArithmeticException expected) {
+        }
+    }
+
+    public void testRejectsRateScaleOutOfRange() {
+        try {
+            new MoneyEngine(RoundingMode.HALF_EVEN, FixedDecimal.MAX_SCALE + 1);
+            fail("Ожидалась ошибка для точности " + (FixedDecimal.MAX_SCALE + 1));
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.vatolin.currencyexchange.service;
+
+import junit.framework.TestCase;
+import ru.vatolin.currencyexchange.model.ChangeSet;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.util.List;
+
+public class ChangeLogTest extends TestCase {
+    private final Currency usd = new Currency(1, "USD", "US Dollar", "$");
+    private final Currency eur = new Currency(2, "EUR", "Euro", "€");
+    private final Currency gbp = new Currency(3, "GBP", "Pound Sterling", "£");
+
+    public void testCoalescesRepeatedPairUpdates() {
+        long base = DataVersion.bump();
+        ChangeLog log = new ChangeLog(16, base);
+        long first = DataVersion.bump();
+        log.appendRates(List.of(rate(usd, eur, "0.90")), first);
+        long second = DataVersion.bump();
+        log.appendRates(List.of(rate(usd, eur, "0.91")), second);
+        long third = DataVersion.bump();
+        log.appendRates(List.of(rate(usd, gbp, "0.80")), third);
+        RateBookSnapshot view = view();
+
+        ChangeSet changes = log.since(log.getRunId(), base, view);
+        assertFalse(changes.isReset());
+        assertEquals(third, changes.getVersion());
+        assertEquals(log.getRunId(), changes.getRunId());
+        assertEquals(2, changes.getRates().size());
+        assertEquals(FixedDecimal.parse("0.91"), changes.getRates().get(0).getExactRate());
+        assertEquals("GBP", changes.getRates().get(1).getTargetCurrency().getCode());
+
+        ChangeSet latest = log.since(log.getRunId(), second, view);
+        assertEquals(1, latest.getRates().size());
+        assertEquals("GBP", latest.getRates().get(0).getTargetCurrency().getCode());
+
+        assertTrue(log.since(log.getRunId(), third, view).isEmpty());
+    }
+
+    public void testIncludesCurrencies() {
+        long base = DataVersion.bump();
+        ChangeLog log = new ChangeLog(16, base);
+        log.appendCurrency(gbp, DataVersion.bump());
+
+        ChangeSet changes = log.since(log.getRunId(), base, view());
+        assertEquals(List.of(gbp), changes.getCurrencies());
+        assertTrue(changes.getRates().isEmpty());
+    }
+
+    public void testSkipsChangesNewerThanView() {
+        long base = DataVersion.bump();
+        ChangeLog log = new ChangeLog(16, base);
+        log.appendRates(List.of(rate(usd, eur, "0.90")), DataVersion.bump());
+        RateBookSnapshot view = view();
+        log.appendRates(List.of(rate(usd, gbp, "0.80")), DataVersion.bump());
+
+        ChangeSet changes = log.since(log.getRunId(), base, view);
+        assertEquals(view.getVersion(), changes.getVersion());
+        assertEquals(1, changes.getRates().size());
+        assertEquals("EUR", changes.getRates().get(0).getTargetCurrency().getCode());
+    }
+
+    public void testRingEvictionForcesReset() {
+        long base = DataVersion.bump();
+        ChangeLog log = new ChangeLog(2, base);
+        long first = DataVersion.bump();
+        log.appendRates(List.of(rate(usd, eur, "0.90")), first);
+        log.appendRates(List.of(rate(usd, gbp, "0.80")), DataVersion.bump());
+        log.appendRates(List.of(rate(eur, gbp, "0.88")), DataVersion.bump());
+        RateBookSnapshot view = view();
+
+        ChangeSet evicted = log.since(log.getRunId(), base, view);
+        assertTrue(evicted.isReset());
+        assertEquals(view.getExchangeRates(), evicted.getRates());
+
+        ChangeSet retained = log.since(log.getRunId(), first, view);
+        assertFalse(retained.isReset());
+        assertEquals(2, retained.getRates().size());
+    }
+
+    public void testResetDropsHistory() {
+        long base = DataVersion.bump();
+        ChangeLog log = new ChangeLog(16, base);
+        log.appendRates(List.of(rate(usd, eur, "0.90")), DataVersion.bump());
+        long reloaded = DataVersion.bump();
+        log.reset(reloaded);
+        RateBookSnapshot view = view();
+
+        assertTrue(log.since(log.getRunId(), base, view).isReset());
+        ChangeSet current = log.since(log.getRunId(), reloaded, view);
+        assertFalse(current.isReset());
+        assertTrue(current.isEmpty());
+    }
+
+    public void testOtherRunForcesReset() {
+        long base = DataVersion.bump();
+        ChangeLog log = new ChangeLog(16, base);
+        log.appendRates(List.of(rate(usd, eur, "0.90")), DataVersion.bump());
+        RateBookSnapshot view = view();
+
+        assertFalse(log.since(log.getRunId(), base, view).isReset());
+        assertTrue(log.since(null, base, view).isReset());
+        assertTrue(log.since(new ChangeLog(16, base).getRunId(), base, view).isReset());
+    }
+
+    public void testVersionAheadOfViewForcesReset() {
+        long base = DataVersion.bump();
+        ChangeLog log = new ChangeLog(16, base);
+        RateBookSnapshot view = view();
+
+        assertTrue(log.since(log.getRunId(), view.getVersion() + 1, view).isReset());
+    }
+
+    private RateBookSnapshot view() {
+        return RateBookSnapshot.of(List.of(usd, eur, gbp), List.of(rate(usd, eur, "0.91"), rate(usd, gbp, "0.80")));
+    }
+
+    private static ExchangeRate rate(Currency base, Currency target, String rate) {
+        return new ExchangeRate(0, base, target, FixedDecimal.parse(rate));
+    }
+}
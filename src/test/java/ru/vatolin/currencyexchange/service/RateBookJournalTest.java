@@ -0,0 +1,168 @@
+package ru.vatolin.currencyexchange.service;
+
+import junit.framework.TestCase;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class RateBookJournalTest extends TestCase {
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("rate-book-journal");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public void testListenersSeeConcurrentUpdatesInVersionOrder() throws Exception {
+        try (RateBook book = open(2000)) {
+            book.addCurrency(new Currency(0, "USD", "US Dollar", "$"));
+            book.addCurrency(new Currency(0, "EUR", "Euro", "€"));
+            book.addExchangeRate("USD", "EUR", FixedDecimal.parse("0.9"));
+
+            List<long[]> seen = new ArrayList<>();
+            book.addChangeListener((rates, version) -> {
+                synchronized (seen) {
+                    seen.add(new long[]{version, rates.get(0).getExactRate().unscaled()});
+                }
+            });
+
+            List<Thread> writers = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int writer = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int i = 1; i <= 100; i++) {
+                            book.updateExchangeRate("USD", "EUR", FixedDecimal.of(writer * 1000 + i, 3));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                });
+                writers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : writers) {
+                thread.join();
+            }
+
+            assertEquals(List.of(), errors);
+            assertEquals(400, seen.size());
+            for (int i = 1; i < seen.size(); i++) {
+                assertTrue("Уведомление " + i + " пришло не по порядку версий", seen.get(i)[0] > seen.get(i - 1)[0]);
+            }
+            ExchangeRate current = book.snapshot().getExchangeRate("USD", "EUR");
+            assertEquals(current.getExactRate().unscaled(), seen.get(seen.size() - 1)[1]);
+            assertEquals(book.snapshot().getVersion(), seen.get(seen.size() - 1)[0]);
+        }
+    }
+
+    public void testRestartRestoresRatesAndHistory() throws Exception {
+        long before;
+        try (RateBook book = open(0)) {
+            book.addCurrency(new Currency(0, "USD", "US Dollar", "$"));
+            book.addCurrency(new Currency(0, "EUR", "Euro", "€"));
+            book.addExchangeRate("USD", "EUR", FixedDecimal.parse("0.9"));
+            before = System.currentTimeMillis();
+            Thread.sleep(2);
+            book.updateExchangeRate("USD", "EUR", FixedDecimal.parse("0.95"));
+        }
+
+        try (RateBook book = open(0)) {
+            ExchangeRate rate = book.snapshot().getExchangeRate("USD", "EUR");
+            assertEquals(FixedDecimal.parse("0.95"), rate.getExactRate());
+            RateSeries series = book.history().getSeries(rate.getBaseCurrency().getId(), rate.getTargetCurrency().getId());
+            assertEquals(2, series.size());
+            assertEquals(FixedDecimal.parse("0.9"), series.rateAt(before));
+            book.addCurrency(new Currency(0, "GBP", "Pound Sterling", "£"));
+            assertEquals(3, book.snapshot().getCurrency("GBP").getId());
+        }
+    }
+
+    public void testJournalFailureMakesBookReadOnly() throws Exception {
+        FailingJournal journal = new FailingJournal(directory);
+        InMemoryRateStore store = new InMemoryRateStore();
+        try (RateBook book = new RateBook(store, store, new CrossRateResolver(List.of("USD"), 2), journal, 0)) {
+            book.addCurrency(new Currency(0, "USD", "US Dollar", "$"));
+            book.addCurrency(new Currency(0, "EUR", "Euro", "€"));
+            book.addExchangeRate("USD", "EUR", FixedDecimal.parse("0.9"));
+            RateBookSnapshot published = book.snapshot();
+            List<ExchangeRate> notified = new ArrayList<>();
+            book.addChangeListener((rates, version) -> notified.addAll(rates));
+
+            journal.failAfter = journal.durablePosition();
+            try {
+                book.updateExchangeRate("USD", "EUR", FixedDecimal.parse("0.95"));
+                fail("Ожидалась ошибка записи журнала");
+            } catch (SQLException expected) {
+            }
+
+            assertTrue(book.isReadOnly());
+            assertSame(published, book.snapshot());
+            assertEquals(List.of(), notified);
+            assertTrue(book.changesSince(book.getRunId(), published.getVersion()).isEmpty());
+            ExchangeRate rate = published.getExchangeRate("USD", "EUR");
+            assertEquals(FixedDecimal.parse("0.9"), book.history().rateAt(rate.getBaseCurrency().getId(), rate.getTargetCurrency().getId(), Long.MAX_VALUE));
+
+            try {
+                book.addCurrency(new Currency(0, "GBP", "Pound Sterling", "£"));
+                fail("Ожидался отказ в записи");
+            } catch (SQLException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("только для чтения"));
+            }
+            assertEquals(FixedDecimal.parse("0.9"), book.findRate("USD", "EUR").getExactRate());
+        }
+    }
+
+    private RateBook open(long groupCommitMicros) throws Exception {
+        InMemoryRateStore store = new InMemoryRateStore();
+        RateJournal journal = new RateJournal(new JournalConfig(true, directory, 1 << 16, 0, groupCommitMicros));
+        return new RateBook(store, store, new CrossRateResolver(List.of("USD"), 2), journal, 0);
+    }
+
+    private static final class FailingJournal extends RateJournal {
+        private volatile long failAfter = Long.MAX_VALUE;
+
+        FailingJournal(Path directory) throws IOException {
+            super(new JournalConfig(true, directory, 1 << 16, 0, 0));
+        }
+
+        @Override
+        void awaitDurable(long position) throws IOException {
+            if (position > failAfter) {
+                throw new IOException("Сбой fsync");
+            }
+            super.awaitDurable(position);
+        }
+
+        @Override
+        long durablePosition() {
+            return Math.min(super.durablePosition(), failAfter);
+        }
+
+        @Override
+        boolean isFailed() {
+            return failAfter != Long.MAX_VALUE;
+        }
+    }
+}
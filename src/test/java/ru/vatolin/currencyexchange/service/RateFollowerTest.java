@@ -0,0 +1,113 @@
+package ru.vatolin.currencyexchange.service;
+
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+public class RateFollowerTest extends TestCase {
+    private static final String CURRENCIES = """
+            {"code": "USD", "fullName": "US Dollar", "sign": "$"},
+            {"code": "EUR", "fullName": "Euro", "sign": "€"}""";
+    private static final String GBP = """
+            , {"code": "GBP", "fullName": "Pound Sterling", "sign": "£"}""";
+    private static final String RATES = """
+            {"base": "USD", "target": "EUR", "rate": "0.91"},
+            {"base": "USD", "target": "GBP", "rate": "0.8"}""";
+
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    private volatile String body;
+    private HttpServer leader;
+    private RateBook rateBook;
+
+    @Override
+    protected void setUp() throws Exception {
+        leader = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        leader.createContext("/api/changes", exchange -> {
+            queries.add(exchange.getRequestURI().getRawQuery());
+            byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(payload);
+            }
+        });
+        leader.start();
+
+        InMemoryRateStore store = new InMemoryRateStore();
+        rateBook = new RateBook(store, store, new CrossRateResolver(List.of("USD"), 2));
+    }
+
+    @Override
+    protected void tearDown() {
+        leader.stop(0);
+        rateBook.close();
+    }
+
+    public void testRetriesRejectedRowsBeforeAdvancing() throws Exception {
+        body = changes("leader-1", 5, CURRENCIES, RATES);
+        try (RateFollower follower = follow()) {
+            await(() -> queries.size() >= 3);
+            assertNotNull(rateBook.snapshot().getExchangeRate("USD", "EUR"));
+            assertNull(rateBook.snapshot().getExchangeRate("USD", "GBP"));
+            assertEquals(0, follower.getVersion());
+            assertNull(follower.getRunId());
+            for (String query : queries) {
+                assertTrue(query, query.startsWith("since=0&"));
+            }
+
+            body = changes("leader-1", 6, CURRENCIES + GBP, RATES);
+            await(() -> follower.getVersion() == 6);
+            assertEquals("leader-1", follower.getRunId());
+            ExchangeRate gbp = rateBook.snapshot().getExchangeRate("USD", "GBP");
+            assertNotNull(gbp);
+            assertEquals(FixedDecimal.parse("0.8"), gbp.getExactRate());
+
+            int seen = queries.size();
+            await(() -> queries.size() > seen + 1);
+            assertTrue(queries.get(queries.size() - 1).startsWith("since=leader-1:6&"));
+        }
+    }
+
+    public void testFollowsNewLeaderRun() throws Exception {
+        body = changes("leader-1", 7, CURRENCIES + GBP, RATES);
+        try (RateFollower follower = follow()) {
+            await(() -> follower.getVersion() == 7);
+
+            body = changes("leader-2", 3, CURRENCIES + GBP, """
+                    {"base": "USD", "target": "EUR", "rate": "0.95"}""");
+            await(() -> "leader-2".equals(follower.getRunId()));
+            assertEquals(3, follower.getVersion());
+            assertEquals(FixedDecimal.parse("0.95"), rateBook.snapshot().getExchangeRate("USD", "EUR").getExactRate());
+        }
+    }
+
+    private RateFollower follow() {
+        URI uri = URI.create("http://127.0.0.1:" + leader.getAddress().getPort());
+        return new RateFollower(rateBook, new ReplicationConfig(uri, 0, 10));
+    }
+
+    private static String changes(String run, long version, String currencies, String rates) {
+        return "{\"run\": \"" + run + "\", \"version\": " + version + ", \"reset\": true, "
+                + "\"currencies\": [" + currencies + "], \"rates\": [" + rates + "]}";
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException, IOException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Условие не выполнено за 10 с");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ru.vatolin.currencyexchange.service;
+
+import junit.framework.TestCase;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class RateJournalTest extends TestCase {
+    private static final int RATE_RECORD = 8 + 1 + 8 + 4 + 21;
+
+    private final Currency usd = CurrencyRegistry.intern(1, "USD", "US Dollar", "$");
+    private final Currency eur = CurrencyRegistry.intern(2, "EUR", "Euro", "€");
+    private final Currency gbp = CurrencyRegistry.intern(3, "GBP", "Pound Sterling", "£");
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("rate-journal");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public void testRecoversCheckpointThenReplaysJournal() throws IOException {
+        RateHistory history = new RateHistory();
+        history.append(usd.getId(), eur.getId(), 1_000, FixedDecimal.parse("0.9"));
+        history.append(usd.getId(), gbp.getId(), 1_000, FixedDecimal.parse("0.123456789012345678"));
+        try (RateJournal journal = open()) {
+            checkpoint(journal, RateBookSnapshot.of(List.of(usd, eur), List.of(rate(1, usd, eur, "0.9"))), history);
+            journal.awaitDurable(journal.appendCurrency(gbp));
+            journal.awaitDurable(journal.appendRates(List.of(rate(1, usd, eur, "0.91")), 2_000));
+            journal.awaitDurable(journal.appendRates(List.of(rate(2, usd, gbp, "0.8")), 3_000));
+        }
+
+        RateHistory recovered = new RateHistory();
+        RateBookSnapshot view;
+        try (RateJournal journal = open()) {
+            view = journal.recover(recovered);
+        }
+        assertEquals(3, view.getCurrencies().size());
+        assertEquals(FixedDecimal.parse("0.91"), view.getExchangeRate("USD", "EUR").getExactRate());
+        assertEquals(FixedDecimal.parse("0.8"), view.getExchangeRate("USD", "GBP").getExactRate());
+        assertEquals(FixedDecimal.parse("0.9"), recovered.rateAt(usd.getId(), eur.getId(), 1_500));
+        assertEquals(FixedDecimal.parse("0.91"), recovered.rateAt(usd.getId(), eur.getId(), 2_500));
+        assertEquals(FixedDecimal.parse("0.123456789012345678"), recovered.rateAt(usd.getId(), gbp.getId(), 2_000));
+        assertEquals(FixedDecimal.parse("0.8"), recovered.rateAt(usd.getId(), gbp.getId(), 3_000));
+    }
+
+    public void testReplaysEveryGenerationAfterCheckpoint() throws IOException {
+        try (RateJournal journal = open()) {
+            checkpoint(journal, RateBookSnapshot.of(List.of(usd, eur, gbp), List.of()), new RateHistory());
+            journal.awaitDurable(journal.appendRates(List.of(rate(1, usd, eur, "0.9")), 1_000));
+            journal.roll();
+            journal.awaitDurable(journal.appendRates(List.of(rate(2, usd, gbp, "0.8")), 2_000));
+        }
+
+        RateBookSnapshot view;
+        try (RateJournal journal = open()) {
+            view = journal.recover(new RateHistory());
+        }
+        assertEquals(2, view.getExchangeRates().size());
+    }
+
+    public void testDropsTornTailOfNewestGeneration() throws IOException {
+        try (RateJournal journal = open()) {
+            checkpoint(journal, RateBookSnapshot.of(List.of(usd, eur, gbp), List.of()), new RateHistory());
+            journal.awaitDurable(journal.appendRates(List.of(rate(1, usd, eur, "0.9")), 1_000));
+            journal.awaitDurable(journal.appendRates(List.of(rate(2, usd, gbp, "0.8")), 2_000));
+        }
+        Path newest = journals().get(journals().size() - 1);
+        corrupt(newest, RATE_RECORD + 12);
+
+        RateHistory history = new RateHistory();
+        RateBookSnapshot view;
+        try (RateJournal journal = open()) {
+            view = journal.recover(history);
+            assertEquals(RATE_RECORD, Files.size(newest));
+            journal.awaitDurable(journal.appendRates(List.of(rate(2, usd, gbp, "0.7")), 3_000));
+        }
+        assertNotNull(view.getExchangeRate("USD", "EUR"));
+        assertNull(view.getExchangeRate("USD", "GBP"));
+        assertNull(history.rateAt(usd.getId(), gbp.getId(), 2_500));
+
+        try (RateJournal journal = open()) {
+            view = journal.recover(new RateHistory());
+        }
+        assertEquals(FixedDecimal.parse("0.7"), view.getExchangeRate("USD", "GBP").getExactRate());
+    }
+
+    public void testRejectsCorruptionInOlderGeneration() throws IOException {
+        try (RateJournal journal = open()) {
+            checkpoint(journal, RateBookSnapshot.of(List.of(usd, eur, gbp), List.of()), new RateHistory());
+            journal.awaitDurable(journal.appendRates(List.of(rate(1, usd, eur, "0.9")), 1_000));
+            journal.roll();
+            journal.awaitDurable(journal.appendRates(List.of(rate(2, usd, gbp, "0.8")), 2_000));
+        }
+        List<Path> journals = journals();
+        corrupt(journals.get(journals.size() - 2), 12);
+
+        try (RateJournal journal = open()) {
+            journal.recover(new RateHistory());
+            fail("Ожидалась ошибка повреждённого журнала");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("повреждён"));
+        }
+    }
+
+    public void testRejectsCorruptCheckpoint() throws IOException {
+        try (RateJournal journal = open()) {
+            checkpoint(journal, RateBookSnapshot.of(List.of(usd, eur), List.of(rate(1, usd, eur, "0.9"))), new RateHistory());
+        }
+        corrupt(directory.resolve("rates.checkpoint"), 20);
+
+        try (RateJournal journal = open()) {
+            journal.recover(new RateHistory());
+            fail("Ожидалась ошибка повреждённой контрольной точки");
+        } catch (IOException expected) {
+        }
+    }
+
+    private RateJournal open() throws IOException {
+        return new RateJournal(new JournalConfig(true, directory, 1 << 16, 0, 0));
+    }
+
+    private static void checkpoint(RateJournal journal, RateBookSnapshot view, RateHistory history) throws IOException {
+        journal.writeCheckpoint(journal.roll(), view, history.views());
+    }
+
+    private List<Path> journals() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private static void corrupt(Path file, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, offset);
+            value.put(0, (byte) ~value.get(0)).rewind();
+            channel.write(value, offset);
+        }
+    }
+
+    private static ExchangeRate rate(int id, Currency base, Currency target, String rate) {
+        return new ExchangeRate(id, base, target, FixedDecimal.parse(rate));
+    }
+}
@@ -0,0 +1,170 @@
+package ru.vatolin.currencyexchange.service;
+
+import junit.framework.TestCase;
+import ru.vatolin.currencyexchange.model.Currency;
+import ru.vatolin.currencyexchange.model.ExchangeRate;
+import ru.vatolin.currencyexchange.model.RateUpdate;
+import ru.vatolin.currencyexchange.money.FixedDecimal;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class RateWriterTest extends TestCase {
+    private final List<List<RateUpdate>> batches = new ArrayList<>();
+    private volatile SQLException failure;
+    private RateWriter writer;
+
+    @Override
+    protected void setUp() {
+        writer = new RateWriter(this::apply, 16);
+    }
+
+    @Override
+    protected void tearDown() {
+        writer.close();
+    }
+
+    public void testCoalescesDuplicatePairsInOneBatch() throws Exception {
+        CountDownLatch release = block();
+        CompletableFuture<Optional<ExchangeRate>> first = writer.update("USD", "EUR", FixedDecimal.parse("0.9"));
+        CompletableFuture<Optional<ExchangeRate>> other = writer.update("USD", "GBP", FixedDecimal.parse("0.8"));
+        CompletableFuture<Optional<ExchangeRate>> last = writer.update("usd", "eur", FixedDecimal.parse("0.91"));
+        release.countDown();
+
+        ExchangeRate superseded = result(first);
+        ExchangeRate stored = result(last);
+        assertEquals(FixedDecimal.parse("0.8"), result(other).getExactRate());
+        assertEquals(FixedDecimal.parse("0.91"), stored.getExactRate());
+        assertEquals(FixedDecimal.parse("0.9"), superseded.getExactRate());
+        assertEquals(stored.getId(), superseded.getId());
+
+        List<List<RateUpdate>> applied = batches();
+        assertEquals(1, applied.size());
+        assertEquals(2, applied.get(0).size());
+        for (RateUpdate update : applied.get(0)) {
+            if (update.getTargetCurrencyCode().equalsIgnoreCase("EUR")) {
+                assertEquals(FixedDecimal.parse("0.91"), update.getExactRate());
+            }
+        }
+    }
+
+    public void testTaskSplitsBatchInSubmissionOrder() throws Exception {
+        CountDownLatch release = block();
+        CompletableFuture<Optional<ExchangeRate>> before = writer.update("USD", "EUR", FixedDecimal.parse("0.9"));
+        CompletableFuture<Integer> task = writer.submit(() -> batches().size());
+        CompletableFuture<Optional<ExchangeRate>> after = writer.update("USD", "EUR", FixedDecimal.parse("0.91"));
+        release.countDown();
+
+        assertEquals(FixedDecimal.parse("0.9"), result(before).getExactRate());
+        assertEquals(FixedDecimal.parse("0.91"), result(after).getExactRate());
+        assertEquals(Integer.valueOf(1), task.get(5, TimeUnit.SECONDS));
+
+        List<List<RateUpdate>> applied = batches();
+        assertEquals(2, applied.size());
+        assertEquals(FixedDecimal.parse("0.9"), applied.get(0).get(0).getExactRate());
+        assertEquals(FixedDecimal.parse("0.91"), applied.get(1).get(0).getExactRate());
+    }
+
+    public void testApplyFailureFailsWholeGroup() throws Exception {
+        failure = new SQLException("Сбой записи");
+        CountDownLatch release = block();
+        CompletableFuture<Optional<ExchangeRate>> first = writer.update("USD", "EUR", FixedDecimal.parse("0.9"));
+        CompletableFuture<Optional<ExchangeRate>> second = writer.update("USD", "EUR", FixedDecimal.parse("0.91"));
+        CompletableFuture<Optional<ExchangeRate>> other = writer.update("USD", "GBP", FixedDecimal.parse("0.8"));
+        release.countDown();
+
+        for (CompletableFuture<Optional<ExchangeRate>> future : List.of(first, second, other)) {
+            try {
+                RateWriter.await(future);
+                fail("Ожидалась ошибка записи");
+            } catch (SQLException expected) {
+                assertSame(failure, expected);
+            }
+        }
+
+        failure = null;
+        assertEquals(FixedDecimal.parse("0.92"),
+                result(writer.update("USD", "EUR", FixedDecimal.parse("0.92"))).getExactRate());
+    }
+
+    public void testCloseFlushesQueuedWritesAndRejectsLaterOnes() throws Exception {
+        CountDownLatch release = block();
+        CompletableFuture<Optional<ExchangeRate>> queued = writer.update("USD", "EUR", FixedDecimal.parse("0.9"));
+        Thread closer = new Thread(writer::close);
+        closer.start();
+        while (closer.getState() != Thread.State.WAITING && closer.isAlive()) {
+            Thread.sleep(1);
+        }
+
+        CompletableFuture<Optional<ExchangeRate>> late = writer.update("USD", "GBP", FixedDecimal.parse("0.8"));
+        CompletableFuture<Integer> lateTask = writer.submit(() -> 1);
+        release.countDown();
+        closer.join(5_000);
+
+        assertFalse("close() не завершился", closer.isAlive());
+        assertEquals(FixedDecimal.parse("0.9"), result(queued).getExactRate());
+        assertRejected(late);
+        assertRejected(lateTask);
+        assertEquals(1, batches().size());
+    }
+
+    private CountDownLatch block() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        writer.submit(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private List<ExchangeRate> apply(List<RateUpdate> updates) throws SQLException {
+        synchronized (batches) {
+            batches.add(List.copyOf(updates));
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        List<ExchangeRate> stored = new ArrayList<>(updates.size());
+        for (RateUpdate update : updates) {
+            Currency base = currency(update.getBaseCurrencyCode());
+            Currency target = currency(update.getTargetCurrencyCode());
+            stored.add(new ExchangeRate(base.getId() * 100 + target.getId(), base, target, update.getExactRate()));
+        }
+        return stored;
+    }
+
+    private List<List<RateUpdate>> batches() {
+        synchronized (batches) {
+            return new ArrayList<>(batches);
+        }
+    }
+
+    private static Currency currency(String code) {
+        String canonical = code.toUpperCase();
+        return new Currency(canonical.hashCode() & 0xFF, canonical, canonical, canonical);
+    }
+
+    private static ExchangeRate result(CompletableFuture<Optional<ExchangeRate>> future) throws Exception {
+        Optional<ExchangeRate> rate = future.get(5, TimeUnit.SECONDS);
+        assertTrue(rate.isPresent());
+        return rate.get();
+    }
+
+    private static void assertRejected(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Ожидался отказ в записи");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}